@@ -0,0 +1,148 @@
+package by.nuray.shareit.benchmark;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserService;
+import by.nuray.shareit.util.BookingException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * {@link BookingServiceImpl#createCart} from several threads at once against in-memory stand-ins.
+ * Carts draw their items from a small pool, so they keep contending for the same item locks;
+ * the score is carts handled per microsecond, booked or refused. Odd hours start out free.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CartBookingBenchmark {
+
+    private static final int HOURS = 48;
+
+    @Param({"16", "1000"})
+    private int items;
+
+    @Param({"1", "4"})
+    private int cartSize;
+
+    private BookingServiceImpl bookingService;
+    private BookingIntervalIndex bookingIntervalIndex;
+    private final Map<Integer, BookingSlot> booked = new ConcurrentHashMap<>();
+    private LocalDateTime base;
+
+    @Setup
+    public void setUp() {
+        base = LocalDateTime.now().plusDays(1).withNano(0);
+
+        User booker = new User();
+        booker.setId(1);
+        User owner = new User();
+        owner.setId(2);
+
+        Map<Integer, Item> itemsById = new HashMap<>();
+        for (int i = 1; i <= items; i++) {
+            Item item = new Item();
+            item.setId(i);
+            item.setAvailable(true);
+            item.setOwner(owner);
+            itemsById.put(i, item);
+        }
+
+        AtomicInteger ids = new AtomicInteger();
+        List<BookingSlot> existing = new ArrayList<>();
+        for (int itemId = 1; itemId <= items; itemId++) {
+            for (int hour = 0; hour < HOURS; hour += 2) {
+                existing.add(new BookingSlot(ids.incrementAndGet(), itemId,
+                        base.plusHours(hour), base.plusHours(hour + 1), Status.WAITING));
+            }
+        }
+
+        Map<Integer, List<BookingSlot>> existingByItem = existing.stream()
+                .collect(Collectors.groupingBy(BookingSlot::itemId));
+
+        // the stored bookings: the initial ones plus whatever carts hold right now
+        BookingRepository bookingRepository = StandIns.of(BookingRepository.class, Map.of(
+                "findActiveSlotsEndingAfter", args -> existing,
+                "findActiveSlotsForItems", args -> {
+                    Collection<?> itemIds = (Collection<?>) args[0];
+                    LocalDateTime start = (LocalDateTime) args[1];
+                    LocalDateTime end = (LocalDateTime) args[2];
+                    List<BookingSlot> slots = new ArrayList<>();
+                    itemIds.forEach(itemId -> slots.addAll(existingByItem.get((Integer) itemId)));
+                    slots.addAll(booked.values());
+                    return slots.stream()
+                            .filter(slot -> itemIds.contains(slot.itemId()))
+                            .filter(slot -> slot.start().isBefore(end) && slot.end().isAfter(start))
+                            .toList();
+                },
+                "insertAll", args -> {
+                    @SuppressWarnings("unchecked")
+                    List<Booking> bookings = (List<Booking>) args[0];
+                    bookings.forEach(booking -> {
+                        booking.setId(ids.incrementAndGet());
+                        booked.put(booking.getId(), BookingSlot.of(booking));
+                    });
+                    return bookings;
+                }));
+        UserService userService = StandIns.of(UserService.class, Map.of(
+                "getUserById", args -> booker));
+        ItemService itemService = StandIns.of(ItemService.class, Map.of(
+                "getItemsByIds", args -> ((Collection<?>) args[0]).stream()
+                        .map(itemsById::get)
+                        .toList()));
+
+        bookingIntervalIndex = new BookingIntervalIndex();
+        // createCart never touches the counters or the archive, so they need no database or files behind them
+        bookingService = new BookingServiceImpl(bookingRepository, userService, itemService,
+                bookingIntervalIndex, new ItemLockStripes(), new BookingCounters(null),
+                new BookingArchive(null, null, null, null, null), new BookingRentals(null, 1),
+                new BookingExpiry(bookingRepository, bookingIntervalIndex, 1000, 500), new BookingHolds(300_000, 1000),
+                new BookingWaitlist(100));
+        bookingService.warmUpIntervalIndex();
+    }
+
+    @Benchmark
+    public Object cart() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long hour = 2L * random.nextInt(HOURS / 2) + 1;
+
+        List<BookingRequest> cart = new ArrayList<>(cartSize);
+        int first = random.nextInt(items);
+        for (int i = 0; i < cartSize; i++) {
+            // distinct items, listed in no particular order
+            int itemId = (first + i * 7) % items + 1;
+            cart.add(new BookingRequest(itemId, base.plusHours(hour), base.plusHours(hour + 1)));
+        }
+
+        try {
+            List<Booking> bookings = bookingService.createCart(1, cart);
+            // give the slots back so the index keeps the same shape across invocations
+            bookings.forEach(booking -> {
+                booked.remove(booking.getId());
+                bookingIntervalIndex.updateStatus(booking.getId(), Status.CANCELED);
+            });
+            return bookings;
+        } catch (BookingException e) {
+            // another thread holds one of the slots right now
+            return e;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package by.nuray.shareit.benchmark;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserService;
+import by.nuray.shareit.util.BookingException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * {@link BookingServiceImpl#createBooking} against in-memory stand-ins, so the score is the
+ * validation, striped lock and interval-index overlap check rather than database latency.
+ * Every item has a booking on each even hour; odd hours are free.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreateBookingBenchmark {
+
+    @Param({"1000"})
+    private int items;
+
+    @Param({"10", "200"})
+    private int bookingsPerItem;
+
+    private BookingServiceImpl bookingService;
+    private BookingIntervalIndex bookingIntervalIndex;
+    private LocalDateTime base;
+
+    @Setup
+    public void setUp() {
+        base = LocalDateTime.now().plusDays(1).withNano(0);
+
+        User booker = new User();
+        booker.setId(1);
+        User owner = new User();
+        owner.setId(2);
+
+        Map<Integer, Item> itemsById = new HashMap<>();
+        for (int i = 1; i <= items; i++) {
+            Item item = new Item();
+            item.setId(i);
+            item.setAvailable(true);
+            item.setOwner(owner);
+            itemsById.put(i, item);
+        }
+
+        AtomicInteger ids = new AtomicInteger();
+        List<BookingSlot> existing = new ArrayList<>();
+        for (int itemId = 1; itemId <= items; itemId++) {
+            for (int slot = 0; slot < bookingsPerItem; slot++) {
+                existing.add(new BookingSlot(ids.incrementAndGet(), itemId,
+                        base.plusHours(2L * slot), base.plusHours(2L * slot + 1), Status.WAITING));
+            }
+        }
+
+        Map<Integer, List<BookingSlot>> existingByItem = existing.stream()
+                .collect(Collectors.groupingBy(BookingSlot::itemId));
+
+        BookingRepository bookingRepository = StandIns.of(BookingRepository.class, Map.of(
+                "findActiveSlotsEndingAfter", args -> existing,
+                // an index hit is confirmed against the stored bookings before a request is refused
+                "findActiveSlotsForItem", args -> overlapping(existingByItem.get((Integer) args[0]),
+                        (LocalDateTime) args[1], (LocalDateTime) args[2]),
+                "save", args -> {
+                    Booking booking = (Booking) args[0];
+                    booking.setId(ids.incrementAndGet());
+                    return booking;
+                }));
+        UserService userService = StandIns.of(UserService.class, Map.of(
+                "getUserById", args -> booker));
+        ItemService itemService = StandIns.of(ItemService.class, Map.of(
+                "getItemById", args -> itemsById.get((Integer) args[0])));
+
+        bookingIntervalIndex = new BookingIntervalIndex();
+        // createBooking never touches the counters or the archive, so they need no database or files behind them
+        bookingService = new BookingServiceImpl(bookingRepository, userService, itemService,
+                bookingIntervalIndex, new ItemLockStripes(), new BookingCounters(null),
+                new BookingArchive(null, null, null, null, null), new BookingRentals(null, 1),
+                new BookingExpiry(bookingRepository, bookingIntervalIndex, 1000, 500), new BookingHolds(300_000, 1000),
+                new BookingWaitlist(100));
+        bookingService.warmUpIntervalIndex();
+    }
+
+    @Benchmark
+    public Booking freeSlot() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int itemId = random.nextInt(items) + 1;
+        long hour = 2L * random.nextInt(bookingsPerItem) + 1;
+
+        Booking booking = bookingService.createBooking(booking(hour), 1, itemId);
+        // give the slot back so the index keeps the same shape across invocations
+        bookingIntervalIndex.updateStatus(booking.getId(), Status.CANCELED);
+        return booking;
+    }
+
+    @Benchmark
+    public BookingException overlappingSlot() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int itemId = random.nextInt(items) + 1;
+        long hour = 2L * random.nextInt(bookingsPerItem);
+
+        try {
+            bookingService.createBooking(booking(hour), 1, itemId);
+            throw new IllegalStateException("slot at hour " + hour + " should be taken");
+        } catch (BookingException e) {
+            return e;
+        }
+    }
+
+    private static List<BookingSlot> overlapping(List<BookingSlot> slots, LocalDateTime start, LocalDateTime end) {
+        return slots.stream()
+                .filter(slot -> slot.start().isBefore(end) && slot.end().isAfter(start))
+                .toList();
+    }
+
+    private Booking booking(long hour) {
+        Booking booking = new Booking();
+        booking.setStart(base.plusHours(hour));
+        booking.setEnd(base.plusHours(hour + 1));
+        return booking;
+    }
+}
@@ -0,0 +1,67 @@
+package by.nuray.shareit.benchmark;
+
+import by.nuray.shareit.booking.BookingDTO;
+import by.nuray.shareit.booking.Status;
+import by.nuray.shareit.comment.CommentDto;
+import by.nuray.shareit.item.ItemDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of list response bodies, using an ObjectMapper configured the way
+ * Spring Boot configures the one behind the controllers (java.time as ISO strings).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListSerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private List<BookingDTO> bookings;
+    private List<ItemDto> items;
+    private List<CommentDto> comments;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        LocalDateTime now = LocalDateTime.now();
+        bookings = new ArrayList<>();
+        items = new ArrayList<>();
+        comments = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            bookings.add(new BookingDTO(i, now.plusDays(i), now.plusDays(i + 1), i, 1, Status.WAITING));
+            items.add(new ItemDto("item " + i, "description " + i, true, i % 2 == 0 ? i : null));
+            comments.add(new CommentDto(i, "comment " + i, 1, i, now));
+        }
+    }
+
+    @Benchmark
+    public byte[] bookings() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bookings);
+    }
+
+    @Benchmark
+    public byte[] items() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public byte[] comments() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(comments);
+    }
+}
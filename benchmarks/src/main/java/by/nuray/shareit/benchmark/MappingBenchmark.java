@@ -0,0 +1,170 @@
+package by.nuray.shareit.benchmark;
+
+import by.nuray.shareit.booking.Booking;
+import by.nuray.shareit.booking.BookingDTO;
+import by.nuray.shareit.booking.BookingMapper;
+import by.nuray.shareit.booking.BookingMapperImpl;
+import by.nuray.shareit.booking.Status;
+import by.nuray.shareit.comment.Comment;
+import by.nuray.shareit.comment.CommentDto;
+import by.nuray.shareit.comment.CommentMapper;
+import by.nuray.shareit.comment.CommentMapperImpl;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemDto;
+import by.nuray.shareit.item.ItemMapper;
+import by.nuray.shareit.item.ItemMapperImpl;
+import by.nuray.shareit.request.ItemRequest;
+import by.nuray.shareit.request.ItemRequestDTO;
+import by.nuray.shareit.request.ItemRequestMapper;
+import by.nuray.shareit.request.ItemRequestMapperImpl;
+import by.nuray.shareit.user.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps one list page of entities the way the controllers do, once through the reflective
+ * ModelMapper bean the application used to register and once through the generated mappers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ModelMapper modelMapper;
+    private BookingMapper bookingMapper;
+    private ItemMapper itemMapper;
+    private CommentMapper commentMapper;
+    private ItemRequestMapper itemRequestMapper;
+
+    private List<Booking> bookings;
+    private List<Item> items;
+    private List<Comment> comments;
+    private List<ItemRequest> requests;
+
+    @Setup
+    public void setUp() {
+        // same configuration as the bean ShareItApplication registered before the switch
+        modelMapper = new ModelMapper();
+        modelMapper.typeMap(Booking.class, BookingDTO.class).addMappings(mapper -> {
+            mapper.map(src -> src.getItem().getId(), BookingDTO::setItemId);
+            mapper.map(src -> src.getBooker().getId(), BookingDTO::setBookerId);
+        });
+        bookingMapper = new BookingMapperImpl();
+        itemMapper = new ItemMapperImpl();
+        commentMapper = new CommentMapperImpl();
+        itemRequestMapper = new ItemRequestMapperImpl();
+
+        User user = new User();
+        user.setId(1);
+        user.setUsername("user");
+        user.setEmail("user@test.com");
+
+        LocalDateTime now = LocalDateTime.now();
+        bookings = new ArrayList<>();
+        items = new ArrayList<>();
+        comments = new ArrayList<>();
+        requests = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            ItemRequest request = new ItemRequest();
+            request.setId(i);
+            request.setDescription("request " + i);
+            request.setCreatedAt(now);
+            request.setRequester(user);
+            requests.add(request);
+
+            Item item = new Item();
+            item.setId(i);
+            item.setName("item " + i);
+            item.setDescription("description " + i);
+            item.setAvailable(true);
+            item.setOwner(user);
+            item.setRequest(request);
+            items.add(item);
+
+            Booking booking = new Booking();
+            booking.setId(i);
+            booking.setStart(now.plusDays(i));
+            booking.setEnd(now.plusDays(i + 1));
+            booking.setItem(item);
+            booking.setBooker(user);
+            booking.setStatus(Status.WAITING);
+            bookings.add(booking);
+
+            Comment comment = new Comment();
+            comment.setId(i);
+            comment.setText("comment " + i);
+            comment.setCreatedAt(now);
+            comment.setAuthor(user);
+            comment.setItem(item);
+            comments.add(comment);
+        }
+    }
+
+    @Benchmark
+    public void bookingsModelMapper(Blackhole blackhole) {
+        for (Booking booking : bookings) {
+            blackhole.consume(modelMapper.map(booking, BookingDTO.class));
+        }
+    }
+
+    @Benchmark
+    public void bookingsGenerated(Blackhole blackhole) {
+        for (Booking booking : bookings) {
+            blackhole.consume(bookingMapper.toDto(booking));
+        }
+    }
+
+    @Benchmark
+    public void itemsModelMapper(Blackhole blackhole) {
+        for (Item item : items) {
+            blackhole.consume(modelMapper.map(item, ItemDto.class));
+        }
+    }
+
+    @Benchmark
+    public void itemsGenerated(Blackhole blackhole) {
+        for (Item item : items) {
+            blackhole.consume(itemMapper.toDto(item));
+        }
+    }
+
+    @Benchmark
+    public void commentsModelMapper(Blackhole blackhole) {
+        for (Comment comment : comments) {
+            blackhole.consume(modelMapper.map(comment, CommentDto.class));
+        }
+    }
+
+    @Benchmark
+    public void commentsGenerated(Blackhole blackhole) {
+        for (Comment comment : comments) {
+            blackhole.consume(commentMapper.toDto(comment));
+        }
+    }
+
+    @Benchmark
+    public void requestsModelMapper(Blackhole blackhole) {
+        for (ItemRequest request : requests) {
+            blackhole.consume(modelMapper.map(request, ItemRequestDTO.class));
+        }
+    }
+
+    @Benchmark
+    public void requestsGenerated(Blackhole blackhole) {
+        for (ItemRequest request : requests) {
+            blackhole.consume(itemRequestMapper.toDto(request));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package by.nuray.shareit.booking;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request {@link State} dispatch of the booking lists: parsing the request parameter,
+ * validating it into a {@link BookingQuery} and switching to the export filter. Lives in the
+ * booking package because the filter switch is package-private.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class StateDispatchBenchmark {
+
+    private static final String[] PARAMETERS = {"ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED"};
+
+    private int next;
+
+    @Benchmark
+    public void dispatch(Blackhole blackhole) {
+        String parameter = PARAMETERS[next++ % PARAMETERS.length];
+        State state = State.valueOf(parameter);
+        BookingQuery query = BookingQuery.forBooker(1, state, 0, 10);
+        blackhole.consume(BookingRepositoryCustomImpl.stateFilter(query.state()));
+    }
+
+    @Benchmark
+    public void filterSwitchOnly(Blackhole blackhole) {
+        blackhole.consume(BookingRepositoryCustomImpl.stateFilter(State.values()[next++ % PARAMETERS.length]));
+    }
+}
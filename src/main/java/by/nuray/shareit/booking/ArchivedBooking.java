@@ -0,0 +1,28 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of a booking archive segment. Carries the owner id, since the item it was
+ * resolved through may have changed hands by the time the archive is read.
+ */
+public record ArchivedBooking(int id, LocalDateTime start, LocalDateTime end,
+                              int itemId, int bookerId, int ownerId, Status status) {
+
+    boolean matches(BookingQuery query) {
+        int userId = query.perspective() == BookingQuery.Perspective.BOOKER ? bookerId : ownerId;
+        if (userId != query.userId()) {
+            return false;
+        }
+        // only finished bookings are archived, so every row is in the PAST phase
+        return switch (query.state()) {
+            case ALL, PAST -> true;
+            case WAITING, REJECTED -> status == Status.valueOf(query.state().name());
+            default -> false;
+        };
+    }
+
+    BookingDTO toDto() {
+        return new BookingDTO(id, start, end, itemId, bookerId, status);
+    }
+}
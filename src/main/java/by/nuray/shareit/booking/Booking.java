@@ -5,14 +5,29 @@ import by.nuray.shareit.user.User;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_booker_start", columnList = "booker_id, start_date, id"),
+        @Index(name = "idx_bookings_item_start", columnList = "item_id, start_date, id"),
+        @Index(name = "idx_bookings_status_start", columnList = "status, start_date"),
+        @Index(name = "idx_bookings_booker_phase", columnList = "booker_id, phase, start_date, id"),
+        @Index(name = "idx_bookings_item_phase", columnList = "item_id, phase, start_date, id"),
+        @Index(name = "idx_bookings_phase_start", columnList = "phase, start_date"),
+        @Index(name = "idx_bookings_phase_end", columnList = "phase, end_date")
+})
+@NamedEntityGraph(name = Booking.WITH_ITEM, attributeNodes = @NamedAttributeNode("item"))
+@EntityListeners(BookingStatusListener.class)
 @Getter
 @Setter
 public class Booking {
+
+    // associations are lazy; reads that look past the foreign keys ask for this graph
+    public static final String WITH_ITEM = "Booking.withItem";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
@@ -24,11 +39,11 @@ public class Booking {
     @Column(name = "end_date",nullable = false)
     private LocalDateTime end;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id", nullable = false)
     private Item item;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn (name="booker_id", nullable = false)
     private User booker;
 
@@ -36,5 +51,25 @@ public class Booking {
     @Column(name = "status", nullable = false)
     private Status status;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "phase")
+    private Phase phase;
+
+    // bumped by every status change, so a stale entity cannot overwrite a newer transition
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // status as last read from or written to the database, for counter bookkeeping
+    @Transient
+    private Status persistedStatus;
+
+    @PrePersist
+    void assignPhase() {
+        if (phase == null) {
+            phase = Phase.of(start, end, LocalDateTime.now());
+        }
+    }
 
 }
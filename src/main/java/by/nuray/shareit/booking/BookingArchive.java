@@ -0,0 +1,266 @@
+package by.nuray.shareit.booking;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for finished bookings: one gzip-compressed NDJSON segment per start month.
+ * {@link BookingArchiver} moves PAST bookings out of the {@code bookings} table into the
+ * segments, and the list and export reads merge them back in through a {@link Reader}.
+ */
+@Component
+public class BookingArchive {
+
+    // list order of the booking endpoints: start, then id, both descending
+    static final Comparator<BookingDTO> LIST_ORDER =
+            Comparator.comparing(BookingDTO::getStart).thenComparingInt(BookingDTO::getId).reversed();
+
+    private static final Pattern SEGMENT = Pattern.compile("bookings-(\\d{4}-\\d{2})\\.ndjson\\.gz");
+
+    private static final String OLDEST_PAST = "SELECT MIN(start_date) FROM bookings WHERE phase = 'PAST'";
+
+    // FOR UPDATE keeps a late approve/cancel from landing on a row that is on its way out
+    private static final String LOCK_MONTH =
+            "SELECT id, start_date, end_date, item_id, booker_id, " +
+                    "(SELECT i.owner_id FROM items i WHERE i.id = item_id), status FROM bookings " +
+                    "WHERE phase = 'PAST' AND start_date >= ? AND start_date < ? ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String DELETE_BOOKING = "DELETE FROM bookings WHERE id = ?";
+
+    // which segments each user appears in, so a read opens only those
+    private static final String ENSURE_MONTH =
+            "INSERT INTO booking_archive_months (user_id, role, archive_month) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String SELECT_MONTHS =
+            "SELECT archive_month FROM booking_archive_months WHERE user_id = ? AND role = ? AND archive_month <= ? " +
+                    "ORDER BY archive_month DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingCounters bookingCounters;
+    private final BookingRentals bookingRentals;
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+
+    private final NavigableSet<YearMonth> segments = new ConcurrentSkipListSet<>();
+
+    public BookingArchive(JdbcTemplate jdbcTemplate, BookingCounters bookingCounters, BookingRentals bookingRentals,
+                          ObjectMapper objectMapper, @Value("${shareit.booking.archive.dir:archive}") Path dir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookingCounters = bookingCounters;
+        this.bookingRentals = bookingRentals;
+        this.objectMapper = objectMapper;
+        this.dir = dir;
+    }
+
+    @PostConstruct
+    public void scanSegments() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> SEGMENT.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .forEach(matcher -> segments.add(YearMonth.parse(matcher.group(1))));
+        }
+    }
+
+    /**
+     * Every archived booking started before the returned time; {@code null} while the archive is empty.
+     */
+    public LocalDateTime archivedBefore() {
+        return segments.isEmpty() ? null : segments.last().plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    public Optional<YearMonth> oldestArchivableMonth() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(OLDEST_PAST, LocalDateTime.class))
+                .map(YearMonth::from);
+    }
+
+    /**
+     * Moves up to {@code batchSize} PAST bookings that started in {@code month} into its segment.
+     * The segment grows by one gzip member, which is cut off again if the transaction rolls back.
+     *
+     * @return number of bookings archived
+     */
+    @Transactional
+    public int archive(YearMonth month, int batchSize) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        List<ArchivedBooking> bookings = jdbcTemplate.query(LOCK_MONTH, (rs, rowNum) -> new ArchivedBooking(
+                rs.getInt(1),
+                rs.getObject(2, LocalDateTime.class),
+                rs.getObject(3, LocalDateTime.class),
+                rs.getInt(4),
+                rs.getInt(5),
+                rs.getInt(6),
+                Status.valueOf(rs.getString(7))), Timestamp.valueOf(from), Timestamp.valueOf(from.plusMonths(1)), batchSize);
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        Path segment = segment(month);
+        long length = append(segment, bookings);
+        segments.add(month);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    truncate(segment, length);
+                }
+            }
+        });
+
+        recordMonth(month, bookings);
+        bookingRentals.recordArchived(bookings);
+        List<Object[]> ids = new ArrayList<>(bookings.size());
+        bookings.forEach(booking -> ids.add(new Object[]{booking.id()}));
+        jdbcTemplate.batchUpdate(DELETE_BOOKING, ids);
+        bookingCounters.recordArchived(bookings);
+        return bookings.size();
+    }
+
+    /**
+     * Opens the archived bookings matching {@code query} (paging fields ignored, cursor honoured), in list order.
+     */
+    public Reader open(BookingQuery query) {
+        return new Reader(query);
+    }
+
+
+    private void recordMonth(YearMonth month, List<ArchivedBooking> bookings) {
+        Set<List<Object>> rows = new LinkedHashSet<>();
+        for (ArchivedBooking booking : bookings) {
+            rows.add(List.of(booking.bookerId(), BookingQuery.Perspective.BOOKER.name(), month.toString()));
+            rows.add(List.of(booking.ownerId(), BookingQuery.Perspective.OWNER.name(), month.toString()));
+        }
+        jdbcTemplate.batchUpdate(ENSURE_MONTH, rows.stream().map(List::toArray).toList());
+    }
+
+    private Path segment(YearMonth month) {
+        return dir.resolve("bookings-" + month + ".ndjson.gz");
+    }
+
+    private synchronized long append(Path segment, List<ArchivedBooking> bookings) {
+        try {
+            Files.createDirectories(dir);
+            long length = Files.exists(segment) ? Files.size(segment) : 0;
+            // every call adds a complete gzip member; GZIPInputStream reads concatenated members as one stream
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                    Files.newOutputStream(segment, StandardOpenOption.CREATE, StandardOpenOption.APPEND)),
+                    StandardCharsets.UTF_8))) {
+                for (ArchivedBooking booking : bookings) {
+                    writer.write(objectMapper.writeValueAsString(booking));
+                    writer.write('\n');
+                }
+            }
+            return length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void truncate(Path segment, long length) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<BookingDTO> load(YearMonth month, BookingQuery query) {
+        Path segment = segment(month);
+        if (!Files.exists(segment)) {
+            return List.of();
+        }
+        BookingCursor cursor = query.cursor();
+        // a retried batch can leave a row in the segment twice
+        Map<Integer, BookingDTO> matching = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ArchivedBooking booking = objectMapper.readValue(line, ArchivedBooking.class);
+                if (booking.matches(query) && (cursor == null || booking.start().isBefore(cursor.start())
+                        || booking.start().isEqual(cursor.start()) && booking.id() < cursor.id())) {
+                    matching.put(booking.id(), booking.toDto());
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt booking archive segment " + segment, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<BookingDTO> bookings = new ArrayList<>(matching.values());
+        bookings.sort(LIST_ORDER);
+        return bookings;
+    }
+
+
+    /**
+     * Walks the segments the user appears in newest first, decompressing one month at a time,
+     * so it can be merged behind a hot read that is already in list order.
+     */
+    public final class Reader {
+
+        private final BookingQuery query;
+        private final Iterator<YearMonth> months;
+        private final Deque<BookingDTO> buffered = new ArrayDeque<>();
+
+        private Reader(BookingQuery query) {
+            this.query = query;
+            if (query.state() == State.CURRENT || query.state() == State.FUTURE || segments.isEmpty()) {
+                this.months = Collections.emptyIterator();
+            } else {
+                // months that begin after the cursor hold nothing past it
+                YearMonth last = query.cursor() == null ? segments.last() : YearMonth.from(query.cursor().start());
+                this.months = jdbcTemplate.queryForList(SELECT_MONTHS, String.class,
+                                query.userId(), query.perspective().name(), last.toString()).stream()
+                        .map(YearMonth::parse)
+                        .iterator();
+            }
+        }
+
+        /**
+         * Passes on, in list order, at most {@code limit} archived bookings that sort ahead of
+         * {@code next}, or ahead of everything when {@code next} is {@code null}.
+         */
+        public void emitBefore(BookingDTO next, int limit, Consumer<BookingDTO> sink) {
+            for (int emitted = 0; emitted < limit; emitted++) {
+                BookingDTO head = peek();
+                if (head == null || next != null && LIST_ORDER.compare(head, next) >= 0) {
+                    return;
+                }
+                sink.accept(buffered.removeFirst());
+            }
+        }
+
+        private BookingDTO peek() {
+            while (buffered.isEmpty() && months.hasNext()) {
+                buffered.addAll(load(months.next(), query));
+            }
+            return buffered.peekFirst();
+        }
+    }
+}
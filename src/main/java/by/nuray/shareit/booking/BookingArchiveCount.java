@@ -0,0 +1,22 @@
+package by.nuray.shareit.booking;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Number of archived bookings in one status for one user. Lets {@link BookingCounters}
+ * recount and the PAST tab count include bookings that no longer live in the bookings table.
+ */
+@Entity
+@Table(name = "booking_archive_counts")
+@Getter
+@Setter
+public class BookingArchiveCount {
+
+    @EmbeddedId
+    private BookingCounter.Key key;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+}
@@ -0,0 +1,56 @@
+package by.nuray.shareit.booking;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A month whose archive segment holds bookings of one user, seen either as booker or as item owner.
+ * Lets a {@link BookingArchive.Reader} open only the segments the user appears in.
+ */
+@Entity
+@Table(name = "booking_archive_months")
+@Getter
+@Setter
+public class BookingArchiveMonth {
+
+    @EmbeddedId
+    private Key key;
+
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class Key implements Serializable {
+
+        @Column(name = "user_id")
+        private int userId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "role", length = 16)
+        private BookingQuery.Perspective role;
+
+        // yyyy-MM, which sorts like the months themselves
+        @Column(name = "archive_month", length = 7)
+        private String month;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return userId == key.userId && role == key.role && Objects.equals(month, key.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, role, month);
+        }
+    }
+}
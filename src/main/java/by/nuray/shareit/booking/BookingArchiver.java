@@ -0,0 +1,44 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.Optional;
+
+/**
+ * Moves finished bookings that started before the hot window into the archive, month by
+ * month, one bounded batch per transaction. Meant to run on a single node.
+ */
+@Component
+public class BookingArchiver {
+
+    private final BookingArchive bookingArchive;
+    private final int hotMonths;
+    private final int batchSize;
+
+    public BookingArchiver(BookingArchive bookingArchive,
+                           @Value("${shareit.booking.archive.hot-months:12}") int hotMonths,
+                           @Value("${shareit.booking.archive.batch-size:1000}") int batchSize) {
+        this.bookingArchive = bookingArchive;
+        this.hotMonths = hotMonths;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${shareit.booking.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        YearMonth horizon = YearMonth.now().minusMonths(hotMonths);
+        Optional<YearMonth> oldest = bookingArchive.oldestArchivableMonth();
+        if (oldest.isEmpty()) {
+            return;
+        }
+
+        for (YearMonth month = oldest.get(); month.isBefore(horizon); month = month.plusMonths(1)) {
+            int archived;
+            do {
+                archived = bookingArchive.archive(month, batchSize);
+            } while (archived == batchSize);
+        }
+    }
+}
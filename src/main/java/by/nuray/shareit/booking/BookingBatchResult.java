@@ -0,0 +1,19 @@
+package by.nuray.shareit.booking;
+
+/**
+ * Outcome of one entry of a batch: either the created booking or the reason it was refused.
+ */
+public record BookingBatchResult(int index, Booking booking, String error) {
+
+    public static BookingBatchResult created(int index, Booking booking) {
+        return new BookingBatchResult(index, booking, null);
+    }
+
+    public static BookingBatchResult failed(int index, String error) {
+        return new BookingBatchResult(index, null, error);
+    }
+
+    public boolean isCreated() {
+        return booking != null;
+    }
+}
@@ -0,0 +1,18 @@
+package by.nuray.shareit.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class BookingBatchResultDTO {
+
+    private int index;
+    private BookingDTO booking;
+    private String error;
+
+    public BookingBatchResultDTO() {
+    }
+}
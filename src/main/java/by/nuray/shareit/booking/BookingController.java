@@ -1,14 +1,22 @@
 package by.nuray.shareit.booking;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,12 +25,18 @@ import java.util.stream.Collectors;
 @RequestMapping("/bookings")
 public class BookingController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String CSV_HEADER = "id,start,end,itemId,bookerId,status";
+
     private final BookingService bookingService;
-    private final ModelMapper modelMapper;
+    private final BookingMapper bookingMapper;
+    private final ObjectMapper objectMapper;
 
-    public BookingController(BookingService bookingService, ModelMapper modelMapper) {
+    public BookingController(BookingService bookingService, BookingMapper bookingMapper, ObjectMapper objectMapper) {
         this.bookingService = bookingService;
-        this.modelMapper = modelMapper;
+        this.bookingMapper = bookingMapper;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -38,11 +52,92 @@ public class BookingController {
                             .collect(Collectors.toList()));
         }
 
-        Booking booking = modelMapper.map(bookingDTO, Booking.class);
+        Booking booking = bookingMapper.toEntity(bookingDTO);
         bookingService.createBooking(booking, bookerId, bookingDTO.getItemId());
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(modelMapper.map(booking, BookingDTO.class));
+                .body(bookingMapper.toDto(booking));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BookingBatchResultDTO>> createBookings(
+            @RequestBody List<BookingDTO> bookingDTOs,
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        List<BookingBatchResult> results = bookingService.createBookings(bookerId, bookingDTOs.stream()
+                .map(BookingRequest::of)
+                .collect(Collectors.toList()));
+
+        return ResponseEntity.ok(results.stream()
+                .map(r -> new BookingBatchResultDTO(r.index(),
+                        r.isCreated() ? bookingMapper.toDto(r.booking()) : null,
+                        r.error()))
+                .collect(Collectors.toList()));
+    }
+
+    @PostMapping("/cart")
+    public ResponseEntity<List<BookingDTO>> createCart(
+            @RequestBody List<BookingDTO> bookingDTOs,
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        List<Booking> bookings = bookingService.createCart(bookerId, bookingDTOs.stream()
+                .map(BookingRequest::of)
+                .collect(Collectors.toList()));
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(bookings.stream()
+                        .map(bookingMapper::toDto)
+                        .collect(Collectors.toList()));
+    }
+
+    @PostMapping("/waitlist")
+    public ResponseEntity<?> joinWaitlist(
+            @RequestBody @Valid BookingDTO bookingDTO,
+            BindingResult bindingResult,
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest()
+                    .body(bindingResult.getAllErrors().stream()
+                            .map(ObjectError::getDefaultMessage)
+                            .collect(Collectors.toList()));
+        }
+
+        BookingWaitlistResult result = bookingService.joinWaitlist(bookingMapper.toEntity(bookingDTO), bookerId,
+                bookingDTO.getItemId());
+        if (result.isBooked()) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(bookingMapper.toDto(result.booking()));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(result.entry());
+    }
+
+    @DeleteMapping("/waitlist/{entryId}")
+    public ResponseEntity<Void> leaveWaitlist(
+            @PathVariable("entryId") int entryId,
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        bookingService.leaveWaitlist(entryId, bookerId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/holds/{holdId}")
+    public ResponseEntity<BookingDTO> confirmHold(
+            @PathVariable("holdId") int holdId,
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(bookingMapper.toDto(bookingService.confirmHold(holdId, bookerId)));
+    }
+
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(
+            @PathVariable("holdId") int holdId,
+            @RequestHeader("X-Sharer-User-Id") int userId) {
+
+        bookingService.releaseHold(holdId, userId);
+        return ResponseEntity.noContent().build();
     }
 
     @PatchMapping("/cancel/{id}")
@@ -51,7 +146,7 @@ public class BookingController {
             @RequestHeader("X-Sharer-User-Id") int bookerId) {
 
         Booking cancelledBooking = bookingService.cancelBooking(bookingId, bookerId);
-        return ResponseEntity.ok(modelMapper.map(cancelledBooking, BookingDTO.class));
+        return ResponseEntity.ok(bookingMapper.toDto(cancelledBooking));
     }
 
     @PatchMapping("/{id}")
@@ -61,33 +156,86 @@ public class BookingController {
             @RequestParam boolean updatedStatus) {
 
         Booking updatedBooking = bookingService.updateBookingStatus(id, updatedStatus, ownerId);
-        return ResponseEntity.ok(modelMapper.map(updatedBooking, BookingDTO.class));
+        return ResponseEntity.ok(bookingMapper.toDto(updatedBooking));
+    }
+
+    @PatchMapping("/cancel/bulk")
+    public ResponseEntity<BookingTransitionResult> cancelBookings(
+            @RequestBody List<Integer> bookingIds,
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        return ResponseEntity.ok(bookingService.cancelBookings(bookingIds, bookerId));
+    }
+
+    @PatchMapping("/bulk")
+    public ResponseEntity<BookingTransitionResult> updateBookings(
+            @RequestBody List<Integer> bookingIds,
+            @RequestHeader("X-Sharer-User-Id") int ownerId,
+            @RequestParam boolean updatedStatus) {
+
+        return ResponseEntity.ok(bookingService.updateBookingStatuses(bookingIds, updatedStatus, ownerId));
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<BookingCounts> getBookingCountsByBooker(
+            @RequestHeader("X-Sharer-User-Id") int bookerId) {
+
+        return ResponseEntity.ok(bookingService.getBookingCountsByBooker(bookerId));
+    }
+
+    @GetMapping("/owner/counts")
+    public ResponseEntity<BookingCounts> getBookingCountsByOwner(
+            @RequestHeader("X-Sharer-User-Id") int ownerId) {
+
+        return ResponseEntity.ok(bookingService.getBookingCountsByOwner(ownerId));
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwner(
+            @RequestHeader("X-Sharer-User-Id") int ownerId,
+            @RequestParam(defaultValue = "ALL") State state,
+            @RequestParam(defaultValue = "NDJSON") BookingExportFormat format) {
+
+        return toStream(bookingService.exportBookingsByOwner(ownerId, state), format);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByBooker(
+            @RequestHeader("X-Sharer-User-Id") int bookerId,
+            @RequestParam(defaultValue = "ALL") State state,
+            @RequestParam(defaultValue = "NDJSON") BookingExportFormat format) {
+
+        return toStream(bookingService.exportBookingsByBooker(bookerId, state), format);
     }
 
     @GetMapping("/owner")
-    public List<BookingDTO> getBookingByOwner(
+    public ResponseEntity<List<BookingDTO>> getBookingByOwner(
             @RequestHeader("X-Sharer-User-Id") int ownerId,
             @RequestParam(value = "state", defaultValue = "ALL") State state,
             @RequestParam(defaultValue = "0") int from,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
+
+        List<BookingDTO> bookings = cursor == null
+                ? bookingService.getBookingsByOwner(ownerId, state, from, size)
+                : bookingService.getBookingsByOwner(ownerId, state, BookingCursor.decode(cursor), size);
 
-        return bookingService.getBookingsByOwner(ownerId, state, from, size)
-                .stream()
-                .map(b -> modelMapper.map(b, BookingDTO.class))
-                .collect(Collectors.toList());
+        return toPage(bookings, size);
     }
 
     @GetMapping()
-    public List<BookingDTO> getBookingByBooker(
+    public ResponseEntity<List<BookingDTO>> getBookingByBooker(
             @RequestHeader("X-Sharer-User-Id") int bookerId,
             @RequestParam(defaultValue = "ALL") State state,
             @RequestParam(defaultValue = "0") int from,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
 
-        return bookingService.getBookingsByBooker(bookerId, state, from, size)
-                .stream()
-                .map(b -> modelMapper.map(b, BookingDTO.class))
-                .collect(Collectors.toList());
+        List<BookingDTO> bookings = cursor == null
+                ? bookingService.getBookingsByBooker(bookerId, state, from, size)
+                : bookingService.getBookingsByBooker(bookerId, state, BookingCursor.decode(cursor), size);
+
+        return toPage(bookings, size);
     }
 
 
@@ -97,9 +245,49 @@ public class BookingController {
             @RequestHeader("X-Sharer-User-Id") int userId) {  // Добавлен userId
 
         Booking booking = bookingService.getBookingById(bookingId, userId);
-        return ResponseEntity.ok(modelMapper.map(booking, BookingDTO.class));
+        return ResponseEntity.ok(bookingMapper.toDto(booking));
     }
-}
 
 
+    private ResponseEntity<StreamingResponseBody> toStream(BookingExport export, BookingExportFormat format) {
+        // each row goes straight from the result set to the socket; nothing is collected in between
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (format == BookingExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            export.writeTo(booking -> {
+                try {
+                    writer.write(format == BookingExportFormat.CSV
+                            ? toCsvLine(booking)
+                            : objectMapper.writeValueAsString(booking));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
 
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
+    }
+
+    private String toCsvLine(BookingDTO booking) {
+        return booking.getId() + "," + booking.getStart() + "," + booking.getEnd() + ","
+                + booking.getItemId() + "," + booking.getBookerId() + "," + booking.getStatus();
+    }
+
+    private ResponseEntity<List<BookingDTO>> toPage(List<BookingDTO> bookings, int size) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        // a full page may have a successor, so hand out the position to seek from
+        if (!bookings.isEmpty() && bookings.size() == size) {
+            response.header(NEXT_CURSOR_HEADER, BookingCursor.after(bookings.get(bookings.size() - 1)).encode());
+        }
+
+        return response.body(bookings);
+    }
+}
@@ -0,0 +1,59 @@
+package by.nuray.shareit.booking;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Number of bookings in one status for one user, seen either as booker or as item owner.
+ * Kept in step with the bookings table by {@link BookingCounters}.
+ */
+@Entity
+@Table(name = "booking_counters")
+@Getter
+@Setter
+public class BookingCounter {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class Key implements Serializable {
+
+        @Column(name = "user_id")
+        private int userId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "role", length = 16)
+        private BookingQuery.Perspective role;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "status", length = 16)
+        private Status status;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return userId == key.userId && role == key.role && status == key.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, role, status);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically recounts bookings and repairs booking counters that drifted, e.g. after
+ * rows were edited by hand or written before the counters existed.
+ */
+@Component
+public class BookingCounterReconciler {
+
+    private final BookingCounters bookingCounters;
+
+    public BookingCounterReconciler(BookingCounters bookingCounters) {
+        this.bookingCounters = bookingCounters;
+    }
+
+    @Scheduled(initialDelayString = "${shareit.booking.counters.reconcile-initial-delay:60000}",
+            fixedDelayString = "${shareit.booking.counters.reconcile-delay:3600000}")
+    public void reconcile() {
+        bookingCounters.reconcile();
+    }
+}
@@ -0,0 +1,210 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Per-user, per-status booking counters behind the count badges. Every write path
+ * calls in from inside its own transaction, so a counter moves together with the
+ * booking row it describes; {@link #reconcile()} repairs anything that slipped.
+ */
+@Component
+public class BookingCounters {
+
+    // create the row if missing, then bump it; both statements are safe under concurrent writers
+    private static final String ENSURE_ROW =
+            "INSERT INTO booking_counters (user_id, role, status, total) VALUES (?, ?, ?, 0) ON CONFLICT DO NOTHING";
+    private static final String ADD_TO_ROW =
+            "UPDATE booking_counters SET total = total + ? WHERE user_id = ? AND role = ? AND status = ?";
+    private static final String SET_ROW =
+            "UPDATE booking_counters SET total = ? WHERE user_id = ? AND role = ? AND status = ?";
+
+    // archived bookings stay in booking_counters; these rows remember them for recounts and the PAST tab
+    private static final String ENSURE_ARCHIVED_ROW =
+            "INSERT INTO booking_archive_counts (user_id, role, status, total) VALUES (?, ?, ?, 0) ON CONFLICT DO NOTHING";
+    private static final String ADD_TO_ARCHIVED_ROW =
+            "UPDATE booking_archive_counts SET total = total + ? WHERE user_id = ? AND role = ? AND status = ?";
+    private static final String SUM_ARCHIVED_FOR_USER =
+            "SELECT COALESCE(SUM(total), 0) FROM booking_archive_counts WHERE user_id = ? AND role = ?";
+    private static final String SUM_ARCHIVED_FOR_USER_IN_STATUS =
+            "SELECT COALESCE(SUM(total), 0) FROM booking_archive_counts WHERE user_id = ? AND role = ? AND status = ?";
+
+    private static final String SELECT_FOR_USER =
+            "SELECT status, total FROM booking_counters WHERE user_id = ? AND role = ?";
+    // same order as CounterKey.ORDER, the order every writer locks its rows in
+    private static final String LOCK_ALL =
+            "SELECT user_id, role, status, total FROM booking_counters ORDER BY user_id, role, status FOR UPDATE";
+    private static final String ENSURE_BOOKER_ROWS =
+            "INSERT INTO booking_counters (user_id, role, status, total) " +
+                    "SELECT DISTINCT booker_id, 'BOOKER', status, 0 FROM bookings ON CONFLICT DO NOTHING";
+    private static final String ENSURE_OWNER_ROWS =
+            "INSERT INTO booking_counters (user_id, role, status, total) " +
+                    "SELECT DISTINCT i.owner_id, 'OWNER', b.status, 0 FROM bookings b JOIN items i ON i.id = b.item_id " +
+                    "ON CONFLICT DO NOTHING";
+    // a single statement, so a single snapshot: a booking archived meanwhile is counted exactly once
+    private static final String COUNT_ALL =
+            "SELECT user_id, role, status, SUM(total) FROM (" +
+                    "SELECT booker_id AS user_id, 'BOOKER' AS role, status, COUNT(*) AS total FROM bookings " +
+                    "GROUP BY booker_id, status " +
+                    "UNION ALL SELECT i.owner_id, 'OWNER', b.status, COUNT(*) FROM bookings b " +
+                    "JOIN items i ON i.id = b.item_id GROUP BY i.owner_id, b.status " +
+                    "UNION ALL SELECT user_id, role, status, total FROM booking_archive_counts" +
+                    ") c GROUP BY user_id, role, status";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookingCounters(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void recordCreated(Collection<Booking> bookings) {
+        Map<CounterKey, Long> deltas = new HashMap<>();
+        for (Booking booking : bookings) {
+            collect(deltas, booking.getBooker().getId(), booking.getItem().getOwner().getId(), booking.getStatus(), 1);
+        }
+        apply(deltas);
+    }
+
+    @Transactional
+    public void recordTransition(int bookerId, int ownerId, Status from, Status to) {
+        if (from == to) {
+            return;
+        }
+        Map<CounterKey, Long> deltas = new HashMap<>();
+        collect(deltas, bookerId, ownerId, from, -1);
+        collect(deltas, bookerId, ownerId, to, 1);
+        apply(deltas);
+    }
+
+    @Transactional
+    public void recordTransitions(Collection<BookingParties> bookings, Status from, Status to) {
+        Map<CounterKey, Long> deltas = new HashMap<>();
+        for (BookingParties booking : bookings) {
+            collect(deltas, booking.bookerId(), booking.ownerId(), from, -1);
+            collect(deltas, booking.bookerId(), booking.ownerId(), to, 1);
+        }
+        apply(deltas);
+    }
+
+    @Transactional
+    public void recordArchived(Collection<ArchivedBooking> bookings) {
+        Map<CounterKey, Long> deltas = new HashMap<>();
+        for (ArchivedBooking booking : bookings) {
+            collect(deltas, booking.bookerId(), booking.ownerId(), booking.status(), 1);
+        }
+        apply(deltas, ENSURE_ARCHIVED_ROW, ADD_TO_ARCHIVED_ROW);
+    }
+
+    public Map<Status, Long> countsFor(int userId, BookingQuery.Perspective role) {
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        jdbcTemplate.query(SELECT_FOR_USER,
+                rs -> {
+                    counts.put(Status.valueOf(rs.getString(1)), rs.getLong(2));
+                },
+                userId, role.name());
+        return counts;
+    }
+
+    /**
+     * Number of bookings of the user that have been moved to the archive, all of them PAST.
+     */
+    public long archivedFor(int userId, BookingQuery.Perspective role) {
+        Long archived = jdbcTemplate.queryForObject(SUM_ARCHIVED_FOR_USER, Long.class, userId, role.name());
+        return archived == null ? 0 : archived;
+    }
+
+    /**
+     * Number of archived bookings a list read for {@code query} could return, paging and cursor aside.
+     */
+    public long archivedMatching(BookingQuery query) {
+        Long archived = switch (query.state()) {
+            case ALL, PAST -> jdbcTemplate.queryForObject(SUM_ARCHIVED_FOR_USER, Long.class,
+                    query.userId(), query.perspective().name());
+            case WAITING, REJECTED -> jdbcTemplate.queryForObject(SUM_ARCHIVED_FOR_USER_IN_STATUS, Long.class,
+                    query.userId(), query.perspective().name(), query.state().name());
+            // only finished bookings are archived
+            default -> 0L;
+        };
+        return archived == null ? 0 : archived;
+    }
+
+    /**
+     * Recounts bookings per user and status, archived ones included, and overwrites every counter that drifted.
+     * The counter rows are created where missing and locked before anything is counted. A writer that has
+     * not committed yet then waits on its counter row until the repair commits, and adds its delta on top
+     * of the repaired value instead of being overwritten by it.
+     */
+    @Transactional
+    public int reconcile() {
+        jdbcTemplate.update(ENSURE_BOOKER_ROWS);
+        jdbcTemplate.update(ENSURE_OWNER_ROWS);
+        Map<CounterKey, Long> stored = new HashMap<>();
+        jdbcTemplate.query(LOCK_ALL, rs -> {
+            stored.put(new CounterKey(rs.getInt(1), BookingQuery.Perspective.valueOf(rs.getString(2)),
+                    Status.valueOf(rs.getString(3))), rs.getLong(4));
+        });
+
+        Map<CounterKey, Long> actual = new HashMap<>();
+        jdbcTemplate.query(COUNT_ALL, rs -> {
+            actual.put(new CounterKey(rs.getInt(1), BookingQuery.Perspective.valueOf(rs.getString(2)),
+                    Status.valueOf(rs.getString(3))), rs.getLong(4));
+        });
+
+        Set<CounterKey> keys = new HashSet<>(actual.keySet());
+        keys.addAll(stored.keySet());
+
+        int repaired = 0;
+        for (CounterKey key : keys) {
+            long expected = actual.getOrDefault(key, 0L);
+            Long current = stored.get(key);
+            if (current != null && current == expected) {
+                continue;
+            }
+            if (current == null) {
+                ensureRow(key);
+            }
+            jdbcTemplate.update(SET_ROW, expected, key.userId(), key.role().name(), key.status().name());
+            repaired++;
+        }
+        return repaired;
+    }
+
+
+    private void collect(Map<CounterKey, Long> deltas, int bookerId, int ownerId, Status status, long delta) {
+        deltas.merge(new CounterKey(bookerId, BookingQuery.Perspective.BOOKER, status), delta, Long::sum);
+        deltas.merge(new CounterKey(ownerId, BookingQuery.Perspective.OWNER, status), delta, Long::sum);
+    }
+
+    private void apply(Map<CounterKey, Long> deltas) {
+        apply(deltas, ENSURE_ROW, ADD_TO_ROW);
+    }
+
+    private void apply(Map<CounterKey, Long> deltas, String ensureRow, String addToRow) {
+        // fixed order, so two transactions touching the same rows cannot deadlock
+        deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(CounterKey.ORDER))
+                .forEach(e -> {
+                    CounterKey key = e.getKey();
+                    jdbcTemplate.update(ensureRow, key.userId(), key.role().name(), key.status().name());
+                    jdbcTemplate.update(addToRow, e.getValue(), key.userId(), key.role().name(), key.status().name());
+                });
+    }
+
+    private void ensureRow(CounterKey key) {
+        jdbcTemplate.update(ENSURE_ROW, key.userId(), key.role().name(), key.status().name());
+    }
+
+
+    private record CounterKey(int userId, BookingQuery.Perspective role, Status status) {
+
+        // by name, as the database sorts them, so reconcile locks rows in the writers' order
+        static final Comparator<CounterKey> ORDER = Comparator.comparingInt(CounterKey::userId)
+                .thenComparing(key -> key.role().name())
+                .thenComparing(key -> key.status().name());
+    }
+}
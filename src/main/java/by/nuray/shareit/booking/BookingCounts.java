@@ -0,0 +1,30 @@
+package by.nuray.shareit.booking;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Number of bookings behind each {@link State} tab of a booker or owner.
+ */
+public record BookingCounts(long all, long current, long past, long future, long waiting, long rejected) {
+
+    public static BookingCounts of(Map<Status, Long> byStatus, List<PhaseCount> byPhase) {
+        long current = 0;
+        long past = 0;
+        long future = 0;
+        for (PhaseCount count : byPhase) {
+            if (count.phase() == null) {
+                continue;
+            }
+            switch (count.phase()) {
+                case CURRENT -> current += count.count();
+                case PAST -> past += count.count();
+                case FUTURE -> future += count.count();
+            }
+        }
+        long all = byStatus.values().stream().mapToLong(Long::longValue).sum();
+
+        return new BookingCounts(all, current, past, future,
+                byStatus.getOrDefault(Status.WAITING, 0L), byStatus.getOrDefault(Status.REJECTED, 0L));
+    }
+}
@@ -0,0 +1,40 @@
+package by.nuray.shareit.booking;
+
+import by.nuray.shareit.util.BookingException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last booking of a page, ordered by (start, id) descending.
+ * Clients only see it as an opaque token.
+ */
+public record BookingCursor(LocalDateTime start, int id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static BookingCursor after(BookingDTO booking) {
+        return new BookingCursor(booking.getStart(), booking.getId());
+    }
+
+    public static BookingCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BookingException("Invalid cursor");
+            }
+            return new BookingCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Integer.parseInt(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BookingException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = start + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -22,6 +22,11 @@ public class BookingDTO {
     }
 
 
+    public BookingDTO(int id, LocalDateTime start, LocalDateTime end,
+                      int itemId, int bookerId, Status status) {
+        this(id, start, end, itemId, bookerId, status, null);
+    }
+
     public BookingDTO(int id, LocalDateTime start, LocalDateTime end,
                       int itemId, int bookerId, Status status, State state) {
         this.id = id;
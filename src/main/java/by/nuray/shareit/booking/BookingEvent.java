@@ -0,0 +1,16 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * A booking was created ({@code previousStatus} is null) or moved from one status to another.
+ * {@code id} grows with every event and lets consumers drop the duplicates an at-least-once
+ * relay can deliver.
+ */
+public record BookingEvent(long id, int bookingId, int bookerId, int ownerId,
+                           Status previousStatus, Status status, LocalDateTime occurredAt) {
+
+    public boolean isCreated() {
+        return previousStatus == null;
+    }
+}
@@ -0,0 +1,12 @@
+package by.nuray.shareit.booking;
+
+import java.util.List;
+
+/**
+ * Destination for relayed booking events. Throwing rolls the batch back into the outbox,
+ * so it is delivered again on the next relay run.
+ */
+public interface BookingEventSink {
+
+    void publish(List<BookingEvent> events);
+}
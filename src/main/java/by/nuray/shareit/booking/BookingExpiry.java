@@ -0,0 +1,83 @@
+package by.nuray.shareit.booking;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Expires WAITING bookings that were never decided before they started. Each booking's start
+ * is filed in a {@link TimingWheel} when it is created (and for every WAITING row on startup),
+ * so a tick only touches the bookings that are actually due, never the whole table.
+ * Bookings decided in the meantime are skipped by the status guard of the update.
+ */
+@Component
+public class BookingExpiry {
+
+    private final BookingRepository bookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final long tickMillis;
+    private final int batchSize;
+    private final TimingWheel wheel;
+
+    public BookingExpiry(BookingRepository bookingRepository, BookingIntervalIndex bookingIntervalIndex,
+                         @Value("${shareit.booking.expiry.tick:1000}") long tickMillis,
+                         @Value("${shareit.booking.expiry.batch-size:500}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel(Math.floorDiv(toMillis(LocalDateTime.now()), tickMillis));
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        bookingRepository.findWaitingSlots().forEach(slot -> track(slot.id(), slot.start()));
+    }
+
+    public void track(int bookingId, LocalDateTime start) {
+        // rounded up, so a booking is never expired before it starts
+        wheel.schedule(bookingId, Math.ceilDiv(toMillis(start), tickMillis));
+    }
+
+    public int pending() {
+        return wheel.size();
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.expiry.tick:1000}")
+    public void expireDue() {
+        expireDue(LocalDateTime.now());
+    }
+
+    /**
+     * @return number of bookings moved to EXPIRED
+     */
+    public int expireDue(LocalDateTime now) {
+        List<Integer> due = wheel.advance(Math.floorDiv(toMillis(now), tickMillis));
+        int expired = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Integer> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                for (BookingParties booking : bookingRepository.expireWaiting(batch, now)) {
+                    bookingIntervalIndex.updateStatus(booking.id(), Status.EXPIRED);
+                    expired++;
+                }
+            } catch (RuntimeException e) {
+                // already taken off the wheel; put the rest back so the next tick retries them
+                long retry = wheel.currentTick();
+                due.subList(from, due.size()).forEach(id -> wheel.schedule(id, retry));
+                throw e;
+            }
+        }
+        return expired;
+    }
+
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
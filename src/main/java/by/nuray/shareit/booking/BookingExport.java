@@ -0,0 +1,13 @@
+package by.nuray.shareit.booking;
+
+import java.util.function.Consumer;
+
+/**
+ * A booking history export that has been authorized but not yet read. Rows are pulled
+ * from the database only while {@link #writeTo} runs, one at a time.
+ */
+@FunctionalInterface
+public interface BookingExport {
+
+    void writeTo(Consumer<BookingDTO> sink);
+}
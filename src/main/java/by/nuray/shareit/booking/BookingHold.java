@@ -0,0 +1,19 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * A short reservation of [start, end) on an item for one user, kept in memory until it is
+ * confirmed into a booking, released, or reaches {@code expiresAt}.
+ */
+public record BookingHold(int id, int itemId, int userId, LocalDateTime start, LocalDateTime end,
+                          LocalDateTime expiresAt) {
+
+    boolean isExpired(LocalDateTime now) {
+        return !now.isBefore(expiresAt);
+    }
+
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return start.isBefore(to) && end.isAfter(from);
+    }
+}
@@ -0,0 +1,126 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory holds of this node. Placing, confirming and releasing happen under the item's
+ * {@link ItemLockStripes} lock, alongside the booking conflict check, so a hold and a booking
+ * can never both claim a range. An expired hold stops counting at once; a {@link TimingWheel}
+ * sweep reclaims its memory later, without a database round trip.
+ */
+@Component
+public class BookingHolds {
+
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final TimingWheel wheel;
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<Integer, BookingHold> holds = new ConcurrentHashMap<>();
+    // replaced rather than modified, so readers never see a list mid-update
+    private final Map<Integer, List<BookingHold>> holdsByItem = new ConcurrentHashMap<>();
+
+    public BookingHolds(@Value("${shareit.booking.holds.ttl:300000}") long ttlMillis,
+                        @Value("${shareit.booking.holds.tick:1000}") long tickMillis) {
+        this.ttlMillis = ttlMillis;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimingWheel(Math.floorDiv(toMillis(LocalDateTime.now()), tickMillis));
+    }
+
+    public BookingHold place(int itemId, int userId, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(ttlMillis * 1_000_000);
+        BookingHold hold = new BookingHold(ids.incrementAndGet(), itemId, userId, start, end, expiresAt);
+        add(hold);
+        wheel.schedule(hold.id(), Math.ceilDiv(toMillis(expiresAt), tickMillis));
+        return hold;
+    }
+
+    /**
+     * @return the hold, or {@code null} if it does not exist or has expired
+     */
+    public BookingHold find(int holdId) {
+        BookingHold hold = holds.get(holdId);
+        return hold == null || hold.isExpired(LocalDateTime.now()) ? null : hold;
+    }
+
+    /**
+     * Whether a live hold of another user overlaps [start, end) on the item.
+     */
+    public boolean conflicts(int itemId, LocalDateTime start, LocalDateTime end, int userId) {
+        LocalDateTime now = LocalDateTime.now();
+        for (BookingHold hold : holdsByItem.getOrDefault(itemId, List.of())) {
+            if (hold.userId() != userId && !hold.isExpired(now) && hold.overlaps(start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code false} if the hold was already gone
+     */
+    public boolean remove(BookingHold hold) {
+        if (!holds.remove(hold.id(), hold)) {
+            return false;
+        }
+        holdsByItem.computeIfPresent(hold.itemId(), (itemId, itemHolds) -> {
+            List<BookingHold> remaining = new ArrayList<>(itemHolds);
+            remaining.remove(hold);
+            return remaining.isEmpty() ? null : List.copyOf(remaining);
+        });
+        return true;
+    }
+
+    /**
+     * Puts back a hold taken by a confirmation that failed, unless it expired meanwhile.
+     */
+    public void restore(BookingHold hold) {
+        if (!hold.isExpired(LocalDateTime.now())) {
+            add(hold);
+        }
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    /**
+     * Called every tick by {@link BookingServiceImpl#sweepHolds}, which promotes the waitlists the holds were blocking.
+     *
+     * @return the expired holds dropped
+     */
+    public List<BookingHold> sweep(LocalDateTime now) {
+        List<BookingHold> dropped = new ArrayList<>();
+        for (int holdId : wheel.advance(Math.floorDiv(toMillis(now), tickMillis))) {
+            BookingHold hold = holds.get(holdId);
+            // confirmed and released holds are gone already
+            if (hold != null && hold.isExpired(now) && remove(hold)) {
+                dropped.add(hold);
+            }
+        }
+        return dropped;
+    }
+
+
+    private void add(BookingHold hold) {
+        holds.put(hold.id(), hold);
+        holdsByItem.merge(hold.itemId(), List.of(hold), (itemHolds, added) -> {
+            List<BookingHold> merged = new ArrayList<>(itemHolds);
+            merged.addAll(added);
+            return List.copyOf(merged);
+        });
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,368 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the WAITING and APPROVED bookings of every item that have not ended yet.
+ * Each item keeps its intervals sorted by start in primitive arrays, so an
+ * overlap check is a binary search instead of a query. Ended bookings are dropped by
+ * {@link #prune}, so the index stays the size of the live bookings, not of the history.
+ */
+@Component
+public class BookingIntervalIndex {
+
+    private final Map<Integer, ItemTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> itemByBooking = new ConcurrentHashMap<>();
+
+
+    public void load(Collection<BookingSlot> slots) {
+        timelines.clear();
+        itemByBooking.clear();
+        slots.forEach(this::add);
+    }
+
+    public void add(BookingSlot slot) {
+        if (!isActive(slot.status())) {
+            return;
+        }
+        Integer previousItem = itemByBooking.put(slot.id(), slot.itemId());
+        if (previousItem != null && previousItem != slot.itemId()) {
+            ItemTimeline previous = timelines.get(previousItem);
+            if (previous != null) {
+                previous.remove(slot.id());
+            }
+        }
+        // inside compute, so a concurrent prune cannot drop the timeline between lookup and put
+        timelines.compute(slot.itemId(), (itemId, timeline) -> {
+            ItemTimeline target = timeline != null ? timeline : new ItemTimeline();
+            target.put(toMicros(slot.start()), toMicros(slot.end()), slot.id(), slot.status());
+            return target;
+        });
+    }
+
+    /**
+     * Makes the index agree with the database over [start, end) of the given items: entries
+     * overlapping the window that are not among the stored active bookings are dropped, since
+     * they were decided elsewhere, and the stored ones are added.
+     */
+    public void refresh(Collection<Integer> itemIds, LocalDateTime start, LocalDateTime end,
+                        Collection<BookingSlot> stored) {
+        Set<Integer> storedIds = new HashSet<>();
+        stored.forEach(slot -> storedIds.add(slot.id()));
+        for (int itemId : itemIds) {
+            ItemTimeline timeline = timelines.get(itemId);
+            if (timeline == null) {
+                continue;
+            }
+            for (int bookingId : timeline.findOverlapping(toMicros(start), toMicros(end))) {
+                if (!storedIds.contains(bookingId)) {
+                    itemByBooking.remove(bookingId, itemId);
+                    timeline.remove(bookingId);
+                }
+            }
+        }
+        stored.forEach(this::add);
+    }
+
+    /**
+     * Drops every booking that ended at or before {@code now}; an ended booking can no longer
+     * conflict with anything that passes validation.
+     *
+     * @return number of bookings dropped
+     */
+    public int prune(LocalDateTime now) {
+        long nowMicros = toMicros(now);
+        int pruned = 0;
+        for (Integer itemId : timelines.keySet()) {
+            List<Integer> ended = new ArrayList<>();
+            timelines.computeIfPresent(itemId, (id, timeline) -> {
+                ended.addAll(timeline.removeEndedBy(nowMicros));
+                return timeline.isEmpty() ? null : timeline;
+            });
+            ended.forEach(itemByBooking::remove);
+            pruned += ended.size();
+        }
+        return pruned;
+    }
+
+    public void updateStatus(int bookingId, Status status) {
+        Integer itemId = itemByBooking.get(bookingId);
+        if (itemId == null) {
+            return;
+        }
+        ItemTimeline timeline = timelines.get(itemId);
+        if (timeline == null) {
+            itemByBooking.remove(bookingId);
+            return;
+        }
+        if (isActive(status)) {
+            timeline.setStatus(bookingId, status);
+        } else {
+            itemByBooking.remove(bookingId);
+            timeline.remove(bookingId);
+        }
+    }
+
+    /**
+     * @return the item of an indexed booking, or null if the booking is not active
+     */
+    public Integer itemOf(int bookingId) {
+        return itemByBooking.get(bookingId);
+    }
+
+    /**
+     * @return APPROVED if an approved booking overlaps the range, WAITING if only
+     * waiting ones do, or null if the range is free
+     */
+    public Status findConflict(int itemId, LocalDateTime start, LocalDateTime end) {
+        ItemTimeline timeline = timelines.get(itemId);
+        if (timeline == null) {
+            return null;
+        }
+        return timeline.findConflict(toMicros(start), toMicros(end));
+    }
+
+    /**
+     * Busy ranges of the item clipped to [from, to), with touching or overlapping
+     * bookings merged, in start order.
+     */
+    public List<TimeRange> findBusy(int itemId, LocalDateTime from, LocalDateTime to) {
+        ItemTimeline timeline = timelines.get(itemId);
+        if (timeline == null) {
+            return List.of();
+        }
+        long[] merged = timeline.findBusy(toMicros(from), toMicros(to));
+        List<TimeRange> busy = new ArrayList<>(merged.length / 2);
+        for (int i = 0; i < merged.length; i += 2) {
+            busy.add(new TimeRange(fromMicros(merged[i]), fromMicros(merged[i + 1])));
+        }
+        return busy;
+    }
+
+
+    private static boolean isActive(Status status) {
+        return status == Status.WAITING || status == Status.APPROVED;
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+
+    private static final class ItemTimeline {
+
+        private long[] starts = new long[4];
+        private long[] ends = new long[4];
+        // maxEnds[i] is the latest end among entries 0..i, so a backward scan can stop early
+        private long[] maxEnds = new long[4];
+        private int[] ids = new int[4];
+        private Status[] statuses = new Status[4];
+        private int size;
+        // start of every entry, so an id is found by binary search instead of a scan
+        private final Map<Integer, Long> startById = new HashMap<>();
+
+        synchronized void put(long start, long end, int id, Status status) {
+            remove(id);
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                maxEnds = Arrays.copyOf(maxEnds, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+            }
+            int pos = upperBound(start);
+            int tail = size - pos;
+            System.arraycopy(starts, pos, starts, pos + 1, tail);
+            System.arraycopy(ends, pos, ends, pos + 1, tail);
+            System.arraycopy(ids, pos, ids, pos + 1, tail);
+            System.arraycopy(statuses, pos, statuses, pos + 1, tail);
+            starts[pos] = start;
+            ends[pos] = end;
+            ids[pos] = id;
+            statuses[pos] = status;
+            size++;
+            startById.put(id, start);
+            recomputeMaxEnds(pos);
+        }
+
+        synchronized void remove(int id) {
+            int pos = indexOf(id);
+            if (pos < 0) {
+                return;
+            }
+            int tail = size - pos - 1;
+            System.arraycopy(starts, pos + 1, starts, pos, tail);
+            System.arraycopy(ends, pos + 1, ends, pos, tail);
+            System.arraycopy(ids, pos + 1, ids, pos, tail);
+            System.arraycopy(statuses, pos + 1, statuses, pos, tail);
+            size--;
+            statuses[size] = null;
+            startById.remove(id);
+            recomputeMaxEnds(pos);
+        }
+
+        // one compacting pass, whatever the number of ended entries
+        synchronized List<Integer> removeEndedBy(long now) {
+            List<Integer> ended = new ArrayList<>();
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (ends[i] <= now) {
+                    ended.add(ids[i]);
+                    startById.remove(ids[i]);
+                    continue;
+                }
+                starts[kept] = starts[i];
+                ends[kept] = ends[i];
+                ids[kept] = ids[i];
+                statuses[kept] = statuses[i];
+                kept++;
+            }
+            Arrays.fill(statuses, kept, size, null);
+            size = kept;
+            recomputeMaxEnds(0);
+            return ended;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        synchronized void setStatus(int id, Status status) {
+            int pos = indexOf(id);
+            if (pos >= 0) {
+                statuses[pos] = status;
+            }
+        }
+
+        synchronized Status findConflict(long start, long end) {
+            Status conflict = null;
+            for (int i = upperBound(end - 1) - 1; i >= 0 && maxEnds[i] > start; i--) {
+                if (ends[i] > start) {
+                    if (statuses[i] == Status.APPROVED) {
+                        return Status.APPROVED;
+                    }
+                    conflict = Status.WAITING;
+                }
+            }
+            return conflict;
+        }
+
+        synchronized List<Integer> findOverlapping(long start, long end) {
+            List<Integer> overlapping = new ArrayList<>();
+            for (int i = upperBound(end - 1) - 1; i >= 0 && maxEnds[i] > start; i--) {
+                if (ends[i] > start) {
+                    overlapping.add(ids[i]);
+                }
+            }
+            return overlapping;
+        }
+
+        // flattened [start, end) pairs; entries are sorted by start, so merging is one pass
+        synchronized long[] findBusy(long from, long to) {
+            long[] merged = new long[8];
+            int count = 0;
+            for (int i = firstEndingAfter(from), last = upperBound(to - 1); i < last; i++) {
+                if (ends[i] <= from) {
+                    continue;
+                }
+                long start = Math.max(starts[i], from);
+                long end = Math.min(ends[i], to);
+                if (count > 0 && start <= merged[count - 1]) {
+                    merged[count - 1] = Math.max(merged[count - 1], end);
+                    continue;
+                }
+                if (count == merged.length) {
+                    merged = Arrays.copyOf(merged, count * 2);
+                }
+                merged[count++] = start;
+                merged[count++] = end;
+            }
+            return Arrays.copyOf(merged, count);
+        }
+
+        // first position whose running max end is past the given value; nothing before it can overlap
+        private int firstEndingAfter(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (maxEnds[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // first position whose start is greater than the given value
+        private int upperBound(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // first position whose start is not less than the given value
+        private int lowerBound(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int indexOf(int id) {
+            Long start = startById.get(id);
+            if (start == null) {
+                return -1;
+            }
+            // only entries sharing the start are scanned
+            for (int i = lowerBound(start); i < size && starts[i] == start; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void recomputeMaxEnds(int from) {
+            long max = from == 0 ? Long.MIN_VALUE : maxEnds[from - 1];
+            for (int i = from; i < size; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package by.nuray.shareit.booking;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Generated at compile time; the service attaches item and booker itself.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface BookingMapper {
+
+    @Mapping(target = "itemId", source = "item.id")
+    @Mapping(target = "bookerId", source = "booker.id")
+    BookingDTO toDto(Booking booking);
+
+    @Mapping(target = "item", ignore = true)
+    @Mapping(target = "booker", ignore = true)
+    Booking toEntity(BookingDTO bookingDTO);
+}
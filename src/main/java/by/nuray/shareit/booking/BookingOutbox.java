@@ -0,0 +1,103 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Transactional outbox for booking lifecycle events. Every write path that creates a booking
+ * or changes its status records here from inside its own transaction, so an event exists
+ * exactly when the change it describes was committed. {@link #relay(int)} drains the table.
+ */
+@Component
+public class BookingOutbox {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO booking_outbox (booking_id, booker_id, owner_id, previous_status, status, occurred_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // SKIP LOCKED lets several relays drain in parallel without handing out the same rows
+    private static final String LOCK_BATCH =
+            "SELECT id, booking_id, booker_id, owner_id, previous_status, status, occurred_at FROM booking_outbox " +
+                    "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_EVENT = "DELETE FROM booking_outbox WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<BookingEventSink> sinks;
+
+    public BookingOutbox(JdbcTemplate jdbcTemplate, ObjectProvider<BookingEventSink> sinks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sinks = sinks;
+    }
+
+    @Transactional
+    public void recordCreated(Collection<Booking> bookings) {
+        LocalDateTime now = LocalDateTime.now();
+        insert(bookings.stream()
+                .map(b -> row(b.getId(), b.getBooker().getId(), b.getItem().getOwner().getId(), null, b.getStatus(), now))
+                .toList());
+    }
+
+    @Transactional
+    public void recordTransition(int bookingId, int bookerId, int ownerId, Status from, Status to) {
+        if (from == to) {
+            return;
+        }
+        insert(List.<Object[]>of(row(bookingId, bookerId, ownerId, from, to, LocalDateTime.now())));
+    }
+
+    @Transactional
+    public void recordTransitions(Collection<BookingParties> bookings, Status from, Status to) {
+        LocalDateTime now = LocalDateTime.now();
+        insert(bookings.stream()
+                .map(b -> row(b.id(), b.bookerId(), b.ownerId(), from, to, now))
+                .toList());
+    }
+
+    /**
+     * Hands the oldest {@code batchSize} events to every sink in turn and deletes them.
+     * A failing sink rolls the whole batch back, so delivery is at least once.
+     *
+     * @return number of events relayed
+     */
+    @Transactional
+    public int relay(int batchSize) {
+        List<BookingEvent> events = jdbcTemplate.query(LOCK_BATCH, (rs, rowNum) -> new BookingEvent(
+                rs.getLong(1),
+                rs.getInt(2),
+                rs.getInt(3),
+                rs.getInt(4),
+                rs.getString(5) == null ? null : Status.valueOf(rs.getString(5)),
+                Status.valueOf(rs.getString(6)),
+                rs.getObject(7, LocalDateTime.class)), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        sinks.orderedStream().forEach(sink -> sink.publish(events));
+
+        List<Object[]> ids = new ArrayList<>(events.size());
+        events.forEach(event -> ids.add(new Object[]{event.id()}));
+        jdbcTemplate.batchUpdate(DELETE_EVENT, ids);
+        return events.size();
+    }
+
+
+    private void insert(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+        }
+    }
+
+    private static Object[] row(int bookingId, int bookerId, int ownerId, Status from, Status to, LocalDateTime at) {
+        return new Object[]{bookingId, bookerId, ownerId, from == null ? null : from.name(), to.name(),
+                Timestamp.valueOf(at)};
+    }
+}
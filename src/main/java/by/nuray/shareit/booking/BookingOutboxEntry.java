@@ -0,0 +1,43 @@
+package by.nuray.shareit.booking;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One booking lifecycle event waiting to be relayed. Written by {@link BookingOutbox} in the
+ * transaction that changes the booking, deleted once every sink has accepted it.
+ */
+@Entity
+@Table(name = "booking_outbox")
+@Getter
+@Setter
+public class BookingOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private int bookingId;
+
+    @Column(name = "booker_id", nullable = false)
+    private int bookerId;
+
+    @Column(name = "owner_id", nullable = false)
+    private int ownerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "previous_status", length = 16)
+    private Status previousStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private Status status;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,30 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the booking outbox to the registered {@link BookingEventSink}s, one bounded batch
+ * per transaction, until a batch comes back short.
+ */
+@Component
+public class BookingOutboxRelay {
+
+    private final BookingOutbox bookingOutbox;
+    private final int batchSize;
+
+    public BookingOutboxRelay(BookingOutbox bookingOutbox,
+                              @Value("${shareit.booking.outbox.batch-size:100}") int batchSize) {
+        this.bookingOutbox = bookingOutbox;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.outbox.relay-delay:1000}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = bookingOutbox.relay(batchSize);
+        } while (relayed == batchSize);
+    }
+}
@@ -0,0 +1,7 @@
+package by.nuray.shareit.booking;
+
+/**
+ * A booking id together with the users it is counted for.
+ */
+public record BookingParties(int id, int bookerId, int ownerId) {
+}
@@ -0,0 +1,52 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Moves bookings along FUTURE → CURRENT → PAST as time passes. Every step is a
+ * bounded UPDATE in its own transaction, repeated until a batch comes back short,
+ * so a backlog never turns into one long lock-holding statement.
+ */
+@Component
+public class BookingPhaseScheduler {
+
+    private final BookingRepository bookingRepository;
+    private final BookingRentals bookingRentals;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final int batchSize;
+
+    public BookingPhaseScheduler(BookingRepository bookingRepository, BookingRentals bookingRentals,
+                                 BookingIntervalIndex bookingIntervalIndex,
+                                 @Value("${shareit.booking.phase-sweep.batch-size:1000}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.bookingRentals = bookingRentals;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.phase-sweep.delay:60000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+
+        drain(() -> bookingRepository.assignMissingPhases(now, batchSize));
+        // while they are still FUTURE/CURRENT, the bookings that just ended are cheap to find
+        bookingRentals.recordEnded(now);
+        // PAST first, so a short booking that was skipped entirely never lingers in CURRENT
+        drain(() -> bookingRepository.advanceToPast(now, batchSize));
+        drain(() -> bookingRepository.advanceToCurrent(now, batchSize));
+        // ended bookings can no longer conflict, so the index only keeps the live ones
+        bookingIntervalIndex.prune(now);
+    }
+
+    private void drain(IntSupplier batch) {
+        int updated;
+        do {
+            updated = batch.getAsInt();
+        } while (updated == batchSize);
+    }
+}
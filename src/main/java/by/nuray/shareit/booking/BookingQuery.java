@@ -0,0 +1,37 @@
+package by.nuray.shareit.booking;
+
+import by.nuray.shareit.util.BookingException;
+
+/**
+ * Everything the booking list endpoints filter and page by. Either {@code cursor}
+ * is set and the page seeks past it, or {@code from} rows are skipped.
+ */
+public record BookingQuery(Perspective perspective, int userId, State state,
+                           BookingCursor cursor, int from, int size) {
+
+    public enum Perspective {
+        BOOKER, OWNER
+    }
+
+    public BookingQuery {
+        if (state == null || state == State.UNKNOWN) {
+            throw new BookingException("Unknown state!");
+        }
+    }
+
+    public static BookingQuery forBooker(int bookerId, State state, int from, int size) {
+        return new BookingQuery(Perspective.BOOKER, bookerId, state, null, from, size);
+    }
+
+    public static BookingQuery forBooker(int bookerId, State state, BookingCursor cursor, int size) {
+        return new BookingQuery(Perspective.BOOKER, bookerId, state, cursor, 0, size);
+    }
+
+    public static BookingQuery forOwner(int ownerId, State state, int from, int size) {
+        return new BookingQuery(Perspective.OWNER, ownerId, state, null, from, size);
+    }
+
+    public static BookingQuery forOwner(int ownerId, State state, BookingCursor cursor, int size) {
+        return new BookingQuery(Perspective.OWNER, ownerId, state, cursor, 0, size);
+    }
+}
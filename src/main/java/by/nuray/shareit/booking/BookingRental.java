@@ -0,0 +1,51 @@
+package by.nuray.shareit.booking;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A booker who has finished an APPROVED booking of an item, and so may comment on it.
+ * Written by {@link BookingRentals} when bookings end and before they are archived.
+ */
+@Entity
+@Table(name = "booking_rentals")
+@Getter
+@Setter
+public class BookingRental {
+
+    @EmbeddedId
+    private Key key;
+
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class Key implements Serializable {
+
+        @Column(name = "booker_id")
+        private int bookerId;
+
+        @Column(name = "item_id")
+        private int itemId;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return bookerId == key.bookerId && itemId == key.itemId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bookerId, itemId);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which bookers have finished an APPROVED booking of which item, i.e. who may comment on it.
+ * Pairs are written to {@code booking_rentals} by the phase sweep as bookings end and by the
+ * archive before it deletes them, and cached in memory once seen. A pair the sweep has not
+ * reached yet is still found in the bookings table.
+ */
+@Component
+public class BookingRentals {
+
+    private static final String RECORD_ENDED =
+            "INSERT INTO booking_rentals (booker_id, item_id) " +
+                    "SELECT DISTINCT booker_id, item_id FROM bookings " +
+                    "WHERE status = 'APPROVED' AND phase IN ('FUTURE', 'CURRENT') AND end_date <= ? " +
+                    "ON CONFLICT DO NOTHING";
+    private static final String RECORD =
+            "INSERT INTO booking_rentals (booker_id, item_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String HAS_RENTED =
+            "SELECT EXISTS (SELECT 1 FROM booking_rentals WHERE booker_id = ? AND item_id = ?) " +
+                    "OR EXISTS (SELECT 1 FROM bookings WHERE booker_id = ? AND item_id = ? " +
+                    "AND status = 'APPROVED' AND end_date < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    // eligibility is never taken back, so only positive answers are cached
+    private final ConcurrentLongSet rented;
+
+    public BookingRentals(JdbcTemplate jdbcTemplate,
+                          @Value("${shareit.booking.rentals.cache-size:262144}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rented = new ConcurrentLongSet(cacheSize);
+    }
+
+    public boolean hasRented(int bookerId, int itemId) {
+        long key = key(bookerId, itemId);
+        if (rented.contains(key)) {
+            return true;
+        }
+        boolean hasRented = Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_RENTED, Boolean.class,
+                bookerId, itemId, bookerId, itemId, Timestamp.valueOf(LocalDateTime.now())));
+        if (hasRented) {
+            rented.add(key);
+        }
+        return hasRented;
+    }
+
+    /**
+     * Records the APPROVED bookings that ended by {@code now} but have not been moved to PAST yet.
+     */
+    @Transactional
+    public int recordEnded(LocalDateTime now) {
+        return jdbcTemplate.update(RECORD_ENDED, Timestamp.valueOf(now));
+    }
+
+    @Transactional
+    public void recordArchived(List<ArchivedBooking> bookings) {
+        List<Object[]> pairs = new ArrayList<>();
+        for (ArchivedBooking booking : bookings) {
+            if (booking.status() == Status.APPROVED) {
+                pairs.add(new Object[]{booking.bookerId(), booking.itemId()});
+            }
+        }
+        if (!pairs.isEmpty()) {
+            jdbcTemplate.batchUpdate(RECORD, pairs);
+        }
+    }
+
+
+    private static long key(int bookerId, int itemId) {
+        // ids start at 1, so a key is never 0, the set's empty marker
+        return (long) bookerId << 32 | (itemId & 0xFFFFFFFFL);
+    }
+}
@@ -1,118 +1,91 @@
 package by.nuray.shareit.booking;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface BookingRepository extends JpaRepository<Booking, Integer> {
-
-
-    List<Booking> findByItemIdAndStartBeforeAndEndAfter(int itemId,
-                                                        LocalDateTime end, LocalDateTime start);
-
-
-    @Query(value = "SELECT b.* FROM bookings b " +
-            "JOIN items i ON b.item_id = i.id " +
-            "WHERE i.owner_id = :ownerId    " +
-            "ORDER BY b.start_date DESC " +
-            "LIMIT :size  " +
-            "OFFSET :from", nativeQuery = true)
-    List<Booking> findAllBookingsForOwner(@Param("ownerId") int ownerId,
-                                          @Param("from") int from,
-                                          @Param("size") int size);
-
-
-    @Query(value = "SELECT b.* FROM bookings b " +
-            "JOIN items i ON b.item_id = i.id " +
-            "WHERE i.owner_id = :ownerId AND b.start_date < now() AND now() < b.end_date " +
-            "ORDER BY b.start_date DESC " +
-            "LIMIT :size  " +
-            "OFFSET :from", nativeQuery = true)
-    List<Booking> findCurrentBookingsForOwner(@Param("ownerId") int ownerId,
-                                              @Param("from") int from,
-                                              @Param("size") int size);
-
-    @Query(value = "SELECT b.* FROM bookings b " +
-            "JOIN items i ON b.item_id = i.id " +
-            "WHERE i.owner_id = :ownerId AND b.end_date < now() " +
-            "ORDER BY b.start_date DESC " +
-            "LIMIT :size " +
-            "OFFSET :from", nativeQuery = true)
-    List<Booking> findPastBookingsForOwner(@Param("ownerId") int ownerId,
-                                           @Param("from") int from,
-                                           @Param("size") int size);
-
-
-    @Query(value = "SELECT b.* FROM bookings b " +
-            "JOIN items i ON b.item_id = i.id " +
-            "WHERE  i.owner_id = :ownerId AND b.start_date > now() " +
-            "ORDER BY  b.start_date DESC " +
-            "LIMIT  :size " +
-            "OFFSET  :from", nativeQuery = true)
-    List<Booking> findFutureBookingsForOwner(@Param("ownerId") int ownerId,
-                                             @Param("from") int from,
-                                             @Param("size") int size);
-
-
-    @Query(value = "SELECT  b.* FROM bookings b " +
-            "JOIN items i ON b.item_id = i.id " +
-            "WHERE i.owner_id = :ownerId AND b.status ='WAITING' " +
-            "ORDER BY b.start_date DESC " +
-            "LIMIT :size " +
-            "OFFSET :from", nativeQuery = true)
-    List<Booking> findWaitingBookingsForOwner(@Param("ownerId") int ownerId,
-                                              @Param("from") int from,
-                                              @Param("size") int size);
-
-
-    @Query(value = "SELECT b.* FROM bookings b " +
-            "JOIN items i ON b.item_id = i.id " +
-            "WHERE i.owner_id = :ownerId AND b.status = 'REJECTED' " +
-            "ORDER BY b.start_date DESC " +
-            "LIMIT :size " +
-            "OFFSET :from", nativeQuery = true)
-    List<Booking> findRejectedBookingsForOwner(@Param("ownerId") int ownerId,
-                                               @Param("from") int from,
-                                               @Param("size") int size);
-
-
-    @Query(value = "SELECT * FROM bookings  WHERE booker_id = :bookerId ORDER BY start_date DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Booking> findAllBookingsForBooker(@Param("bookerId") int bookerId,
-                                           @Param("from") int from,
-                                           @Param("size") int size);
-
-    @Query(value = "SELECT * FROM bookings WHERE booker_id = :bookerId AND start_date < now() AND bookings.end_date > now() ORDER BY start_date DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Booking> findCurrentBookingsForBooker(@Param("bookerId") int bookerId,
-                                               @Param("from") int from,
-                                               @Param("size") int size);
-
-    @Query(value = "SELECT * FROM bookings WHERE booker_id = :bookerId AND bookings.end_date < now() ORDER BY start_date DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Booking> findPastBookingsForBooker(@Param("bookerId") int bookerId,
-                                            @Param("from") int from,
-                                            @Param("size") int size);
-
-    @Query(value = "SELECT * FROM bookings WHERE booker_id = :bookerId AND start_date > now() ORDER BY start_date DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Booking> findFutureBookingsForBooker(@Param("bookerId") int bookerId,
-                                              @Param("from") int from,
-                                              @Param("size") int size);
-
-    @Query(value = "SELECT * FROM bookings WHERE booker_id = :bookerId AND status = 'WAITING' ORDER BY start_date DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Booking> findWaitingBookingsForBooker(@Param("bookerId") int bookerId,
-                                               @Param("from") int from,
-                                               @Param("size") int size);
-
-    @Query(value = "SELECT * FROM bookings WHERE booker_id = :bookerId AND status = 'REJECTED' ORDER BY start_date DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Booking> findRejectedBookingsForBooker(@Param("bookerId") int bookerId,
-                                                @Param("from") int from,
-                                                @Param("size") int size);
-
-
-    @Query(value = "SELECT * FROM bookings " +
-            "WHERE  booker_id = :bookerId AND item_id = :itemId AND end_date < now()",
+public interface BookingRepository extends JpaRepository<Booking, Integer>, BookingRepositoryCustom {
+
+    // single-booking reads check item.owner, so the item comes along in the same select
+    @Override
+    @EntityGraph(Booking.WITH_ITEM)
+    Optional<Booking> findById(Integer id);
+
+
+    @Query("SELECT new by.nuray.shareit.booking.BookingSlot(b.id, b.item.id, b.start, b.end, b.status) " +
+            "FROM Booking b " +
+            "WHERE b.item.id = :itemId AND b.start < :end AND b.end > :start " +
+            "AND b.status IN (by.nuray.shareit.booking.Status.WAITING, by.nuray.shareit.booking.Status.APPROVED)")
+    List<BookingSlot> findActiveSlotsForItem(@Param("itemId") int itemId,
+                                             @Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end);
+
+
+    @Query("SELECT new by.nuray.shareit.booking.BookingSlot(b.id, b.item.id, b.start, b.end, b.status) " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN :itemIds AND b.start < :end AND b.end > :start " +
+            "AND b.status IN (by.nuray.shareit.booking.Status.WAITING, by.nuray.shareit.booking.Status.APPROVED)")
+    List<BookingSlot> findActiveSlotsForItems(@Param("itemIds") Collection<Integer> itemIds,
+                                              @Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+
+
+    @Query("SELECT new by.nuray.shareit.booking.BookingSlot(b.id, b.item.id, b.start, b.end, b.status) " +
+            "FROM Booking b " +
+            "WHERE b.end > :after " +
+            "AND b.status IN (by.nuray.shareit.booking.Status.WAITING, by.nuray.shareit.booking.Status.APPROVED)")
+    List<BookingSlot> findActiveSlotsEndingAfter(@Param("after") LocalDateTime after);
+
+
+    // served by idx_bookings_status_start; read once on startup to rebuild the expiry wheel
+    @Query("SELECT new by.nuray.shareit.booking.BookingSlot(b.id, b.item.id, b.start, b.end, b.status) " +
+            "FROM Booking b WHERE b.status = by.nuray.shareit.booking.Status.WAITING")
+    List<BookingSlot> findWaitingSlots();
+
+
+    @Query("SELECT new by.nuray.shareit.booking.PhaseCount(b.phase, COUNT(b)) " +
+            "FROM Booking b WHERE b.booker.id = :bookerId GROUP BY b.phase")
+    List<PhaseCount> countPhasesForBooker(@Param("bookerId") int bookerId);
+
+
+    @Query("SELECT new by.nuray.shareit.booking.PhaseCount(b.phase, COUNT(b)) " +
+            "FROM Booking b WHERE b.item.owner.id = :ownerId GROUP BY b.phase")
+    List<PhaseCount> countPhasesForOwner(@Param("ownerId") int ownerId);
+
+
+    // each sweep touches at most :limit rows, found through the (phase, end_date) / (phase, start_date) indexes
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE bookings SET phase = 'PAST' WHERE id IN (" +
+            "SELECT id FROM bookings WHERE phase IN ('FUTURE', 'CURRENT') AND end_date <= :now " +
+            "ORDER BY end_date LIMIT :limit)",
+            nativeQuery = true)
+    int advanceToPast(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE bookings SET phase = 'CURRENT' WHERE id IN (" +
+            "SELECT id FROM bookings WHERE phase = 'FUTURE' AND start_date <= :now AND end_date > :now " +
+            "ORDER BY start_date LIMIT :limit)",
+            nativeQuery = true)
+    int advanceToCurrent(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+
+    // rows written before the phase column existed
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE bookings SET phase = CASE " +
+            "WHEN end_date <= :now THEN 'PAST' WHEN start_date <= :now THEN 'CURRENT' ELSE 'FUTURE' END " +
+            "WHERE id IN (SELECT id FROM bookings WHERE phase IS NULL LIMIT :limit)",
             nativeQuery = true)
-    List<Booking> findAllPastBookingsForBooker(@Param("bookerId") int bookerId,
-                                               @Param("itemId") int itemId);
+    int assignMissingPhases(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
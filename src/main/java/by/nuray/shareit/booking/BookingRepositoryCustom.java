@@ -0,0 +1,51 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface BookingRepositoryCustom {
+
+    /**
+     * Reads one page of bookings projected straight into {@link BookingDTO}s, without loading entities.
+     */
+    List<BookingDTO> findBookings(BookingQuery query);
+
+    /**
+     * Feeds every booking matching the query (paging fields ignored) to {@code sink}, in list
+     * order, reading through a database cursor so memory stays flat however many rows match.
+     */
+    void streamBookings(BookingQuery query, Consumer<BookingDTO> sink);
+
+    /**
+     * Inserts new bookings as one JDBC batch and assigns their generated ids.
+     */
+    List<Booking> insertAll(List<Booking> bookings);
+
+    /**
+     * Moves the WAITING bookings among {@code bookingIds} that belong to {@code userId}
+     * (as booker or as item owner) to {@code status} in one statement.
+     *
+     * @return the bookings that actually transitioned
+     */
+    List<BookingParties> transitionWaiting(Collection<Integer> bookingIds, BookingQuery.Perspective perspective,
+                                    int userId, Status status);
+
+    /**
+     * Moves the WAITING bookings among {@code bookingIds} that started by {@code now} to EXPIRED in one statement.
+     *
+     * @return the bookings that actually expired
+     */
+    List<BookingParties> expireWaiting(Collection<Integer> bookingIds, LocalDateTime now);
+
+    /**
+     * Moves one WAITING booking that belongs to {@code userId} to {@code status} with a single
+     * conditional UPDATE, which also hands back the updated row.
+     *
+     * @return the updated booking, or empty when the booking is missing, not the caller's or not WAITING
+     */
+    Optional<Booking> transitionIfWaiting(int bookingId, BookingQuery.Perspective perspective, int userId,
+                                          Status status);
+}
@@ -0,0 +1,298 @@
+package by.nuray.shareit.booking;
+
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Composes the booking list predicates for every {@link State} and both perspectives,
+ * always ordered by (start, id) descending so the composite indexes on
+ * {@code bookings} drive both the filter and the sort.
+ */
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+
+    private static final String INSERT_BOOKING =
+            "INSERT INTO bookings (start_date, end_date, item_id, booker_id, status, phase) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // FOR UPDATE keeps a concurrent cancel/approve from slipping in between the select and the update
+    private static final String LOCK_WAITING =
+            "SELECT id, booker_id, (SELECT i.owner_id FROM items i WHERE i.id = item_id) FROM bookings " +
+                    "WHERE id IN (:ids) AND status = 'WAITING' AND %s ORDER BY id FOR UPDATE";
+    private static final String BOOKER_GUARD = "booker_id = :userId";
+    private static final String OWNER_GUARD = "item_id IN (SELECT i.id FROM items i WHERE i.owner_id = :userId)";
+    private static final String STARTED_GUARD = "start_date <= :now";
+
+    // compare-and-set: the row only moves if it is still WAITING and still the caller's
+    private static final String TRANSITION_IF_WAITING =
+            "UPDATE bookings SET status = ?, version = version + 1 WHERE id = ? AND status = 'WAITING' AND %s";
+    private static final String[] TRANSITIONED_COLUMNS =
+            {"id", "start_date", "end_date", "item_id", "booker_id", "phase", "version"};
+    private static final String SELECT_OWNER = "SELECT owner_id FROM items WHERE id = ?";
+
+    // rows per round trip while exporting; PostgreSQL only honours it inside a transaction
+    static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String SELECT_EXPORT =
+            "SELECT b.id, b.start_date, b.end_date, b.item_id, b.booker_id, b.status FROM bookings b ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingCounters bookingCounters;
+    private final BookingOutbox bookingOutbox;
+
+    public BookingRepositoryCustomImpl(JdbcTemplate jdbcTemplate, BookingCounters bookingCounters,
+                                       BookingOutbox bookingOutbox) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookingCounters = bookingCounters;
+        this.bookingOutbox = bookingOutbox;
+    }
+
+    @Override
+    public List<BookingDTO> findBookings(BookingQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingDTO> cq = cb.createQuery(BookingDTO.class);
+        Root<Booking> booking = cq.from(Booking.class);
+
+        Path<LocalDateTime> start = booking.get("start");
+        Path<Integer> id = booking.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        switch (query.perspective()) {
+            case BOOKER:
+                predicates.add(cb.equal(booking.get("booker").get("id"), query.userId()));
+                break;
+            case OWNER:
+                predicates.add(cb.equal(booking.join("item").get("owner").get("id"), query.userId()));
+                break;
+        }
+
+        switch (query.state()) {
+            case CURRENT:
+                predicates.add(cb.equal(booking.get("phase"), Phase.CURRENT));
+                break;
+            case PAST:
+                predicates.add(cb.equal(booking.get("phase"), Phase.PAST));
+                break;
+            case FUTURE:
+                predicates.add(cb.equal(booking.get("phase"), Phase.FUTURE));
+                break;
+            case WAITING:
+                predicates.add(cb.equal(booking.get("status"), Status.WAITING));
+                break;
+            case REJECTED:
+                predicates.add(cb.equal(booking.get("status"), Status.REJECTED));
+                break;
+            default:
+                break;
+        }
+
+        BookingCursor cursor = query.cursor();
+        if (cursor != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(start, cursor.start()),
+                    cb.and(cb.equal(start, cursor.start()), cb.lessThan(id, cursor.id()))));
+        }
+
+        // constructor projection: rows become DTOs directly, nothing enters the persistence context
+        cq.select(cb.construct(BookingDTO.class, id, start, booking.get("end"),
+                        booking.get("item").get("id"), booking.get("booker").get("id"), booking.get("status")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(start), cb.desc(id));
+
+        return entityManager.createQuery(cq)
+                .setFirstResult(cursor == null ? query.from() : 0)
+                .setMaxResults(query.size())
+                .getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamBookings(BookingQuery query, Consumer<BookingDTO> sink) {
+        StringBuilder sql = new StringBuilder(SELECT_EXPORT);
+        if (query.perspective() == BookingQuery.Perspective.OWNER) {
+            sql.append("JOIN items i ON i.id = b.item_id WHERE i.owner_id = ?");
+        } else {
+            sql.append("WHERE b.booker_id = ?");
+        }
+
+        sql.append(stateFilter(query.state())).append(" ORDER BY b.start_date DESC, b.id DESC");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            ps.setInt(1, query.userId());
+            return ps;
+        }, (ResultSet rs) -> {
+            sink.accept(new BookingDTO(rs.getInt(1),
+                    rs.getObject(2, LocalDateTime.class),
+                    rs.getObject(3, LocalDateTime.class),
+                    rs.getInt(4),
+                    rs.getInt(5),
+                    Status.valueOf(rs.getString(6))));
+        });
+    }
+
+    static String stateFilter(State state) {
+        return switch (state) {
+            case CURRENT, PAST, FUTURE -> " AND b.phase = '" + Phase.valueOf(state.name()) + "'";
+            case WAITING, REJECTED -> " AND b.status = '" + Status.valueOf(state.name()) + "'";
+            default -> "";
+        };
+    }
+
+    @Override
+    @Transactional
+    public List<Booking> insertAll(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return bookings;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        bookings.forEach(booking -> {
+            if (booking.getPhase() == null) {
+                booking.setPhase(Phase.of(booking.getStart(), booking.getEnd(), now));
+            }
+        });
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_BOOKING, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Booking booking = bookings.get(i);
+                        ps.setTimestamp(1, Timestamp.valueOf(booking.getStart()));
+                        ps.setTimestamp(2, Timestamp.valueOf(booking.getEnd()));
+                        ps.setInt(3, booking.getItem().getId());
+                        ps.setInt(4, booking.getBooker().getId());
+                        ps.setString(5, booking.getStatus().name());
+                        ps.setString(6, booking.getPhase().name());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return bookings.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < bookings.size(); i++) {
+            bookings.get(i).setId(((Number) keys.get(i).get("id")).intValue());
+        }
+        // plain JDBC skips the entity listener, so count and record the events here, in the same transaction
+        bookingCounters.recordCreated(bookings);
+        bookingOutbox.recordCreated(bookings);
+        return bookings;
+    }
+
+    @Override
+    @Transactional
+    public List<BookingParties> transitionWaiting(Collection<Integer> bookingIds, BookingQuery.Perspective perspective,
+                                                  int userId, Status status) {
+        if (bookingIds.isEmpty()) {
+            return List.of();
+        }
+        String guard = perspective == BookingQuery.Perspective.BOOKER ? BOOKER_GUARD : OWNER_GUARD;
+        return transition(bookingIds, guard, "userId", userId, status);
+    }
+
+    @Override
+    @Transactional
+    public List<BookingParties> expireWaiting(Collection<Integer> bookingIds, LocalDateTime now) {
+        if (bookingIds.isEmpty()) {
+            return List.of();
+        }
+        return transition(bookingIds, STARTED_GUARD, "now", now, Status.EXPIRED);
+    }
+
+    private List<BookingParties> transition(Collection<Integer> bookingIds, String guard, String guardParameter,
+                                            Object guardValue, Status status) {
+        List<?> rows = entityManager.createNativeQuery(String.format(LOCK_WAITING, guard))
+                .setParameter("ids", bookingIds)
+                .setParameter(guardParameter, guardValue)
+                .getResultList();
+        List<BookingParties> eligible = rows.stream()
+                .map(row -> (Object[]) row)
+                .map(row -> new BookingParties(((Number) row[0]).intValue(),
+                        ((Number) row[1]).intValue(), ((Number) row[2]).intValue()))
+                .toList();
+
+        if (!eligible.isEmpty()) {
+            entityManager.createQuery("UPDATE Booking b SET b.status = :status, b.version = b.version + 1 " +
+                            "WHERE b.id IN :ids")
+                    .setParameter("status", status)
+                    .setParameter("ids", eligible.stream().map(BookingParties::id).toList())
+                    .executeUpdate();
+            bookingCounters.recordTransitions(eligible, Status.WAITING, status);
+            bookingOutbox.recordTransitions(eligible, Status.WAITING, status);
+        }
+        return eligible;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Booking> transitionIfWaiting(int bookingId, BookingQuery.Perspective perspective, int userId,
+                                                 Status status) {
+        String guard = (perspective == BookingQuery.Perspective.BOOKER ? BOOKER_GUARD : OWNER_GUARD)
+                .replace(":userId", "?");
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        // the driver returns the listed columns of the updated row (RETURNING on PostgreSQL), so success needs no read
+        int updated = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(String.format(TRANSITION_IF_WAITING, guard), TRANSITIONED_COLUMNS);
+            ps.setString(1, status.name());
+            ps.setInt(2, bookingId);
+            ps.setInt(3, userId);
+            return ps;
+        }, keyHolder);
+        if (updated == 0) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> row = keyHolder.getKeys();
+        Booking booking = new Booking();
+        booking.setId(((Number) row.get("id")).intValue());
+        booking.setStart(((Timestamp) row.get("start_date")).toLocalDateTime());
+        booking.setEnd(((Timestamp) row.get("end_date")).toLocalDateTime());
+        booking.setItem(entityManager.getReference(Item.class, ((Number) row.get("item_id")).intValue()));
+        booking.setBooker(entityManager.getReference(User.class, ((Number) row.get("booker_id")).intValue()));
+        booking.setStatus(status);
+        booking.setPhase(row.get("phase") == null ? null : Phase.valueOf((String) row.get("phase")));
+        booking.setVersion(((Number) row.get("version")).longValue());
+
+        int bookerId = booking.getBooker().getId();
+        int ownerId = perspective == BookingQuery.Perspective.OWNER
+                ? userId
+                : jdbcTemplate.queryForObject(SELECT_OWNER, Integer.class, booking.getItem().getId());
+        bookingCounters.recordTransition(bookerId, ownerId, Status.WAITING, status);
+        bookingOutbox.recordTransition(booking.getId(), bookerId, ownerId, Status.WAITING, status);
+        return Optional.of(booking);
+    }
+}
@@ -0,0 +1,10 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+public record BookingRequest(int itemId, LocalDateTime start, LocalDateTime end) {
+
+    public static BookingRequest of(BookingDTO bookingDTO) {
+        return new BookingRequest(bookingDTO.getItemId(), bookingDTO.getStart(), bookingDTO.getEnd());
+    }
+}
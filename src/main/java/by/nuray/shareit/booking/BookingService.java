@@ -1,21 +1,54 @@
 package by.nuray.shareit.booking;
 
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface BookingService {
 
     public Booking createBooking(Booking booking, int bookerId, int itemId);
 
+    List<BookingBatchResult> createBookings(int bookerId, List<BookingRequest> requests);
+
+    List<Booking> createCart(int bookerId, List<BookingRequest> requests);
+
+    BookingHold createHold(int itemId, int userId, LocalDateTime start, LocalDateTime end);
+
+    Booking confirmHold(int holdId, int userId);
+
+    void releaseHold(int holdId, int userId);
+
+    BookingWaitlistResult joinWaitlist(Booking booking, int bookerId, int itemId);
+
+    void leaveWaitlist(int entryId, int bookerId);
+
     public Booking getBookingById(int bookingId, int userId);
 
     Booking cancelBooking(int bookingId, int bookerId);
 
     Booking updateBookingStatus(int bookingId, boolean approved, int ownerId);
 
-    List<Booking> getBookingsByBooker(int bookerId, State state, int from, int size);
+    BookingTransitionResult cancelBookings(List<Integer> bookingIds, int bookerId);
+
+    BookingTransitionResult updateBookingStatuses(List<Integer> bookingIds, boolean approved, int ownerId);
+
+    List<BookingDTO> getBookingsByBooker(int bookerId, State state, int from, int size);
+
+    List<BookingDTO> getBookingsByOwner(int ownerId, State state, int from, int size);
+
+    List<BookingDTO> getBookingsByBooker(int bookerId, State state, BookingCursor cursor, int size);
+
+    List<BookingDTO> getBookingsByOwner(int ownerId, State state, BookingCursor cursor, int size);
+
+    BookingExport exportBookingsByBooker(int bookerId, State state);
+
+    BookingExport exportBookingsByOwner(int ownerId, State state);
+
+    BookingCounts getBookingCountsByBooker(int bookerId);
+
+    BookingCounts getBookingCountsByOwner(int ownerId);
 
-    List<Booking> getBookingsByOwner(int ownerId, State state, int from, int size);
+    ItemAvailability getItemAvailability(int itemId, LocalDateTime from, LocalDateTime to, int granularity);
 
-    List<Booking> getPastBookingsByBookerForItem(int bookerId, int itemId); // for comment class to check addComment()
+    boolean hasRented(int bookerId, int itemId);
 }
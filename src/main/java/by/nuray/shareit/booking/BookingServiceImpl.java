@@ -7,23 +7,67 @@ import by.nuray.shareit.user.User;
 import by.nuray.shareit.user.UserService;
 import by.nuray.shareit.util.BookingException;
 import by.nuray.shareit.util.BookingNotFoundException;
+import by.nuray.shareit.util.ItemNotFoundException;
+import by.nuray.shareit.util.UserNotFoundException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class BookingServiceImpl implements BookingService {
 
+    // exclusion constraint (PostgreSQL) or trigger (H2) that rejects overlapping WAITING/APPROVED bookings
+    static final String OVERLAP_CONSTRAINT = "bookings_no_overlap";
+
+    // upper bound per bulk transition, batch or cart; keeps IN lists, row locks and JDBC batches bounded
+    static final int MAX_BULK_SIZE = 500;
+
+    static final int MAX_AVAILABILITY_DAYS = 90;
 
     private final BookingRepository bookingRepository;
     private final UserService userService;
     private final ItemService itemService;
-
-    public BookingServiceImpl(BookingRepository bookingRepository, UserService userService, ItemService itemService) {
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemLockStripes itemLockStripes;
+    private final BookingCounters bookingCounters;
+    private final BookingArchive bookingArchive;
+    private final BookingRentals bookingRentals;
+    private final BookingExpiry bookingExpiry;
+    private final BookingHolds bookingHolds;
+    private final BookingWaitlist bookingWaitlist;
+
+    public BookingServiceImpl(BookingRepository bookingRepository, UserService userService, ItemService itemService,
+                              BookingIntervalIndex bookingIntervalIndex, ItemLockStripes itemLockStripes,
+                              BookingCounters bookingCounters, BookingArchive bookingArchive,
+                              BookingRentals bookingRentals, BookingExpiry bookingExpiry,
+                              BookingHolds bookingHolds, BookingWaitlist bookingWaitlist) {
         this.bookingRepository = bookingRepository;
         this.userService = userService;
         this.itemService = itemService;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.itemLockStripes = itemLockStripes;
+        this.bookingCounters = bookingCounters;
+        this.bookingArchive = bookingArchive;
+        this.bookingRentals = bookingRentals;
+        this.bookingExpiry = bookingExpiry;
+        this.bookingHolds = bookingHolds;
+        this.bookingWaitlist = bookingWaitlist;
+    }
+
+    @PostConstruct
+    public void warmUpIntervalIndex() {
+        bookingIntervalIndex.load(bookingRepository.findActiveSlotsEndingAfter(LocalDateTime.now()));
     }
 
     @Override
@@ -31,45 +75,291 @@ public class BookingServiceImpl implements BookingService {
 
         User booker = userService.getUserById(bookerId);
         Item bookingItem = itemService.getItemById(itemId);
-        boolean isAvailable = bookingItem.getAvailable();
 
-        if (!isAvailable) {
-            throw new BookingException("Item is not available");
+        validateBooking(bookingItem, booking.getStart(), booking.getEnd());
+
+        booking.setBooker(booker);
+        booking.setItem(bookingItem);
+        booking.setStatus(Status.WAITING);
+
+        // check-then-insert must not interleave with another request for the same item
+        Lock itemLock = itemLockStripes.forItem(itemId);
+        itemLock.lock();
+        try {
+            return insertLocked(booking);
+        } finally {
+            itemLock.unlock();
         }
+    }
 
-        if (booking.getStart() == null || booking.getEnd() == null) {
-            throw new BookingException("The booking start/end time cannot be null");
+    @Override
+    public BookingWaitlistResult joinWaitlist(Booking booking, int bookerId, int itemId) {
+
+        User booker = userService.getUserById(bookerId);
+        Item bookingItem = itemService.getItemById(itemId);
+
+        validateBooking(bookingItem, booking.getStart(), booking.getEnd());
+
+        booking.setBooker(booker);
+        booking.setItem(bookingItem);
+        booking.setStatus(Status.WAITING);
+
+        Lock itemLock = itemLockStripes.forItem(itemId);
+        itemLock.lock();
+        try {
+            // a booking or another user's hold blocks the range alike; either way the request waits
+            if (confirmedConflict(itemId, booking.getStart(), booking.getEnd()) == null
+                    && !bookingHolds.conflicts(itemId, booking.getStart(), booking.getEnd(), bookerId)) {
+                return BookingWaitlistResult.booked(insertLocked(booking));
+            }
+            bookingWaitlist.dropStarted(itemId, LocalDateTime.now());
+            BookingWaitlistEntry queued = bookingWaitlist.findOverlapping(itemId, bookerId,
+                    booking.getStart(), booking.getEnd());
+            if (queued != null) {
+                // a retry of the same request gets its entry back instead of a second place in the queue
+                if (queued.start().isEqual(booking.getStart()) && queued.end().isEqual(booking.getEnd())) {
+                    return BookingWaitlistResult.queued(queued);
+                }
+                throw new BookingException("You are already on the waitlist for this item at an overlapping time");
+            }
+            BookingWaitlistEntry entry = bookingWaitlist.add(itemId, bookerId, booking.getStart(), booking.getEnd());
+            if (entry == null) {
+                throw new BookingException("Waitlist for this item is full");
+            }
+            return BookingWaitlistResult.queued(entry);
+        } finally {
+            itemLock.unlock();
         }
-        if (booking.getStart().isBefore(LocalDateTime.now())) {
-            throw new BookingException("Booking start date cannot be in the past");
+    }
+
+    @Override
+    public void leaveWaitlist(int entryId, int bookerId) {
+
+        userService.getUserById(bookerId);
+        BookingWaitlistEntry entry = bookingWaitlist.find(entryId);
+        if (entry == null) {
+            throw new BookingNotFoundException("Waitlist entry with id " + entryId + " not found");
         }
-        if (!booking.getEnd().isAfter(booking.getStart())) {
-            throw new BookingException("End time must be after start time");
+        if (entry.bookerId() != bookerId) {
+            throw new BookingException("You are not the booker of this waitlist entry");
         }
 
+        Lock itemLock = itemLockStripes.forItem(entry.itemId());
+        itemLock.lock();
+        try {
+            bookingWaitlist.remove(entry);
+        } finally {
+            itemLock.unlock();
+        }
+    }
 
-        List<Booking> overlappingBookings = bookingRepository.findByItemIdAndStartBeforeAndEndAfter(
-                itemId, booking.getEnd(), booking.getStart());
+    @Override
+    public List<BookingBatchResult> createBookings(int bookerId, List<BookingRequest> requests) {
 
-        boolean hasApproved = overlappingBookings.stream()
-                .anyMatch(b -> b.getStatus() == Status.APPROVED);
+        if (requests.size() > MAX_BULK_SIZE) {
+            throw new BookingException("At most " + MAX_BULK_SIZE + " bookings can be made at once");
+        }
 
-        boolean hasWaiting = overlappingBookings.stream()
-                .anyMatch(b -> b.getStatus() == Status.WAITING);
+        User booker = userService.getUserById(bookerId);
+        Map<Integer, Item> items = itemService.getItemsByIds(requests.stream()
+                        .map(BookingRequest::itemId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        BookingBatchResult[] results = new BookingBatchResult[requests.size()];
+        List<Integer> candidates = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            Item item = items.get(request.itemId());
+            if (item == null) {
+                results[i] = BookingBatchResult.failed(i, "Item with id " + request.itemId() + " not found");
+                continue;
+            }
+            try {
+                validateBooking(item, request.start(), request.end());
+                candidates.add(i);
+            } catch (BookingException e) {
+                results[i] = BookingBatchResult.failed(i, e.getMessage());
+            }
+        }
 
-        if (hasApproved) {
-            throw new BookingException("Booking already exists and is approved");
+        if (!candidates.isEmpty()) {
+            insertCandidates(booker, items, requests, candidates, results);
         }
 
-        if (hasWaiting) {
-            throw new BookingException("Booking request for this time already exists");
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<Booking> createCart(int bookerId, List<BookingRequest> requests) {
+
+        if (requests.isEmpty()) {
+            throw new BookingException("Cart is empty");
+        }
+        if (requests.size() > MAX_BULK_SIZE) {
+            throw new BookingException("At most " + MAX_BULK_SIZE + " bookings can be made at once");
+        }
+
+        User booker = userService.getUserById(bookerId);
+        Set<Integer> itemIds = requests.stream()
+                .map(BookingRequest::itemId)
+                .collect(Collectors.toSet());
+        Map<Integer, Item> items = itemService.getItemsByIds(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<Booking> bookings = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            Item item = items.get(request.itemId());
+            if (item == null) {
+                throw new ItemNotFoundException("Cart entry " + i + ": Item with id " + request.itemId() + " not found");
+            }
+            try {
+                validateBooking(item, request.start(), request.end());
+            } catch (BookingException e) {
+                throw cartEntryException(i, e);
+            }
+
+            Booking booking = new Booking();
+            booking.setStart(request.start());
+            booking.setEnd(request.end());
+            booking.setBooker(booker);
+            booking.setItem(item);
+            booking.setStatus(Status.WAITING);
+            bookings.add(booking);
+        }
+
+        LocalDateTime windowStart = requests.stream().map(BookingRequest::start)
+                .min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime windowEnd = requests.stream().map(BookingRequest::end)
+                .max(Comparator.naturalOrder()).orElseThrow();
+
+        // all items locked up front, in the stripes' fixed order, so carts sharing items cannot deadlock
+        List<Lock> locks = itemLockStripes.forItems(itemIds);
+        ItemLockStripes.lockAll(locks);
+        try {
+            bookingIntervalIndex.refresh(itemIds, windowStart, windowEnd,
+                    bookingRepository.findActiveSlotsForItems(itemIds, windowStart, windowEnd));
+            checkCart(bookings, bookerId);
+
+            try {
+                // one transaction: the cart is booked as a whole or not at all
+                bookingRepository.insertAll(bookings);
+            } catch (DataIntegrityViolationException e) {
+                if (!isOverlapViolation(e)) {
+                    throw e;
+                }
+                // another node booked part of the cart meanwhile; learn about it to name the entry that lost
+                bookingIntervalIndex.refresh(itemIds, windowStart, windowEnd,
+                        bookingRepository.findActiveSlotsForItems(itemIds, windowStart, windowEnd));
+                checkCart(bookings, bookerId);
+                throw conflictException(Status.WAITING);
+            }
+            bookings.forEach(this::indexCreated);
+
+            return bookings;
+        } finally {
+            ItemLockStripes.unlockAll(locks);
+        }
+    }
+
+    @Override
+    public BookingHold createHold(int itemId, int userId, LocalDateTime start, LocalDateTime end) {
+
+        userService.getUserById(userId);
+        Item item = itemService.getItemById(itemId);
+
+        validateBooking(item, start, end);
+
+        Lock itemLock = itemLockStripes.forItem(itemId);
+        itemLock.lock();
+        try {
+            Status conflict = confirmedConflict(itemId, start, end);
+            if (conflict != null) {
+                throw conflictException(conflict);
+            }
+            if (bookingHolds.conflicts(itemId, start, end, userId)) {
+                throw holdConflictException();
+            }
+            return bookingHolds.place(itemId, userId, start, end);
+        } finally {
+            itemLock.unlock();
         }
+    }
 
+    @Override
+    public Booking confirmHold(int holdId, int userId) {
+
+        User booker = userService.getUserById(userId);
+        BookingHold hold = findHold(holdId, userId);
+        Item item = itemService.getItemById(hold.itemId());
+
+        validateBooking(item, hold.start(), hold.end());
+
+        Booking booking = new Booking();
+        booking.setStart(hold.start());
+        booking.setEnd(hold.end());
         booking.setBooker(booker);
-        booking.setItem(bookingItem);
+        booking.setItem(item);
         booking.setStatus(Status.WAITING);
 
-        return bookingRepository.save(booking);
+        // the hold turns into the booking under the item lock: no other request sees the range free in between
+        Lock itemLock = itemLockStripes.forItem(hold.itemId());
+        itemLock.lock();
+        try {
+            if (!bookingHolds.remove(hold)) {
+                throw new BookingNotFoundException("Hold with id " + holdId + " not found");
+            }
+
+            Booking savedBooking;
+            try {
+                savedBooking = bookingRepository.save(booking);
+            } catch (DataIntegrityViolationException e) {
+                if (!isOverlapViolation(e)) {
+                    bookingHolds.restore(hold);
+                    throw e;
+                }
+                // a booking made on another node took the range, so the hold is worthless now
+                throw conflictException(reloadConflict(hold.itemId(), hold.start(), hold.end()));
+            } catch (RuntimeException e) {
+                bookingHolds.restore(hold);
+                throw e;
+            }
+            indexCreated(savedBooking);
+
+            return savedBooking;
+        } finally {
+            itemLock.unlock();
+        }
+    }
+
+    @Override
+    public void releaseHold(int holdId, int userId) {
+
+        userService.getUserById(userId);
+        BookingHold hold = findHold(holdId, userId);
+
+        Lock itemLock = itemLockStripes.forItem(hold.itemId());
+        itemLock.lock();
+        try {
+            bookingHolds.remove(hold);
+        } finally {
+            itemLock.unlock();
+        }
+        promoteWaitlisted(hold.itemId());
+    }
+
+    /**
+     * Drops expired holds and promotes the waitlists of the items they were blocking.
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking.holds.tick:1000}")
+    public void sweepHolds() {
+        bookingHolds.sweep(LocalDateTime.now()).stream()
+                .map(BookingHold::itemId)
+                .distinct()
+                .forEach(this::promoteWaitlisted);
     }
 
     @Override
@@ -87,95 +377,529 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public Booking cancelBooking(int bookingId, int bookerId) {
 
-        User booker = userService.getUserById(bookerId);
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new BookingNotFoundException("Booking with id " + bookingId + " not found"));
+        userService.getUserById(bookerId);
+        Booking booking = bookingRepository.transitionIfWaiting(bookingId, BookingQuery.Perspective.BOOKER, bookerId,
+                        Status.CANCELED)
+                .orElseThrow(() -> lostTransition(bookingId, BookingQuery.Perspective.BOOKER, bookerId));
+        bookingIntervalIndex.updateStatus(bookingId, Status.CANCELED);
+        promoteWaitlisted(booking.getItem().getId());
+
+        return booking;
+    }
+
+    @Override
+    public Booking updateBookingStatus(int bookingId, boolean approved, int ownerId) {
+
+        userService.getUserById(ownerId);
+        Status decision = approved ? Status.APPROVED : Status.REJECTED;
 
-        if (booking.getBooker().getId() != bookerId) {
-            throw new BookingException("You are not the booker of this booking");
+        Booking booking = bookingRepository.transitionIfWaiting(bookingId, BookingQuery.Perspective.OWNER, ownerId,
+                        decision)
+                .orElseThrow(() -> lostTransition(bookingId, BookingQuery.Perspective.OWNER, ownerId));
+        bookingIntervalIndex.updateStatus(bookingId, decision);
+        if (!approved) {
+            promoteWaitlisted(booking.getItem().getId());
         }
 
-        if (booking.getStatus() != Status.WAITING) {
-            throw new BookingException("Booking status is not  WAITING");
+        return booking;
+    }
+
+    @Override
+    public BookingTransitionResult cancelBookings(List<Integer> bookingIds, int bookerId) {
+        userService.getUserById(bookerId);
+        return transition(bookingIds, BookingQuery.Perspective.BOOKER, bookerId, Status.CANCELED);
+    }
+
+    @Override
+    public BookingTransitionResult updateBookingStatuses(List<Integer> bookingIds, boolean approved, int ownerId) {
+        userService.getUserById(ownerId);
+        return transition(bookingIds, BookingQuery.Perspective.OWNER, ownerId,
+                approved ? Status.APPROVED : Status.REJECTED);
+    }
+
+    @Override
+    public List<BookingDTO> getBookingsByBooker(int bookerId, State state, int from, int size) {
+        userService.getUserById(bookerId);
+        return findBookings(BookingQuery.forBooker(bookerId, state, from, size));
+    }
+
+    @Override
+    public List<BookingDTO> getBookingsByOwner(int ownerId, State state, int from, int size) {
+        userService.getUserById(ownerId);
+        return findBookings(BookingQuery.forOwner(ownerId, state, from, size));
+    }
+
+    @Override
+    public List<BookingDTO> getBookingsByBooker(int bookerId, State state, BookingCursor cursor, int size) {
+        userService.getUserById(bookerId);
+        return findBookings(BookingQuery.forBooker(bookerId, state, cursor, size));
+    }
+
+    @Override
+    public List<BookingDTO> getBookingsByOwner(int ownerId, State state, BookingCursor cursor, int size) {
+        userService.getUserById(ownerId);
+        return findBookings(BookingQuery.forOwner(ownerId, state, cursor, size));
+    }
+
+    @Override
+    public BookingExport exportBookingsByBooker(int bookerId, State state) {
+        userService.getUserById(bookerId);
+        return export(BookingQuery.forBooker(bookerId, state, 0, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public BookingExport exportBookingsByOwner(int ownerId, State state) {
+        userService.getUserById(ownerId);
+        return export(BookingQuery.forOwner(ownerId, state, 0, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public BookingCounts getBookingCountsByBooker(int bookerId) {
+        userService.getUserById(bookerId);
+        return BookingCounts.of(bookingCounters.countsFor(bookerId, BookingQuery.Perspective.BOOKER),
+                withArchived(bookingRepository.countPhasesForBooker(bookerId), bookerId, BookingQuery.Perspective.BOOKER));
+    }
+
+    @Override
+    public BookingCounts getBookingCountsByOwner(int ownerId) {
+        userService.getUserById(ownerId);
+        return BookingCounts.of(bookingCounters.countsFor(ownerId, BookingQuery.Perspective.OWNER),
+                withArchived(bookingRepository.countPhasesForOwner(ownerId), ownerId, BookingQuery.Perspective.OWNER));
+    }
+
+    @Override
+    public ItemAvailability getItemAvailability(int itemId, LocalDateTime from, LocalDateTime to, int granularity) {
+        itemService.getItemById(itemId);
+
+        if (!to.isAfter(from)) {
+            throw new BookingException("End time must be after start time");
+        }
+        if (granularity <= 0) {
+            throw new BookingException("Granularity must be a positive number of minutes");
+        }
+        if (from.plusDays(MAX_AVAILABILITY_DAYS).isBefore(to)) {
+            throw new BookingException("Availability can be requested for at most " + MAX_AVAILABILITY_DAYS + " days");
         }
-        booking.setStatus(Status.CANCELED);
 
+        long slot = Duration.ofMinutes(granularity).toNanos();
+        long window = Duration.between(from, to).toNanos();
+
+        // widen every busy range to whole slots, then merge the ones that now touch
+        List<TimeRange> busy = new ArrayList<>();
+        for (TimeRange range : bookingIntervalIndex.findBusy(itemId, from, to)) {
+            long start = Duration.between(from, range.start()).toNanos() / slot * slot;
+            long end = Math.min(Math.ceilDiv(Duration.between(from, range.end()).toNanos(), slot) * slot, window);
+            TimeRange snapped = new TimeRange(from.plusNanos(start), from.plusNanos(end));
+
+            int last = busy.size() - 1;
+            if (last >= 0 && !snapped.start().isAfter(busy.get(last).end())) {
+                busy.set(last, new TimeRange(busy.get(last).start(), snapped.end()));
+            } else {
+                busy.add(snapped);
+            }
+        }
 
-        return bookingRepository.save(booking);
+        List<TimeRange> free = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (TimeRange range : busy) {
+            if (range.start().isAfter(cursor)) {
+                free.add(new TimeRange(cursor, range.start()));
+            }
+            cursor = range.end();
+        }
+        if (to.isAfter(cursor)) {
+            free.add(new TimeRange(cursor, to));
+        }
+
+        return new ItemAvailability(itemId, from, to, granularity, free, busy);
     }
 
     @Override
-    public Booking updateBookingStatus(int bookingId, boolean approved, int ownerId) {
+    public boolean hasRented(int bookerId, int itemId) {
+        return bookingRentals.hasRented(bookerId, itemId);
+    }
 
-        User owner = userService.getUserById(ownerId);
+
+    private List<BookingDTO> findBookings(BookingQuery query) {
+        List<BookingDTO> hot = bookingRepository.findBookings(query);
+
+        // every archived booking starts before archivedBefore, so a full page that ends after it is complete
+        LocalDateTime archivedBefore = bookingArchive.archivedBefore();
+        if (archivedBefore == null || !hot.isEmpty() && hot.size() == query.size()
+                && !hot.get(hot.size() - 1).getStart().isBefore(archivedBefore)) {
+            return hot;
+        }
+        // most users have nothing archived for the state asked for
+        if (bookingCounters.archivedMatching(query) == 0) {
+            return hot;
+        }
+
+        // the page reaches into the archived months: merge both from the top of the list, then cut the page out
+        int skip = query.cursor() == null ? query.from() : 0;
+        int wanted = skip + query.size();
+        if (skip > 0) {
+            hot = bookingRepository.findBookings(new BookingQuery(query.perspective(), query.userId(), query.state(),
+                    null, 0, wanted));
+        }
+
+        List<BookingDTO> merged = new ArrayList<>(wanted);
+        BookingArchive.Reader archived = bookingArchive.open(query);
+        for (BookingDTO booking : hot) {
+            archived.emitBefore(booking, wanted - merged.size(), merged::add);
+            if (merged.size() == wanted) {
+                break;
+            }
+            merged.add(booking);
+        }
+        archived.emitBefore(null, wanted - merged.size(), merged::add);
+
+        return skip >= merged.size() ? List.of() : merged.subList(skip, merged.size());
+    }
+
+    private BookingExport export(BookingQuery query) {
+        return sink -> {
+            if (bookingArchive.archivedBefore() == null || bookingCounters.archivedMatching(query) == 0) {
+                bookingRepository.streamBookings(query, sink);
+                return;
+            }
+            BookingArchive.Reader archived = bookingArchive.open(query);
+            bookingRepository.streamBookings(query, booking -> {
+                archived.emitBefore(booking, Integer.MAX_VALUE, sink);
+                sink.accept(booking);
+            });
+            archived.emitBefore(null, Integer.MAX_VALUE, sink);
+        };
+    }
+
+    private List<PhaseCount> withArchived(List<PhaseCount> counts, int userId, BookingQuery.Perspective role) {
+        long archived = bookingCounters.archivedFor(userId, role);
+        if (archived == 0) {
+            return counts;
+        }
+        List<PhaseCount> all = new ArrayList<>(counts);
+        all.add(new PhaseCount(Phase.PAST, archived));
+        return all;
+    }
+
+    // the conditional update matched nothing; only now is the row read, to say why
+    private RuntimeException lostTransition(int bookingId, BookingQuery.Perspective perspective, int userId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new BookingNotFoundException("Booking with id " + bookingId + " not found"));
 
-        if (booking.getItem().getOwner().getId() != ownerId) {
-            throw new BookingException("You are not the owner of this booking request");
+        if (perspective == BookingQuery.Perspective.BOOKER) {
+            if (booking.getBooker().getId() != userId) {
+                return new BookingException("You are not the booker of this booking");
+            }
+            return new BookingException("Booking status is not  WAITING");
         }
-        if (booking.getStatus() != Status.WAITING) {
-            throw new BookingException("Booking status is already changed");
+        if (booking.getItem().getOwner().getId() != userId) {
+            return new BookingException("You are not the owner of this booking request");
         }
+        return new BookingException("Booking status is already changed");
+    }
 
-        Status decision = approved ? Status.APPROVED : Status.REJECTED;
+    private BookingTransitionResult transition(List<Integer> bookingIds, BookingQuery.Perspective perspective,
+                                               int userId, Status status) {
+        Set<Integer> ids = new LinkedHashSet<>(bookingIds);
+        if (ids.size() > MAX_BULK_SIZE) {
+            throw new BookingException("At most " + MAX_BULK_SIZE + " bookings can be updated at once");
+        }
 
-        booking.setStatus(decision);
-        return bookingRepository.save(booking);
+        List<Integer> transitioned = bookingRepository.transitionWaiting(ids, perspective, userId, status).stream()
+                .map(BookingParties::id)
+                .collect(Collectors.toList());
+        // the index forgets a booking's item once it stops being active, so look the items up first
+        Set<Integer> freedItems = new HashSet<>();
+        for (int id : transitioned) {
+            Integer itemId = bookingIntervalIndex.itemOf(id);
+            if (itemId != null && status != Status.APPROVED) {
+                freedItems.add(itemId);
+            }
+            bookingIntervalIndex.updateStatus(id, status);
+        }
+        freedItems.forEach(this::promoteWaitlisted);
 
+        Set<Integer> done = new HashSet<>(transitioned);
+        List<Integer> skipped = ids.stream()
+                .filter(id -> !done.contains(id))
+                .collect(Collectors.toList());
 
+        return new BookingTransitionResult(status, transitioned, skipped);
     }
 
-    @Override
-    public List<Booking> getBookingsByBooker(int bookerId, State state, int from, int size) {
-        userService.getUserById(bookerId);
+    private void insertCandidates(User booker, Map<Integer, Item> items, List<BookingRequest> requests,
+                                  List<Integer> candidates, BookingBatchResult[] results) {
+
+        Set<Integer> itemIds = candidates.stream()
+                .map(i -> requests.get(i).itemId())
+                .collect(Collectors.toSet());
+        LocalDateTime windowStart = candidates.stream().map(i -> requests.get(i).start())
+                .min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime windowEnd = candidates.stream().map(i -> requests.get(i).end())
+                .max(Comparator.naturalOrder()).orElseThrow();
+
+        // sweep each item's candidates in start order: the earliest request wins a contested range
+        candidates.sort(Comparator.<Integer>comparingInt(i -> requests.get(i).itemId())
+                .thenComparing(i -> requests.get(i).start())
+                .thenComparingInt(i -> i));
+
+        List<Lock> locks = itemLockStripes.forItems(itemIds);
+        ItemLockStripes.lockAll(locks);
+        try {
+            bookingIntervalIndex.refresh(itemIds, windowStart, windowEnd,
+                    bookingRepository.findActiveSlotsForItems(itemIds, windowStart, windowEnd));
+
+            BookingIntervalIndex accepted = new BookingIntervalIndex();
+            List<Integer> acceptedIndexes = new ArrayList<>();
+            List<Booking> bookings = new ArrayList<>();
+
+            for (int i : candidates) {
+                BookingRequest request = requests.get(i);
+                Status conflict = bookingIntervalIndex.findConflict(request.itemId(), request.start(), request.end());
+                if (conflict == null) {
+                    conflict = accepted.findConflict(request.itemId(), request.start(), request.end());
+                }
+                if (conflict != null) {
+                    results[i] = BookingBatchResult.failed(i, conflictException(conflict).getMessage());
+                    continue;
+                }
+                if (bookingHolds.conflicts(request.itemId(), request.start(), request.end(), booker.getId())) {
+                    results[i] = BookingBatchResult.failed(i, holdConflictException().getMessage());
+                    continue;
+                }
+
+                Booking booking = new Booking();
+                booking.setStart(request.start());
+                booking.setEnd(request.end());
+                booking.setBooker(booker);
+                booking.setItem(items.get(request.itemId()));
+                booking.setStatus(Status.WAITING);
+
+                // batch entries have no id yet, so key them by a placeholder that cannot clash
+                accepted.add(new BookingSlot(-1 - i, request.itemId(), request.start(), request.end(), Status.WAITING));
+                acceptedIndexes.add(i);
+                bookings.add(booking);
+            }
+
+            try {
+                bookingRepository.insertAll(bookings);
+                for (int k = 0; k < bookings.size(); k++) {
+                    indexCreated(bookings.get(k));
+                    results[acceptedIndexes.get(k)] = BookingBatchResult.created(acceptedIndexes.get(k), bookings.get(k));
+                }
+            } catch (DataIntegrityViolationException e) {
+                if (!isOverlapViolation(e)) {
+                    throw e;
+                }
+                // another node won part of the batch, so find out entry by entry which ones still fit
+                for (int k = 0; k < bookings.size(); k++) {
+                    results[acceptedIndexes.get(k)] = saveBatchEntry(acceptedIndexes.get(k), bookings.get(k));
+                }
+            }
+        } finally {
+            ItemLockStripes.unlockAll(locks);
+        }
+    }
 
-        switch (state) {
-            case ALL:
-                return bookingRepository.findAllBookingsForBooker(bookerId, from, size);
-            case CURRENT:
-                return bookingRepository.findCurrentBookingsForBooker(bookerId, from, size);
-            case PAST:
-                return bookingRepository.findPastBookingsForBooker(bookerId, from, size);
-            case FUTURE:
-                return bookingRepository.findFutureBookingsForBooker(bookerId, from, size);
-            case WAITING:
-                return bookingRepository.findWaitingBookingsForBooker(bookerId, from, size);
-            case REJECTED:
-                return bookingRepository.findRejectedBookingsForBooker(bookerId, from, size);
-            default:
-                throw new BookingException("Unknown state!");
+    // caller holds the locks of every item in the cart
+    private void checkCart(List<Booking> bookings, int bookerId) {
+        BookingIntervalIndex accepted = new BookingIntervalIndex();
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            int itemId = booking.getItem().getId();
+            Status conflict = bookingIntervalIndex.findConflict(itemId, booking.getStart(), booking.getEnd());
+            if (conflict == null) {
+                conflict = accepted.findConflict(itemId, booking.getStart(), booking.getEnd());
+            }
+            if (conflict != null) {
+                throw cartEntryException(i, conflictException(conflict));
+            }
+            if (bookingHolds.conflicts(itemId, booking.getStart(), booking.getEnd(), bookerId)) {
+                throw cartEntryException(i, holdConflictException());
+            }
+            accepted.add(new BookingSlot(-1 - i, itemId, booking.getStart(), booking.getEnd(), Status.WAITING));
         }
     }
 
+    private BookingBatchResult saveBatchEntry(int index, Booking booking) {
+        int itemId = booking.getItem().getId();
+        try {
+            Booking savedBooking = bookingRepository.save(booking);
+            indexCreated(savedBooking);
+            return BookingBatchResult.created(index, savedBooking);
+        } catch (DataIntegrityViolationException e) {
+            if (!isOverlapViolation(e)) {
+                throw e;
+            }
+            Status conflict = reloadConflict(itemId, booking.getStart(), booking.getEnd());
+            return BookingBatchResult.failed(index, conflictException(conflict).getMessage());
+        }
+    }
 
-    @Override
-    public List<Booking> getBookingsByOwner(int ownerId, State state, int from, int size) {
-        userService.getUserById(ownerId);
+    private void validateBooking(Item item, LocalDateTime start, LocalDateTime end) {
+        if (!item.getAvailable()) {
+            throw new BookingException("Item is not available");
+        }
 
-        switch (state) {
-            case ALL:
-                return bookingRepository.findAllBookingsForOwner(ownerId, from, size);
-            case CURRENT:
-                return bookingRepository.findCurrentBookingsForOwner(ownerId, from, size);
-            case PAST:
-                return bookingRepository.findPastBookingsForOwner(ownerId, from, size);
-            case FUTURE:
-                return bookingRepository.findFutureBookingsForOwner(ownerId, from, size);
-            case WAITING:
-                return bookingRepository.findWaitingBookingsForOwner(ownerId, from, size);
-            case REJECTED:
-                return bookingRepository.findRejectedBookingsForOwner(ownerId, from, size);
-            default:
-                throw new BookingException("Unknown state!");
+        if (start == null || end == null) {
+            throw new BookingException("The booking start/end time cannot be null");
+        }
+        if (start.isBefore(LocalDateTime.now())) {
+            throw new BookingException("Booking start date cannot be in the past");
+        }
+        if (!end.isAfter(start)) {
+            throw new BookingException("End time must be after start time");
         }
     }
 
-    @Override
-    public List<Booking> getPastBookingsByBookerForItem(int bookerId, int itemId) {
-        userService.getUserById(bookerId);
-        itemService.getItemById(itemId);
+    // caller holds the item lock
+    private Booking insertLocked(Booking booking) {
+        int itemId = booking.getItem().getId();
+        Status conflict = confirmedConflict(itemId, booking.getStart(), booking.getEnd());
+        if (conflict != null) {
+            throw conflictException(conflict);
+        }
+        if (bookingHolds.conflicts(itemId, booking.getStart(), booking.getEnd(), booking.getBooker().getId())) {
+            throw holdConflictException();
+        }
+
+        Booking savedBooking;
+        try {
+            savedBooking = bookingRepository.save(booking);
+        } catch (DataIntegrityViolationException e) {
+            if (!isOverlapViolation(e)) {
+                throw e;
+            }
+            // the booking that won lives on another node or predates the index, so learn about it now
+            throw conflictException(reloadConflict(itemId, booking.getStart(), booking.getEnd()));
+        }
+        indexCreated(savedBooking);
+
+        return savedBooking;
+    }
+
+    /**
+     * Books every waitlisted request of the item that fits now, earliest request first. Runs after
+     * a cancel or reject has already been stored, so a failure here leaves the rest queued for the
+     * next one instead of failing the caller.
+     */
+    private void promoteWaitlisted(int itemId) {
+        if (bookingWaitlist.isEmpty(itemId)) {
+            return;
+        }
 
-        return bookingRepository.findAllPastBookingsForBooker(bookerId, itemId);
+        Lock itemLock = itemLockStripes.forItem(itemId);
+        itemLock.lock();
+        BookingWaitlistEntry entry = null;
+        try {
+            bookingWaitlist.dropStarted(itemId, LocalDateTime.now());
+            Item item = null;
+            for (BookingWaitlistEntry next : bookingWaitlist.inOrder(itemId)) {
+                entry = next;
+                if (confirmedConflict(itemId, entry.start(), entry.end()) != null
+                        || bookingHolds.conflicts(itemId, entry.start(), entry.end(), entry.bookerId())) {
+                    continue;
+                }
+                if (item == null) {
+                    try {
+                        item = itemService.getItemById(itemId);
+                    } catch (ItemNotFoundException e) {
+                        // deleted meanwhile, so nobody can be promoted onto it any more
+                        bookingWaitlist.inOrder(itemId).forEach(bookingWaitlist::remove);
+                        return;
+                    }
+                }
+                if (!item.getAvailable()) {
+                    return;
+                }
+
+                Booking booking = new Booking();
+                booking.setStart(entry.start());
+                booking.setEnd(entry.end());
+                booking.setItem(item);
+                booking.setStatus(Status.WAITING);
+                try {
+                    booking.setBooker(userService.getUserById(entry.bookerId()));
+                } catch (UserNotFoundException e) {
+                    bookingWaitlist.remove(entry);
+                    continue;
+                }
+
+                try {
+                    insertLocked(booking);
+                } catch (BookingException e) {
+                    // taken on another node meanwhile; the index knows about it now
+                    continue;
+                }
+                bookingWaitlist.remove(entry);
+            }
+        } catch (DataAccessException e) {
+            // the entries stay queued and are tried again when the next booking of the item frees up
+            log.warn("Could not promote waitlist of item {} at entry {}", itemId, entry, e);
+        } catch (RuntimeException e) {
+            // the freeing transition has already happened, so its caller still gets its result
+            log.error("Promoting waitlist of item {} failed at entry {}", itemId, entry, e);
+        } finally {
+            itemLock.unlock();
+        }
+    }
+
+    /**
+     * A conflict the database confirms. The index may still hold bookings that were cancelled,
+     * rejected or expired on another node, so a hit is checked against the stored bookings and
+     * stale entries are dropped before anyone is refused. Caller holds the item lock.
+     */
+    private Status confirmedConflict(int itemId, LocalDateTime start, LocalDateTime end) {
+        if (bookingIntervalIndex.findConflict(itemId, start, end) == null) {
+            return null;
+        }
+        return reloadConflict(itemId, start, end);
+    }
+
+    private Status reloadConflict(int itemId, LocalDateTime start, LocalDateTime end) {
+        bookingIntervalIndex.refresh(List.of(itemId), start, end,
+                bookingRepository.findActiveSlotsForItem(itemId, start, end));
+        return bookingIntervalIndex.findConflict(itemId, start, end);
+    }
+
+    private BookingException conflictException(Status conflict) {
+        if (conflict == Status.APPROVED) {
+            return new BookingException("Booking already exists and is approved");
+        }
+        return new BookingException("Booking request for this time already exists");
+    }
+
+    private BookingException cartEntryException(int index, BookingException cause) {
+        return new BookingException("Cart entry " + index + ": " + cause.getMessage());
+    }
+
+    private BookingException holdConflictException() {
+        return new BookingException("Item is on hold for this time");
+    }
+
+    private BookingHold findHold(int holdId, int userId) {
+        BookingHold hold = bookingHolds.find(holdId);
+        if (hold == null) {
+            throw new BookingNotFoundException("Hold with id " + holdId + " not found");
+        }
+        if (hold.userId() != userId) {
+            throw new BookingException("You are not the holder of this hold");
+        }
+        return hold;
+    }
+
+    // every new booking is WAITING: it blocks its range until decided, or until it expires at its start
+    private void indexCreated(Booking booking) {
+        bookingIntervalIndex.add(BookingSlot.of(booking));
+        bookingExpiry.track(booking.getId(), booking.getStart());
+    }
+
+    private boolean isOverlapViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains(OVERLAP_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
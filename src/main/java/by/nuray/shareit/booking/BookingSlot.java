@@ -0,0 +1,11 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+public record BookingSlot(int id, int itemId, LocalDateTime start, LocalDateTime end, Status status) {
+
+    public static BookingSlot of(Booking booking) {
+        return new BookingSlot(booking.getId(), booking.getItem().getId(),
+                booking.getStart(), booking.getEnd(), booking.getStatus());
+    }
+}
@@ -0,0 +1,50 @@
+package by.nuray.shareit.booking;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the booking counters and writes the outbox event whenever a booking is inserted or
+ * changes status through JPA. Runs during the flush, inside the transaction that writes the row.
+ */
+@Component
+public class BookingStatusListener {
+
+    private final BookingCounters bookingCounters;
+    private final BookingOutbox bookingOutbox;
+
+    // lazy: Hibernate builds listeners while the EntityManagerFactory that JdbcTemplate waits for is still starting
+    public BookingStatusListener(@Lazy BookingCounters bookingCounters, @Lazy BookingOutbox bookingOutbox) {
+        this.bookingCounters = bookingCounters;
+        this.bookingOutbox = bookingOutbox;
+    }
+
+    @PostLoad
+    public void remember(Booking booking) {
+        booking.setPersistedStatus(booking.getStatus());
+    }
+
+    @PostPersist
+    public void created(Booking booking) {
+        bookingCounters.recordCreated(List.of(booking));
+        bookingOutbox.recordCreated(List.of(booking));
+        booking.setPersistedStatus(booking.getStatus());
+    }
+
+    @PostUpdate
+    public void updated(Booking booking) {
+        Status previous = booking.getPersistedStatus();
+        if (previous != null && previous != booking.getStatus()) {
+            int bookerId = booking.getBooker().getId();
+            int ownerId = booking.getItem().getOwner().getId();
+            bookingCounters.recordTransition(bookerId, ownerId, previous, booking.getStatus());
+            bookingOutbox.recordTransition(booking.getId(), bookerId, ownerId, previous, booking.getStatus());
+        }
+        booking.setPersistedStatus(booking.getStatus());
+    }
+}
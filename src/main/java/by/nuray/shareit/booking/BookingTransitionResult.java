@@ -0,0 +1,10 @@
+package by.nuray.shareit.booking;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk status change: which bookings moved to {@code status} and which were
+ * left alone because they were missing, not WAITING or not the caller's.
+ */
+public record BookingTransitionResult(Status status, List<Integer> transitioned, List<Integer> skipped) {
+}
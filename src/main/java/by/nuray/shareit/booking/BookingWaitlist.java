@@ -0,0 +1,123 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory waitlists of this node, one priority queue per item ordered by request time.
+ * A queue is only touched under its item's {@link ItemLockStripes} lock, the same lock that
+ * guards booking inserts, so promoting an entry can never race a regular booking.
+ */
+@Component
+public class BookingWaitlist {
+
+    private static final Comparator<BookingWaitlistEntry> REQUEST_ORDER =
+            Comparator.comparing(BookingWaitlistEntry::requestedAt)
+                    .thenComparingInt(BookingWaitlistEntry::id);
+
+    private static final PriorityQueue<BookingWaitlistEntry> EMPTY = new PriorityQueue<>(REQUEST_ORDER);
+
+    private final int maxPerItem;
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<Integer, BookingWaitlistEntry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, PriorityQueue<BookingWaitlistEntry>> queues = new ConcurrentHashMap<>();
+
+    public BookingWaitlist(@Value("${shareit.booking.waitlist.max-per-item:100}") int maxPerItem) {
+        this.maxPerItem = maxPerItem;
+    }
+
+    /**
+     * @return the queued entry, or {@code null} if the item's waitlist is full
+     */
+    public BookingWaitlistEntry add(int itemId, int bookerId, LocalDateTime start, LocalDateTime end) {
+        PriorityQueue<BookingWaitlistEntry> queue = queues.computeIfAbsent(itemId,
+                id -> new PriorityQueue<>(REQUEST_ORDER));
+        if (queue.size() >= maxPerItem) {
+            return null;
+        }
+        BookingWaitlistEntry entry = new BookingWaitlistEntry(ids.incrementAndGet(), itemId, bookerId,
+                start, end, LocalDateTime.now());
+        queue.add(entry);
+        entries.put(entry.id(), entry);
+        return entry;
+    }
+
+    /**
+     * The booker's entry for the item whose range overlaps [start, end), or {@code null} if there is none.
+     */
+    public BookingWaitlistEntry findOverlapping(int itemId, int bookerId, LocalDateTime start, LocalDateTime end) {
+        for (BookingWaitlistEntry entry : queues.getOrDefault(itemId, EMPTY)) {
+            if (entry.bookerId() == bookerId && entry.start().isBefore(end) && entry.end().isAfter(start)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public BookingWaitlistEntry find(int entryId) {
+        return entries.get(entryId);
+    }
+
+    public boolean isEmpty(int itemId) {
+        return !queues.containsKey(itemId);
+    }
+
+    /**
+     * The item's entries, earliest request first.
+     */
+    public List<BookingWaitlistEntry> inOrder(int itemId) {
+        PriorityQueue<BookingWaitlistEntry> queue = queues.get(itemId);
+        if (queue == null) {
+            return List.of();
+        }
+        PriorityQueue<BookingWaitlistEntry> copy = new PriorityQueue<>(queue);
+        List<BookingWaitlistEntry> ordered = new ArrayList<>(copy.size());
+        while (!copy.isEmpty()) {
+            ordered.add(copy.poll());
+        }
+        return ordered;
+    }
+
+    /**
+     * @return {@code false} if the entry was already gone
+     */
+    public boolean remove(BookingWaitlistEntry entry) {
+        if (!entries.remove(entry.id(), entry)) {
+            return false;
+        }
+        queues.computeIfPresent(entry.itemId(), (itemId, queue) -> {
+            queue.remove(entry);
+            return queue.isEmpty() ? null : queue;
+        });
+        return true;
+    }
+
+    /**
+     * Drops the item's entries whose range has already started; nobody can book those any more.
+     *
+     * @return number of entries dropped
+     */
+    public int dropStarted(int itemId, LocalDateTime now) {
+        int dropped = 0;
+        for (BookingWaitlistEntry entry : inOrder(itemId)) {
+            if (!entry.start().isAfter(now) && remove(entry)) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,10 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * A booking request for [start, end) that found the range taken and waits for it to free up.
+ */
+public record BookingWaitlistEntry(int id, int itemId, int bookerId, LocalDateTime start, LocalDateTime end,
+                                   LocalDateTime requestedAt) {
+}
@@ -0,0 +1,19 @@
+package by.nuray.shareit.booking;
+
+/**
+ * Outcome of joining a waitlist: the booking, if the range was free after all, or the queued entry.
+ */
+public record BookingWaitlistResult(Booking booking, BookingWaitlistEntry entry) {
+
+    public static BookingWaitlistResult booked(Booking booking) {
+        return new BookingWaitlistResult(booking, null);
+    }
+
+    public static BookingWaitlistResult queued(BookingWaitlistEntry entry) {
+        return new BookingWaitlistResult(null, entry);
+    }
+
+    public boolean isBooked() {
+        return booking != null;
+    }
+}
@@ -0,0 +1,76 @@
+package by.nuray.shareit.booking;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Insert-only set of non-zero longs in a single open-addressing {@link AtomicLongArray}, so a
+ * lookup is a few array reads and an insert a compare-and-set, with no boxing or locks.
+ * The table never grows; once it holds {@code maxSize} values further inserts are refused.
+ */
+class ConcurrentLongSet {
+
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+    ConcurrentLongSet(int maxSize) {
+        // at most half full keeps probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize * 2 - 1)) << 1;
+        this.table = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+    }
+
+    boolean contains(long value) {
+        for (int slot = slot(value); ; slot = (slot + 1) & mask) {
+            long current = table.get(slot);
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the set is full and {@code value} was not already in it
+     */
+    boolean add(long value) {
+        for (int slot = slot(value); ; slot = (slot + 1) & mask) {
+            long current = table.get(slot);
+            if (current == value) {
+                return true;
+            }
+            if (current != EMPTY) {
+                continue;
+            }
+            if (size.incrementAndGet() > maxSize) {
+                size.decrementAndGet();
+                return contains(value);
+            }
+            if (table.compareAndSet(slot, EMPTY, value)) {
+                return true;
+            }
+            // lost the slot to another insert; give the reservation back and keep probing from here
+            size.decrementAndGet();
+            if (table.get(slot) == value) {
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+
+    private int slot(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,48 @@
+package by.nuray.shareit.booking;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends relayed events to a local file, one JSON object per line. Only active when
+ * {@code shareit.booking.outbox.file} is set; meant for tests and local runs.
+ */
+@Component
+@ConditionalOnProperty("shareit.booking.outbox.file")
+public class FileBookingEventSink implements BookingEventSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileBookingEventSink(@Value("${shareit.booking.outbox.file}") Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<BookingEvent> events) {
+        List<String> lines = new ArrayList<>(events.size());
+        try {
+            for (BookingEvent event : events) {
+                lines.add(objectMapper.writeValueAsString(event));
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize booking event", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands every relayed event to the {@code @EventListener(BookingEvent.class)} methods of this
+ * application. Listeners run on the relay thread, inside the relay transaction.
+ */
+@Component
+public class InProcessBookingEventSink implements BookingEventSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InProcessBookingEventSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<BookingEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,13 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Free and busy ranges of an item over [from, to), aligned to slots of
+ * {@code granularity} minutes counted from {@code from}. A slot touched by any
+ * WAITING or APPROVED booking is busy.
+ */
+public record ItemAvailability(int itemId, LocalDateTime from, LocalDateTime to, int granularity,
+                               List<TimeRange> free, List<TimeRange> busy) {
+}
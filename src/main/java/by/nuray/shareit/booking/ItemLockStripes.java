@@ -0,0 +1,74 @@
+package by.nuray.shareit.booking;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks shared by all items. Bookings of the same item always
+ * map to the same lock, while different items rarely contend.
+ */
+@Component
+public class ItemLockStripes {
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final Lock[] locks;
+    private final int mask;
+
+    public ItemLockStripes() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ItemLockStripes(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public Lock forItem(int itemId) {
+        return locks[stripe(itemId)];
+    }
+
+    /**
+     * Locks covering all given items, in ascending stripe order. Acquiring them in
+     * this order (and releasing in reverse) keeps multi-item callers deadlock-free.
+     */
+    public List<Lock> forItems(Collection<Integer> itemIds) {
+        return itemIds.stream()
+                .mapToInt(this::stripe)
+                .distinct()
+                .sorted()
+                .mapToObj(stripe -> locks[stripe])
+                .toList();
+    }
+
+    public static void lockAll(List<Lock> locks) {
+        for (int i = 0; i < locks.size(); i++) {
+            try {
+                locks.get(i).lock();
+            } catch (RuntimeException e) {
+                unlockAll(locks.subList(0, i));
+                throw e;
+            }
+        }
+    }
+
+    public static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private int stripe(int itemId) {
+        // spread sequential ids so neighbouring items land on different stripes
+        int hash = itemId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
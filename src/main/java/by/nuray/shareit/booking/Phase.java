@@ -0,0 +1,21 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Where a booking sits relative to the current time. Persisted with the booking and
+ * moved forward by {@link BookingPhaseScheduler}, so CURRENT/PAST/FUTURE lists are
+ * plain equality filters.
+ */
+public enum Phase {
+    FUTURE,
+    CURRENT,
+    PAST;
+
+    public static Phase of(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        if (!end.isAfter(now)) {
+            return PAST;
+        }
+        return start.isAfter(now) ? FUTURE : CURRENT;
+    }
+}
@@ -0,0 +1,4 @@
+package by.nuray.shareit.booking;
+
+public record PhaseCount(Phase phase, long count) {
+}
@@ -0,0 +1,9 @@
+package by.nuray.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open time range [start, end).
+ */
+public record TimeRange(LocalDateTime start, LocalDateTime end) {
+}
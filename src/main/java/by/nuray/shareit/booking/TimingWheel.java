@@ -0,0 +1,139 @@
+package by.nuray.shareit.booking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of int ids, in ticks of whatever unit the caller chooses.
+ * Four levels of 64 slots cover 64^4 ticks ahead; a deadline is filed in the coarsest
+ * level it fits and moves down a level whenever that slot comes round, so scheduling and
+ * each tick are O(1) however many deadlines are pending. Deadlines beyond the top level
+ * ride its last slot until they come into range.
+ */
+public class TimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final long HORIZON = 1L << (SLOT_BITS * LEVELS);
+
+    private final Bucket[][] levels = new Bucket[LEVELS][SLOTS];
+    // scheduled at or before the current tick; handed out by the next advance
+    private final Bucket due = new Bucket();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long startTick) {
+        this.currentTick = startTick;
+    }
+
+    public synchronized void schedule(int id, long deadlineTick) {
+        file(id, deadlineTick);
+        size++;
+    }
+
+    /**
+     * Moves the wheel forward to {@code toTick} and removes every id whose deadline has been reached.
+     *
+     * @return the expired ids, in deadline order tick by tick
+     */
+    public synchronized List<Integer> advance(long toTick) {
+        List<Integer> expired = new ArrayList<>();
+        due.drainTo(expired);
+        while (currentTick < toTick) {
+            currentTick++;
+            // top down, so entries cascading from a coarser level can still land in a finer slot due now
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            Bucket bucket = detach(0, slot(currentTick, 0));
+            if (bucket != null) {
+                bucket.drainTo(expired);
+            }
+            due.drainTo(expired);
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized long currentTick() {
+        return currentTick;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+
+    private void file(int id, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(id, deadlineTick);
+            return;
+        }
+        if (delta >= HORIZON) {
+            // parked in the farthest slot of the top level, which comes round before the horizon
+            bucket(LEVELS - 1, slot(currentTick + HORIZON - 1, LEVELS - 1)).add(id, deadlineTick);
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+        bucket(level, slot(deadlineTick, level)).add(id, deadlineTick);
+    }
+
+    private void cascade(int level) {
+        Bucket bucket = detach(level, slot(currentTick, level));
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 0; i < bucket.size; i++) {
+            file(bucket.ids[i], bucket.deadlines[i]);
+        }
+    }
+
+    private Bucket bucket(int level, int slot) {
+        Bucket bucket = levels[level][slot];
+        if (bucket == null) {
+            bucket = new Bucket();
+            levels[level][slot] = bucket;
+        }
+        return bucket;
+    }
+
+    private Bucket detach(int level, int slot) {
+        Bucket bucket = levels[level][slot];
+        levels[level][slot] = null;
+        return bucket;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+
+
+    private static final class Bucket {
+
+        private int[] ids = new int[4];
+        private long[] deadlines = new long[4];
+        private int size;
+
+        void add(int id, long deadline) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                deadlines = Arrays.copyOf(deadlines, size * 2);
+            }
+            ids[size] = id;
+            deadlines[size] = deadline;
+            size++;
+        }
+
+        void drainTo(List<Integer> target) {
+            for (int i = 0; i < size; i++) {
+                target.add(ids[i]);
+            }
+            size = 0;
+        }
+    }
+}
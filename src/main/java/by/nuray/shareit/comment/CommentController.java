@@ -2,7 +2,6 @@ package by.nuray.shareit.comment;
 
 
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -18,32 +17,22 @@ public class CommentController {
 
 
     private final CommentService commentService;
-    private final ModelMapper modelMapper;
+    private final CommentMapper commentMapper;
 
-    public CommentController(CommentService commentService, ModelMapper modelMapper) {
+    public CommentController(CommentService commentService, CommentMapper commentMapper) {
         this.commentService = commentService;
-        this.modelMapper = modelMapper;
+        this.commentMapper = commentMapper;
     }
 
 
     @GetMapping("/item/{itemId}")
     public ResponseEntity<List<CommentDto>> getCommentsByItem(@PathVariable int itemId) {
-        List<CommentDto> comments = commentService.getCommentsByItem(itemId)
-                .stream()
-                .map(comment -> modelMapper.map(comment, CommentDto.class))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(comments);
+        return ResponseEntity.ok(commentService.getCommentsByItem(itemId));
     }
 
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<CommentDto>> getCommentsByUser(@PathVariable int userId) {
-        List<CommentDto> comments = commentService.getCommentsByUser(userId)
-                .stream()
-                .map(comment -> modelMapper.map(comment, CommentDto.class))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(comments);
+        return ResponseEntity.ok(commentService.getCommentsByUser(userId));
     }
 
     @PostMapping
@@ -60,9 +49,9 @@ public class CommentController {
                             .collect(Collectors.toList()));
         }
 
-        Comment comment = modelMapper.map(commentDto, Comment.class);
+        Comment comment = commentMapper.toEntity(commentDto);
         Comment savedComment = commentService.addComment(comment, itemId, authorId);
-        return ResponseEntity.status(HttpStatus.CREATED).body(modelMapper.map(savedComment, CommentDto.class));
+        return ResponseEntity.status(HttpStatus.CREATED).body(commentMapper.toDto(savedComment));
     }
 
 }
@@ -0,0 +1,18 @@
+package by.nuray.shareit.comment;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface CommentMapper {
+
+    @Mapping(target = "authorId", source = "author.id")
+    @Mapping(target = "itemId", source = "item.id")
+    CommentDto toDto(Comment comment);
+
+    @Mapping(target = "author", ignore = true)
+    @Mapping(target = "item", ignore = true)
+    Comment toEntity(CommentDto commentDto);
+}
@@ -1,12 +1,19 @@
 package by.nuray.shareit.comment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Integer> {
 
-    List<Comment> findByItemId(int itemId);
-    List<Comment> findByAuthorId(int userId);
+    @Query("SELECT new by.nuray.shareit.comment.CommentDto(c.id, c.text, c.author.id, c.item.id, c.createdAt) " +
+            "FROM Comment c WHERE c.item.id = :itemId")
+    List<CommentDto> findByItemId(@Param("itemId") int itemId);
+
+    @Query("SELECT new by.nuray.shareit.comment.CommentDto(c.id, c.text, c.author.id, c.item.id, c.createdAt) " +
+            "FROM Comment c WHERE c.author.id = :userId")
+    List<CommentDto> findByAuthorId(@Param("userId") int userId);
 
 }
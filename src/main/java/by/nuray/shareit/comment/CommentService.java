@@ -4,9 +4,9 @@ import java.util.List;
 
 public interface CommentService {
 
-    List<Comment> getCommentsByItem(int itemId);
+    List<CommentDto> getCommentsByItem(int itemId);
 
-    List<Comment> getCommentsByUser(int userId);
+    List<CommentDto> getCommentsByUser(int userId);
 
     Comment addComment(Comment comment, int itemId, int authorId);
 }
@@ -30,13 +30,13 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public List<Comment> getCommentsByItem(int itemId) {
+    public List<CommentDto> getCommentsByItem(int itemId) {
 
         return commentRepository.findByItemId(itemId);
     }
 
     @Override
-    public List<Comment> getCommentsByUser(int userId) {
+    public List<CommentDto> getCommentsByUser(int userId) {
 
         return commentRepository.findByAuthorId(userId);
     }
@@ -53,10 +53,7 @@ public class CommentServiceImpl implements CommentService {
             throw new CommentException("Comment text cannot be empty");
         }
 
-        boolean hasRented = bookingService.getPastBookingsByBookerForItem(authorId, itemId).size() > 0;
-
-
-        if (!hasRented) {
+        if (!bookingService.hasRented(authorId, itemId)) {
             throw new CommentException("You cannot comment this item as you have not rented");
         }
         comment.setAuthor(author);
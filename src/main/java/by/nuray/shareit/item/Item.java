@@ -13,7 +13,9 @@ import lombok.Setter;
 import java.util.List;
 
 @Entity
-@Table(name = "items")
+@Table(name = "items", indexes = {
+        @Index(name = "idx_items_owner", columnList = "owner_id, id")
+})
 @Getter
 @Setter
 public class Item {
@@ -37,11 +39,11 @@ public class Item {
     private Boolean available;
 
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "request_id", nullable = true)
     private ItemRequest request;
 
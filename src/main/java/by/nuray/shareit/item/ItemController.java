@@ -1,15 +1,20 @@
 package by.nuray.shareit.item;
 
 
+import by.nuray.shareit.booking.BookingHold;
+import by.nuray.shareit.booking.BookingService;
+import by.nuray.shareit.booking.ItemAvailability;
+import by.nuray.shareit.booking.TimeRange;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
-import org.modelmapper.ModelMapper;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,12 +22,14 @@ import java.util.stream.Collectors;
 @RequestMapping("/items")
 public class ItemController {
 
-    private final ModelMapper modelMapper;
+    private final ItemMapper itemMapper;
     private final ItemService itemService;
+    private final BookingService bookingService;
 
-    public ItemController(ModelMapper modelMapper, ItemService itemService) {
-        this.modelMapper = modelMapper;
+    public ItemController(ItemMapper itemMapper, ItemService itemService, BookingService bookingService) {
+        this.itemMapper = itemMapper;
         this.itemService = itemService;
+        this.bookingService = bookingService;
     }
 
 
@@ -32,16 +39,35 @@ public class ItemController {
             @RequestParam(defaultValue = "0") int from,
             @RequestParam(defaultValue = "10") int size) {
 
-        return itemService.getAllItems(userId, from, size)
-                .stream()
-                .map(item -> modelMapper.map(item, ItemDto.class))
-                .collect(Collectors.toList());
+        return itemService.getAllItems(userId, from, size);
     }
 
 
     @GetMapping("/{id}")
     public ItemDto getItemById(@PathVariable("id") int id) {
-        return modelMapper.map(itemService.getItemById(id), ItemDto.class);
+        return itemMapper.toDto(itemService.getItemById(id));
+    }
+
+
+    @GetMapping("/{id}/availability")
+    public ItemAvailability getAvailability(
+            @PathVariable("id") int id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "60") int granularity) {
+
+        return bookingService.getItemAvailability(id, from, to, granularity);
+    }
+
+
+    @PostMapping("/{id}/holds")
+    public ResponseEntity<BookingHold> createHold(
+            @PathVariable("id") int id,
+            @RequestBody TimeRange range,
+            @RequestHeader("X-Sharer-User-Id") int userId) {
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(bookingService.createHold(id, userId, range.start(), range.end()));
     }
 
 
@@ -51,7 +77,7 @@ public class ItemController {
                                         BindingResult bindingResult,
                                         @RequestHeader("X-Sharer-User-Id") int ownerId) {
 
-        Item updated = modelMapper.map(itemDto, Item.class);
+        Item updated = itemMapper.toEntity(itemDto);
         if (bindingResult.hasErrors()) {
             return ResponseEntity.badRequest()
                     .body(bindingResult.getAllErrors().stream()
@@ -61,7 +87,7 @@ public class ItemController {
 
         itemService.updateItem(id, updated, ownerId);
 
-        return ResponseEntity.ok(modelMapper.map(updated, ItemDto.class));
+        return ResponseEntity.ok(itemMapper.toDto(updated));
 
 
     }
@@ -71,12 +97,7 @@ public class ItemController {
     public List<ItemDto> searchItem(@RequestParam @NotBlank String text,
                                     @RequestParam(defaultValue = "0") int from,
                                     @RequestParam(defaultValue = "10") int size) {
-        List<Item> foundItems = itemService.searchItemsPaged(text, from, size);
-
-        return foundItems
-                .stream()
-                .map(item -> modelMapper.map(item, ItemDto.class))
-                .collect(Collectors.toList());
+        return itemService.searchItemsPaged(text, from, size);
     }
 
 
@@ -92,7 +113,7 @@ public class ItemController {
                             .collect(Collectors.toList()));
         }
 
-        Item item = modelMapper.map(itemDto, Item.class);
+        Item item = itemMapper.toEntity(itemDto);
 
         Item savedItem;
         if (itemDto.getRequestId() != null) {
@@ -102,7 +123,7 @@ public class ItemController {
         }
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(modelMapper.map(savedItem, ItemDto.class));
+                .body(itemMapper.toDto(savedItem));
     }
 
 
@@ -0,0 +1,16 @@
+package by.nuray.shareit.item;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface ItemMapper {
+
+    @Mapping(target = "requestId", source = "request.id")
+    ItemDto toDto(Item item);
+
+    @Mapping(target = "request", ignore = true)
+    Item toEntity(ItemDto itemDto);
+}
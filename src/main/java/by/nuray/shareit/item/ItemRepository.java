@@ -13,21 +13,22 @@ public interface ItemRepository extends JpaRepository<Item, Integer> {
     List<Item> findByRequestId(int requestId);
 
 
-    @Query(value = "SELECT * FROM items WHERE owner_id = :userId LIMIT :size OFFSET :from",
-            nativeQuery = true)
-    List<Item> findAllByOwnerIdPaged(@Param("userId") int userId,
-                                     @Param("from") int from,
-                                     @Param("size") int size);
-
-
-    @Query(value = "SELECT * FROM items " +
-            "WHERE (name ILIKE CONCAT('%', :query, '%') " +
-            "OR description ILIKE CONCAT('%', :query, '%')) " +
-            "AND is_available = true " +
-            "LIMIT :size OFFSET :from", nativeQuery = true)
-    List<Item> searchAvailableItemsPaged(@Param("query") String query,
-                                         @Param("from") int from,
-                                         @Param("size") int size);
+    @Query("SELECT new by.nuray.shareit.item.ItemDto(i.name, i.description, i.available, i.request.id) " +
+            "FROM Item i WHERE i.owner.id = :userId ORDER BY i.id LIMIT :size OFFSET :from")
+    List<ItemDto> findAllByOwnerIdPaged(@Param("userId") int userId,
+                                        @Param("from") int from,
+                                        @Param("size") int size);
+
+
+    @Query("SELECT new by.nuray.shareit.item.ItemDto(i.name, i.description, i.available, i.request.id) " +
+            "FROM Item i " +
+            "WHERE (i.name ILIKE CONCAT('%', :query, '%') " +
+            "OR i.description ILIKE CONCAT('%', :query, '%')) " +
+            "AND i.available = true " +
+            "ORDER BY i.id LIMIT :size OFFSET :from")
+    List<ItemDto> searchAvailableItemsPaged(@Param("query") String query,
+                                            @Param("from") int from,
+                                            @Param("size") int size);
 
     @Query(value = "SELECT * FROM items " +
             "WHERE (name ILIKE CONCAT('%', :query, '%') " +
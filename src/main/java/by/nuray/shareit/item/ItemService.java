@@ -1,5 +1,6 @@
 package by.nuray.shareit.item;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ItemService {
@@ -10,8 +11,10 @@ public interface ItemService {
 
     public void deleteItem(int id,int userId);
     public Item getItemById(int id);
-    public List<Item> getAllItems(int userId,int from, int size);
-    public List<Item> searchItemsPaged(String itemName, int from, int size);
+
+    public List<Item> getItemsByIds(Collection<Integer> ids);
+    public List<ItemDto> getAllItems(int userId,int from, int size);
+    public List<ItemDto> searchItemsPaged(String itemName, int from, int size);
 
     List<Item> search(String itemName);
 
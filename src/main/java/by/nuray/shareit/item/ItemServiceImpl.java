@@ -89,14 +89,19 @@ public class ItemServiceImpl implements ItemService {
     }
 
     @Override
-    public List<Item> getAllItems(int userId, int from, int size) {
+    public List<Item> getItemsByIds(Collection<Integer> ids) {
+        return itemRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<ItemDto> getAllItems(int userId, int from, int size) {
         userService.getUserById(userId);
         return itemRepository.findAllByOwnerIdPaged(userId, from, size);
     }
 
 
     @Override
-    public List<Item> searchItemsPaged(String itemName, int from, int size) {
+    public List<ItemDto> searchItemsPaged(String itemName, int from, int size) {
         if (itemName == null || itemName.isBlank()) {
             throw new ItemValidationException("The search string is required");
         }
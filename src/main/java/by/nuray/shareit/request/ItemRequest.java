@@ -36,7 +36,7 @@ public class ItemRequest {
     private LocalDateTime createdAt;
 
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "requestor_id", nullable = false)
     private User requester;
 
@@ -0,0 +1,13 @@
+package by.nuray.shareit.request;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface ItemRequestMapper {
+
+    ItemRequestDTO toDto(ItemRequest itemRequest);
+
+    ItemRequest toEntity(ItemRequestDTO itemRequestDTO);
+}
@@ -8,11 +8,14 @@ import java.util.List;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Integer> {
 
-    List<ItemRequest> findAllByRequestorIdOrderByCreatedAtDesc(int userId);
+    @Query("SELECT new by.nuray.shareit.request.ItemRequestDTO(r.id, r.description) FROM ItemRequest r " +
+            "WHERE r.requester.id = :userId ORDER BY r.createdAt DESC")
+    List<ItemRequestDTO> findAllByRequesterIdOrderByCreatedAtDesc(@Param("userId") int userId);
 
 
-    @Query(value = "SELECT * FROM requests WHERE requestor_id != :userId ORDER BY created_at DESC LIMIT :size OFFSET :from", nativeQuery = true)
-    List<ItemRequest> findRequestsFromOthers(@Param("userId") int userId,
+    @Query("SELECT new by.nuray.shareit.request.ItemRequestDTO(r.id, r.description) FROM ItemRequest r " +
+            "WHERE r.requester.id <> :userId ORDER BY r.createdAt DESC LIMIT :size OFFSET :from")
+    List<ItemRequestDTO> findRequestsFromOthers(@Param("userId") int userId,
                                              @Param("from") int from,
                                              @Param("size") int size);
 
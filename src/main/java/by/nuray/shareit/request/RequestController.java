@@ -2,7 +2,6 @@ package by.nuray.shareit.request;
 
 
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -17,28 +16,25 @@ import java.util.stream.Collectors;
 public class RequestController {
 
     private final RequestService requestService;
-    private final ModelMapper modelMapper;
+    private final ItemRequestMapper itemRequestMapper;
 
-    public RequestController(RequestService requestService, ModelMapper modelMapper) {
+    public RequestController(RequestService requestService, ItemRequestMapper itemRequestMapper) {
         this.requestService = requestService;
-        this.modelMapper = modelMapper;
+        this.itemRequestMapper = itemRequestMapper;
     }
 
 
     @GetMapping
     public List<ItemRequestDTO> getRequests(@RequestHeader("X-Sharer-User-Id") int userId) {
 
-        return requestService.getAllRequests(userId).
-                stream()
-                .map(request -> modelMapper.map(request, ItemRequestDTO.class))
-                .collect(Collectors.toList());
+        return requestService.getAllRequests(userId);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ItemRequestDTO> getRequestById(@RequestHeader("X-Sharer-User-Id") int userId,
                                                          @PathVariable("id") int id) {
         ItemRequest request = requestService.getRequestById(id, userId);
-        return ResponseEntity.ok(modelMapper.map(request, ItemRequestDTO.class));
+        return ResponseEntity.ok(itemRequestMapper.toDto(request));
     }
 
 
@@ -59,10 +55,10 @@ public class RequestController {
                     .collect(Collectors.toList()));
         }
 
-        ItemRequest itemRequest = modelMapper.map(itemRequestDTO, ItemRequest.class);
+        ItemRequest itemRequest = itemRequestMapper.toEntity(itemRequestDTO);
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(modelMapper.map(requestService.createRequest(itemRequest, requestorId), ItemRequestDTO.class));
+                .body(itemRequestMapper.toDto(requestService.createRequest(itemRequest, requestorId)));
 
     }
 
@@ -70,9 +66,7 @@ public class RequestController {
     @GetMapping("/all")
     public List<ItemRequestDTO> getAllRequestsFromOthers(@RequestHeader("X-Sharer-User-Id") int userId, @RequestParam(defaultValue = "0") int from, @RequestParam(defaultValue = "10") int size) {
 
-        return requestService.getRequestsFromOthers(userId, from, size)
-                .stream().map(request -> modelMapper.map(request, ItemRequestDTO.class))
-                .collect(Collectors.toList());
+        return requestService.getRequestsFromOthers(userId, from, size);
     }
 
 }
@@ -57,19 +57,12 @@ public class RequestServiceImpl implements RequestService {
 
 
     @Override
-    public List<ItemRequest> getAllRequests(int requestorId) {
+    public List<ItemRequestDTO> getAllRequests(int requestorId) {
 
-        User requestor = userService.getUserById(requestorId);
-
-        List<ItemRequest> requests =
-                itemRequestRepository.findAllByRequestorIdOrderByCreatedAtDesc(requestorId);
+        userService.getUserById(requestorId);
 
-        for (ItemRequest itemRequest : requests) {
-            List<Item> itemsForRequest = itemService.getItemsByRequestId(itemRequest.getId());
-            itemRequest.setItems(itemsForRequest);
-
-        }
-        return requests;
+        // the DTO carries no items, so there is no per-request item lookup to pay for
+        return itemRequestRepository.findAllByRequesterIdOrderByCreatedAtDesc(requestorId);
 
     }
 
@@ -95,7 +88,7 @@ public class RequestServiceImpl implements RequestService {
 
 
     @Override
-    public List<ItemRequest> getRequestsFromOthers(int userId, int from, int size) {
+    public List<ItemRequestDTO> getRequestsFromOthers(int userId, int from, int size) {
         userService.getUserById(userId);
         return itemRequestRepository.findRequestsFromOthers(userId, from, size);
     }
@@ -2,7 +2,6 @@ package by.nuray.shareit.user;
 
 
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -16,26 +15,26 @@ import java.util.stream.Collectors;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
 
 
-    public UserController(UserService userService, ModelMapper modelMapper) {
+    public UserController(UserService userService, UserMapper userMapper) {
         this.userService = userService;
-        this.modelMapper = modelMapper;
+        this.userMapper = userMapper;
     }
 
     @GetMapping
     public List<UserDTO> getAllUsers() {
         return userService.getAllUsers()
                 .stream()
-                .map(user -> modelMapper.map(user, UserDTO.class))
+                .map(userMapper::toDto)
                 .collect(Collectors.toList());
     }
 
 
     @GetMapping("/{id}")
     public ResponseEntity<UserDTO> getUserById(@PathVariable("id") int id) {
-        return ResponseEntity.ok(modelMapper.map(userService.getUserById(id), UserDTO.class));
+        return ResponseEntity.ok(userMapper.toDto(userService.getUserById(id)));
     }
 
 
@@ -43,7 +42,7 @@ public class UserController {
     public ResponseEntity<?> createPerson(@Valid @RequestBody UserDTO userDTO,
                                           BindingResult bindingResult) {
 
-        User user = modelMapper.map(userDTO, User.class);
+        User user = userMapper.toEntity(userDTO);
         if (bindingResult.hasErrors()) {
             return ResponseEntity.badRequest()
                     .body(bindingResult.getAllErrors().stream()
@@ -53,7 +52,7 @@ public class UserController {
 
         userService.createUser(user);
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(modelMapper.map(user, UserDTO.class));
+                .body(userMapper.toDto(user));
     }
 
 
@@ -61,7 +60,7 @@ public class UserController {
     public ResponseEntity<?> updateUser(@PathVariable int id,
                                         @RequestBody @Valid UserDTO userDTO,
                                         BindingResult bindingResult) {
-        User updatedUser = modelMapper.map(userDTO, User.class);
+        User updatedUser = userMapper.toEntity(userDTO);
 
         if (bindingResult.hasErrors()) {
             return ResponseEntity.badRequest().
@@ -72,7 +71,7 @@ public class UserController {
 
         userService.updateUser(id, updatedUser);
 
-        return ResponseEntity.ok(modelMapper.map(updatedUser, UserDTO.class));
+        return ResponseEntity.ok(userMapper.toDto(updatedUser));
 
     }
 
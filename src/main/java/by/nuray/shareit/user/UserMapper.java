@@ -0,0 +1,13 @@
+package by.nuray.shareit.user;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface UserMapper {
+
+    UserDTO toDto(User user);
+
+    User toEntity(UserDTO userDTO);
+}
@@ -0,0 +1,212 @@
+package by.nuray.shareit.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes the creating {@code POST}s safe to retry: bookings one at a time, in a batch, in a cart or
+ * through the waitlist, hold placement and confirmation, items and comments. A request carrying an {@code Idempotency-Key} header runs once per user and key; retries
+ * get the stored response back, and retries that arrive while the first attempt still runs wait for it.
+ * Server errors are not stored, so a retry after one executes again.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    // comments name their item in a header, so it is part of what makes two requests the same
+    private static final String ITEM_HEADER = "X-Item-Id";
+    private static final List<String> PATHS = List.of("/bookings", "/bookings/batch", "/bookings/cart",
+            "/bookings/waitlist", "/bookings/holds/*", "/items", "/items/*/holds", "/comments");
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final IdempotencyStore store;
+    private final long waitTimeoutMillis;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(@Value("${shareit.idempotency.max-entries:10000}") int maxEntries,
+                             @Value("${shareit.idempotency.ttl:86400000}") long ttlMillis,
+                             @Value("${shareit.idempotency.wait-timeout:10000}") long waitTimeoutMillis,
+                             ObjectMapper objectMapper) {
+        this.store = new IdempotencyStore(maxEntries, TimeUnit.MILLISECONDS.toNanos(ttlMillis), System::nanoTime);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || PATHS.stream().noneMatch(path -> PATH_MATCHER.match(path, request.getRequestURI()))
+                || request.getHeader(KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        CachedBodyRequest cached = new CachedBodyRequest(request);
+        IdempotencyStore.Key key = new IdempotencyStore.Key(String.valueOf(request.getHeader(USER_HEADER)),
+                request.getRequestURI(), request.getHeader(KEY_HEADER));
+        byte[] fingerprint = fingerprint(request, cached.body);
+
+        while (true) {
+            IdempotencyStore.Claim claim = store.claim(key, fingerprint);
+            IdempotencyStore.Entry entry = claim.entry();
+
+            if (claim.owner()) {
+                execute(cached, response, chain, entry);
+                return;
+            }
+            if (!Arrays.equals(entry.fingerprint(), fingerprint)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different request");
+                return;
+            }
+
+            try {
+                replay(response, entry.response().get(waitTimeoutMillis, TimeUnit.MILLISECONDS));
+                return;
+            } catch (ExecutionException e) {
+                // the first attempt failed without a stored result; claim the key again and run it here
+            } catch (TimeoutException e) {
+                writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            }
+        }
+    }
+
+
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain chain,
+                         IdempotencyStore.Entry entry) throws ServletException, IOException {
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, captured);
+        } catch (ServletException | IOException | RuntimeException e) {
+            store.abandon(entry, e);
+            throw e;
+        }
+
+        if (captured.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            store.abandon(entry, new IllegalStateException("Request failed with status " + captured.getStatus()));
+        } else {
+            store.complete(entry, new IdempotencyStore.StoredResponse(captured.getStatus(),
+                    captured.getContentType(), captured.getContentAsByteArray()));
+        }
+        captured.copyBodyToResponse();
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(message, System.currentTimeMillis()));
+    }
+
+    private static byte[] fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getQueryString() + "\n" + request.getHeader(ITEM_HEADER) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            return digest.digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Reads the body up front, so it can be fingerprinted and still be read by the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // the whole body is already in memory: a listener can read all of it at once
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package by.nuray.shareit.util;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Responses of idempotent requests by key. The first request for a key claims it and later
+ * ones share its future, so duplicates that arrive while it runs wait instead of executing.
+ * Holds at most {@code maxEntries} keys and forgets completed ones after {@code ttlNanos}.
+ */
+class IdempotencyStore {
+
+    record Key(String userId, String path, String idempotencyKey) {
+    }
+
+    record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    /**
+     * The entry for a key and whether this caller claimed it, and so has to complete or abandon it.
+     */
+    record Claim(Entry entry, boolean owner) {
+    }
+
+    static final class Entry {
+
+        private final Key key;
+        private final byte[] fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(Key key, byte[] fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+
+        byte[] fingerprint() {
+            return fingerprint;
+        }
+
+        CompletableFuture<StoredResponse> response() {
+            return response;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    // claim order, which is also expiry order since every entry lives for the same ttl
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    IdempotencyStore(int maxEntries, long ttlNanos, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Claims {@code key} for the caller unless another request holds it and has not expired.
+     */
+    Claim claim(Key key, byte[] fingerprint) {
+        long now = clock.getAsLong();
+        evict(now);
+
+        Entry claimed = new Entry(key, fingerprint, now);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, claimed);
+            if (existing == null) {
+                order.add(claimed);
+                return new Claim(claimed, true);
+            }
+            if (!isExpired(existing, now)) {
+                return new Claim(existing, false);
+            }
+            entries.remove(key, existing);
+        }
+    }
+
+    void complete(Entry owned, StoredResponse response) {
+        owned.response.complete(response);
+    }
+
+    /**
+     * Gives the key up without a result, e.g. after a server error, so the next retry executes again.
+     */
+    void abandon(Entry owned, Throwable cause) {
+        entries.remove(owned.key, owned);
+        owned.response.completeExceptionally(cause);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+
+    private boolean isExpired(Entry entry, long now) {
+        return entry.response.isDone() && now - entry.createdAt >= ttlNanos;
+    }
+
+    private void evict(long now) {
+        Entry head;
+        while ((head = order.peek()) != null) {
+            // over capacity even in-flight keys go; their waiters already hold the future
+            if (entries.get(head.key) != head || entries.size() >= maxEntries || isExpired(head, now)) {
+                order.poll();
+                entries.remove(head.key, head);
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package by.nuray.shareit.util;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/rate-limits")
+public class RateLimitController {
+
+    private final RateLimitFilter rateLimitFilter;
+
+    public RateLimitController(RateLimitFilter rateLimitFilter) {
+        this.rateLimitFilter = rateLimitFilter;
+    }
+
+    @GetMapping("/throttled")
+    public ResponseEntity<Map<RateLimitFilter.EndpointClass, Long>> getThrottledCounts() {
+        return ResponseEntity.ok(rateLimitFilter.throttledCounts());
+    }
+}
@@ -0,0 +1,116 @@
+package by.nuray.shareit.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits each {@code X-Sharer-User-Id} to a token bucket per {@link EndpointClass}, so one caller
+ * cannot flood search or writes. Requests over the limit get 429 with a {@code Retry-After}
+ * header; requests without a user id are left to the controllers.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public enum EndpointClass {
+        SEARCH, WRITE, READ
+    }
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final boolean enabled;
+    private final Map<EndpointClass, RateLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, LongAdder> throttled = new EnumMap<>(EndpointClass.class);
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(@Value("${shareit.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${shareit.rate-limit.max-users:10000}") int maxUsers,
+                           @Value("${shareit.rate-limit.search.capacity:10}") int searchCapacity,
+                           @Value("${shareit.rate-limit.search.refill-per-second:2}") double searchRefill,
+                           @Value("${shareit.rate-limit.write.capacity:20}") int writeCapacity,
+                           @Value("${shareit.rate-limit.write.refill-per-second:5}") double writeRefill,
+                           @Value("${shareit.rate-limit.read.capacity:100}") int readCapacity,
+                           @Value("${shareit.rate-limit.read.refill-per-second:50}") double readRefill,
+                           ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        limiters.put(EndpointClass.SEARCH, new RateLimiter(searchCapacity, searchRefill, maxUsers, System::nanoTime));
+        limiters.put(EndpointClass.WRITE, new RateLimiter(writeCapacity, writeRefill, maxUsers, System::nanoTime));
+        limiters.put(EndpointClass.READ, new RateLimiter(readCapacity, readRefill, maxUsers, System::nanoTime));
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            throttled.put(endpointClass, new LongAdder());
+        }
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Requests rejected so far, per endpoint class.
+     */
+    public Map<EndpointClass, Long> throttledCounts() {
+        Map<EndpointClass, Long> counts = new EnumMap<>(EndpointClass.class);
+        throttled.forEach((endpointClass, count) -> counts.put(endpointClass, count.sum()));
+        return counts;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || userId(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        EndpointClass endpointClass = classify(request);
+        long waitNanos = limiters.get(endpointClass).tryAcquire(userId(request));
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        throttled.get(endpointClass).increment();
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(
+                "Too many requests, retry in " + retryAfter + " s", System.currentTimeMillis()));
+    }
+
+
+    private static EndpointClass classify(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return EndpointClass.WRITE;
+        }
+        return request.getRequestURI().equals("/items/search") ? EndpointClass.SEARCH : EndpointClass.READ;
+    }
+
+    private static Integer userId(HttpServletRequest request) {
+        String header = request.getHeader(USER_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(header.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package by.nuray.shareit.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per user, lock-free. A bucket is a single {@link AtomicLong} holding the time at
+ * which it would be full again (GCRA); taking a token is one compare-and-set that moves that time
+ * forward by the refill interval. An absent bucket counts as full, so idle buckets can be dropped
+ * at any time. Holds at most {@code maxBuckets} users; past that, callers share a fixed set of
+ * stripes picked by user id.
+ */
+class RateLimiter {
+
+    private static final int OVERFLOW_STRIPES = 64;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxBuckets;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Integer, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflow = new AtomicLong[OVERFLOW_STRIPES];
+    private final AtomicLong lastSweep;
+
+    RateLimiter(int capacity, double refillPerSecond, int maxBuckets, LongSupplier clock) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond));
+        this.burstNanos = Math.multiplyExact(intervalNanos, (long) capacity);
+        this.maxBuckets = maxBuckets;
+        this.clock = clock;
+
+        long now = clock.getAsLong();
+        for (int i = 0; i < OVERFLOW_STRIPES; i++) {
+            overflow[i] = new AtomicLong(now);
+        }
+        this.lastSweep = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token from {@code userId}'s bucket.
+     *
+     * @return 0 if the token was taken, otherwise nanoseconds until the next one is available
+     */
+    long tryAcquire(int userId) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucket(userId, now);
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+
+    private AtomicLong bucket(int userId, long now) {
+        AtomicLong bucket = buckets.get(userId);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            sweep(now);
+            if (buckets.size() >= maxBuckets) {
+                return overflow[userId & (OVERFLOW_STRIPES - 1)];
+            }
+        }
+        return buckets.computeIfAbsent(userId, id -> new AtomicLong(now));
+    }
+
+    private void sweep(long now) {
+        // a full map of busy users would otherwise rescan on every new caller; one sweep per refill interval
+        long last = lastSweep.get();
+        if (now - last < intervalNanos || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+}
@@ -0,0 +1,41 @@
+-- Overlapping WAITING/APPROVED bookings of the same item are rejected by the database itself,
+-- so createBooking is a single INSERT and concurrent nodes cannot double-book an item.
+
+CREATE EXTENSION IF NOT EXISTS btree_gist^;
+
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS period tsrange
+    GENERATED ALWAYS AS (tsrange(start_date, end_date)) STORED^;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'bookings_no_overlap') THEN
+        ALTER TABLE bookings ADD CONSTRAINT bookings_no_overlap
+            EXCLUDE USING gist (item_id WITH =, period WITH &&)
+            WHERE (status IN ('WAITING', 'APPROVED'));
+    END IF;
+END
+$$^;
+
+-- Hibernate writes the CHECK constraint of an enum column only when it creates the table,
+-- so tables created before EXPIRED existed would reject it.
+DO $$
+DECLARE
+    target record;
+BEGIN
+    FOR target IN SELECT * FROM (VALUES
+            ('bookings', 'status'),
+            ('booking_counters', 'status'),
+            ('booking_archive_counts', 'status'),
+            ('booking_outbox', 'status'),
+            ('booking_outbox', 'previous_status')) AS t(table_name, column_name)
+    LOOP
+        IF to_regclass(target.table_name) IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE %I DROP CONSTRAINT IF EXISTS %I',
+                    target.table_name, target.table_name || '_' || target.column_name || '_check');
+            EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (%I IN (%L, %L, %L, %L, %L))',
+                    target.table_name, target.table_name || '_' || target.column_name || '_check',
+                    target.column_name, 'WAITING', 'APPROVED', 'REJECTED', 'CANCELED', 'EXPIRED');
+        END IF;
+    END LOOP;
+END
+$$^;
@@ -10,19 +10,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookingController.class)
@@ -34,7 +38,7 @@ public class BookingControllerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private BookingMapper bookingMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -80,12 +84,12 @@ public class BookingControllerTest {
     }
 
     private void mockMappingBookingToBookingDTO(BookingDTO dto) {
-        Mockito.when(modelMapper.map(Mockito.any(Booking.class), Mockito.eq(BookingDTO.class)))
+        Mockito.when(bookingMapper.toDto(Mockito.any(Booking.class)))
                 .thenReturn(dto);
     }
 
     private void mockMappingItemDtoItem(Booking booking) {
-        Mockito.when(modelMapper.map(Mockito.any(BookingDTO.class), Mockito.eq(Booking.class)))
+        Mockito.when(bookingMapper.toEntity(Mockito.any(BookingDTO.class)))
                 .thenReturn(booking);
     }
 
@@ -343,9 +347,7 @@ public class BookingControllerTest {
         int size = 2;
 
         Mockito.when(bookingService.getBookingsByBooker(bookerId, State.ALL, from, size))
-                .thenReturn(List.of(booking));
-
-        mockMappingBookingToBookingDTO(bookingDTO);
+                .thenReturn(List.of(bookingDTO));
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", bookerId)
@@ -412,9 +414,7 @@ public class BookingControllerTest {
         int size = 2;
 
         Mockito.when(bookingService.getBookingsByBooker(ownerId, State.ALL, from, size))
-                .thenReturn(List.of(booking));
-
-        mockMappingBookingToBookingDTO(bookingDTO);
+                .thenReturn(List.of(bookingDTO));
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", ownerId)
@@ -518,5 +518,242 @@ public class BookingControllerTest {
         Mockito.verify(bookingService, Mockito.times(1)).getBookingById(booking.getId(), 1);
     }
 
+    @Test
+    public void getBookingsByBooker_whenPageIsFull_returnsNextCursorHeader() throws Exception {
+        int bookerId = 1;
+
+        Mockito.when(bookingService.getBookingsByBooker(bookerId, State.ALL, 0, 1))
+                .thenReturn(List.of(bookingDTO));
+
+        mockMvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", bookerId)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", BookingCursor.after(bookingDTO).encode()));
+    }
+
+    @Test
+    public void getBookingsByOwner_whenCursorGiven_usesKeysetPagination() throws Exception {
+        int ownerId = 1;
+        BookingCursor cursor = new BookingCursor(LocalDateTime.of(2030, 1, 1, 0, 0), 7);
+
+        Mockito.when(bookingService.getBookingsByOwner(ownerId, State.ALL, cursor, 10))
+                .thenReturn(List.of(bookingDTO));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", ownerId)
+                        .param("cursor", cursor.encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(booking.getId()))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        Mockito.verify(bookingService, Mockito.never()).getBookingsByOwner(Mockito.anyInt(), Mockito.any(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void getBookingsByOwner_whenCursorIsInvalid_returns400() throws Exception {
+        mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("cursor", "???"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void createBookings_whenBatchPosted_returnsPerEntryResults() throws Exception {
+        mockMappingBookingToBookingDTO(bookingDTO);
+
+        Mockito.when(bookingService.createBookings(Mockito.eq(1), Mockito.anyList()))
+                .thenReturn(List.of(BookingBatchResult.created(0, booking),
+                        BookingBatchResult.failed(1, "Booking request for this time already exists")));
 
+        mockMvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(bookingDTO, bookingDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].booking.id").value(bookingDTO.getId()))
+                .andExpect(jsonPath("$[1].booking").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("Booking request for this time already exists"));
+    }
+
+    @Test
+    public void createCart_whenAllEntriesFit_returns201WithBookings() throws Exception {
+        mockMappingBookingToBookingDTO(bookingDTO);
+
+        Mockito.when(bookingService.createCart(Mockito.eq(1), Mockito.anyList()))
+                .thenReturn(List.of(booking, booking));
+
+        mockMvc.perform(post("/bookings/cart")
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(bookingDTO, bookingDTO))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(bookingDTO.getId()));
+    }
+
+    @Test
+    public void createCart_whenAnEntryConflicts_returns400() throws Exception {
+        Mockito.when(bookingService.createCart(Mockito.eq(1), Mockito.anyList()))
+                .thenThrow(new BookingException("Cart entry 1: Booking already exists and is approved"));
+
+        mockMvc.perform(post("/bookings/cart")
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(bookingDTO, bookingDTO))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cart entry 1: Booking already exists and is approved"));
+    }
+
+    @Test
+    public void updateBookings_whenBulkApproved_returnsTransitionedIds() throws Exception {
+        Mockito.when(bookingService.updateBookingStatuses(List.of(1, 2), true, 1))
+                .thenReturn(new BookingTransitionResult(Status.APPROVED, List.of(1), List.of(2)));
+
+        mockMvc.perform(patch("/bookings/bulk")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("updatedStatus", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("APPROVED"))
+                .andExpect(jsonPath("$.transitioned[0]").value(1))
+                .andExpect(jsonPath("$.skipped[0]").value(2));
+    }
+
+    @Test
+    public void cancelBookings_whenBulkCanceled_returnsTransitionedIds() throws Exception {
+        Mockito.when(bookingService.cancelBookings(List.of(3), 1))
+                .thenReturn(new BookingTransitionResult(Status.CANCELED, List.of(3), List.of()));
+
+        mockMvc.perform(patch("/bookings/cancel/bulk")
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transitioned[0]").value(3));
+    }
+
+    @Test
+    public void getBookingCountsByOwner_returnsCountPerState() throws Exception {
+        Mockito.when(bookingService.getBookingCountsByOwner(1))
+                .thenReturn(new BookingCounts(6, 1, 2, 3, 4, 1));
+
+        mockMvc.perform(get("/bookings/owner/counts")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.all").value(6))
+                .andExpect(jsonPath("$.waiting").value(4));
+
+        Mockito.verify(bookingService, Mockito.never()).getBookingsByOwner(Mockito.anyInt(), Mockito.any(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void getBookingCountsByBooker_whenUserNotFound_returns404() throws Exception {
+        Mockito.when(bookingService.getBookingCountsByBooker(9))
+                .thenThrow(new UserNotFoundException("User not found"));
+
+        mockMvc.perform(get("/bookings/counts")
+                        .header("X-Sharer-User-Id", 9))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void exportBookingsByOwner_whenNdjsonRequested_streamsOneJsonObjectPerLine() throws Exception {
+        BookingDTO second = new BookingDTO(2, bookingDTO.getStart(), bookingDTO.getEnd(), 1, 1, Status.APPROVED, null);
+        Mockito.when(bookingService.exportBookingsByOwner(1, State.ALL))
+                .thenReturn(sink -> List.of(bookingDTO, second).forEach(sink));
+
+        MvcResult result = mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals(2, objectMapper.readTree(lines[1]).get("id").asInt());
+        Mockito.verifyNoInteractions(bookingMapper);
+    }
+
+    @Test
+    public void exportBookingsByBooker_whenCsvRequested_streamsHeaderAndRows() throws Exception {
+        BookingDTO row = new BookingDTO(7, LocalDateTime.of(2030, 1, 1, 10, 0), LocalDateTime.of(2030, 1, 2, 10, 0),
+                3, 1, Status.WAITING, null);
+        Mockito.when(bookingService.exportBookingsByBooker(1, State.WAITING))
+                .thenReturn(sink -> sink.accept(row));
+
+        MvcResult result = mockMvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("state", "WAITING")
+                        .param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("id,start,end,itemId,bookerId,status\n"
+                        + "7,2030-01-01T10:00,2030-01-02T10:00,3,1,WAITING\n"));
+    }
+
+    @Test
+    public void exportBookingsByOwner_whenUserNotFound_returns404BeforeStreaming() throws Exception {
+        Mockito.when(bookingService.exportBookingsByOwner(9, State.ALL))
+                .thenThrow(new UserNotFoundException("User not found"));
+
+        mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 9))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void joinWaitlist_whenRangeIsTaken_returns202WithEntry() throws Exception {
+
+        mockMappingItemDtoItem(booking);
+
+        BookingWaitlistEntry entry = new BookingWaitlistEntry(5, item.getId(), user.getId(),
+                bookingDTO.getStart(), bookingDTO.getEnd(), LocalDateTime.now());
+        Mockito.when(bookingService.joinWaitlist(Mockito.any(Booking.class), Mockito.eq(1), Mockito.eq(1)))
+                .thenReturn(BookingWaitlistResult.queued(entry));
+
+        mockMvc.perform(post("/bookings/waitlist")
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookingDTO)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(5))
+                .andExpect(jsonPath("$.itemId").value(item.getId()));
+    }
+
+    @Test
+    public void joinWaitlist_whenRangeIsFree_returns201WithBooking() throws Exception {
+
+        mockMappingBookingToBookingDTO(bookingDTO);
+        mockMappingItemDtoItem(booking);
+
+        Mockito.when(bookingService.joinWaitlist(Mockito.any(Booking.class), Mockito.eq(1), Mockito.eq(1)))
+                .thenReturn(BookingWaitlistResult.booked(booking));
+
+        mockMvc.perform(post("/bookings/waitlist")
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookingDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(bookingDTO.getId()));
+    }
+
+    @Test
+    public void leaveWaitlist_whenEntryNotFound_returns404() throws Exception {
+
+        Mockito.doThrow(new BookingNotFoundException("Waitlist entry with id 5 not found"))
+                .when(bookingService).leaveWaitlist(5, 1);
+
+        mockMvc.perform(delete("/bookings/waitlist/5")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -3,13 +3,13 @@ package by.nuray.shareit.controller;
 import by.nuray.shareit.comment.Comment;
 import by.nuray.shareit.comment.CommentController;
 import by.nuray.shareit.comment.CommentDto;
+import by.nuray.shareit.comment.CommentMapper;
 import by.nuray.shareit.comment.CommentService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -33,7 +33,7 @@ public class CommentControllerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private CommentMapper commentMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -57,12 +57,12 @@ public class CommentControllerTest {
     }
 
     private void mockMappingItemToItemDTO(CommentDto dto) {
-        Mockito.when(modelMapper.map(Mockito.any(Comment.class), Mockito.eq(CommentDto.class)))
+        Mockito.when(commentMapper.toDto(Mockito.any(Comment.class)))
                 .thenReturn(dto);
     }
 
     private void mockMappingItemDtoItem(Comment comment) {
-        Mockito.when(modelMapper.map(Mockito.any(CommentDto.class), Mockito.eq(Comment.class)))
+        Mockito.when(commentMapper.toEntity(Mockito.any(CommentDto.class)))
                 .thenReturn(comment);
     }
 
@@ -124,9 +124,7 @@ public class CommentControllerTest {
     public void getCommentsByItem_whenCommentsExist_returns200WithList() throws Exception {
 
         Mockito.when(commentService.getCommentsByItem(Mockito.anyInt()))
-                .thenReturn(List.of(comment));
-
-        mockMappingItemToItemDTO(commentDto);
+                .thenReturn(List.of(commentDto));
 
         mockMvc.perform(get("/comments/item/1"))
                 .andExpect(status().isOk())
@@ -144,8 +142,6 @@ public class CommentControllerTest {
         Mockito.when(commentService.getCommentsByItem(Mockito.anyInt()))
                 .thenReturn(Collections.emptyList());
 
-        mockMappingItemToItemDTO(commentDto);
-
         mockMvc.perform(get("/comments/item/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", Matchers.empty()));
@@ -157,9 +153,7 @@ public class CommentControllerTest {
     @Test
     public void getCommentsByUser_whenCommentsExist_returns200WithList() throws Exception {
         Mockito.when(commentService.getCommentsByUser(Mockito.anyInt()))
-                .thenReturn(List.of(comment));
-
-        mockMappingItemToItemDTO(commentDto);
+                .thenReturn(List.of(commentDto));
 
         mockMvc.perform(get("/comments/user/1"))
                 .andExpect(status().isOk())
@@ -175,8 +169,6 @@ public class CommentControllerTest {
         Mockito.when(commentService.getCommentsByUser(Mockito.anyInt()))
                 .thenReturn(Collections.emptyList());
 
-        mockMappingItemToItemDTO(commentDto);
-
         mockMvc.perform(get("/comments/user/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", Matchers.empty()));
@@ -0,0 +1,293 @@
+package by.nuray.shareit.controller;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.util.BookingException;
+import by.nuray.shareit.util.IdempotencyFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BookingController.class)
+@AutoConfigureMockMvc
+// every test writes as user 1, so the write bucket would run dry across the class
+@TestPropertySource(properties = {"shareit.idempotency.max-entries=3", "shareit.rate-limit.enabled=false"})
+public class IdempotencyFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private BookingMapper bookingMapper;
+
+    @MockitoBean
+    private BookingService bookingService;
+
+    @MockitoBean
+    private ItemService itemService;
+
+    private Booking booking;
+    private BookingDTO bookingDTO;
+    // the filter and its store live as long as the cached context, so keys must not repeat across tests
+    private String keyPrefix;
+
+    @BeforeEach
+    void setUp() {
+        keyPrefix = UUID.randomUUID() + "-";
+
+        booking = new Booking();
+        booking.setId(1);
+
+        bookingDTO = new BookingDTO();
+        bookingDTO.setId(1);
+        bookingDTO.setItemId(2);
+        bookingDTO.setStart(LocalDateTime.now().plusDays(1).withNano(0));
+        bookingDTO.setEnd(LocalDateTime.now().plusDays(2).withNano(0));
+
+        Mockito.when(bookingMapper.toEntity(Mockito.any(BookingDTO.class))).thenReturn(booking);
+        Mockito.when(bookingMapper.toDto(Mockito.any(Booking.class))).thenReturn(bookingDTO);
+    }
+
+    @Test
+    public void createBooking_whenRetriedWithSameKey_replaysStoredResponse() throws Exception {
+        Mockito.when(bookingService.createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(booking);
+
+        MvcResult first = mockMvc.perform(createBooking("key-1", 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andReturn();
+        mockMvc.perform(createBooking("key-1", 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andExpect(content().string(first.getResponse().getContentAsString()));
+
+        Mockito.verify(bookingService, Mockito.times(1))
+                .createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void createBooking_whenClientErrorIsRetried_replaysTheError() throws Exception {
+        Mockito.when(bookingService.createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenThrow(new BookingException("Booking request for this time already exists"));
+
+        mockMvc.perform(createBooking("key-1", 1)).andExpect(status().isBadRequest());
+        mockMvc.perform(createBooking("key-1", 1))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.message").value("Booking request for this time already exists"));
+
+        Mockito.verify(bookingService, Mockito.times(1))
+                .createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void createBooking_whenKeyIsReusedForDifferentBody_returns422() throws Exception {
+        Mockito.when(bookingService.createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(booking);
+
+        mockMvc.perform(createBooking("key-1", 1)).andExpect(status().isCreated());
+        bookingDTO.setItemId(3);
+        mockMvc.perform(createBooking("key-1", 1)).andExpect(status().isUnprocessableEntity());
+
+        Mockito.verify(bookingService, Mockito.times(1))
+                .createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void createBooking_whenKeyIsMissingOrBelongsToAnotherUser_executesEachRequest() throws Exception {
+        Mockito.when(bookingService.createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(booking);
+
+        mockMvc.perform(createBooking(null, 1)).andExpect(status().isCreated());
+        mockMvc.perform(createBooking(null, 1)).andExpect(status().isCreated());
+        mockMvc.perform(createBooking("key-1", 1)).andExpect(status().isCreated());
+        mockMvc.perform(createBooking("key-1", 2))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        Mockito.verify(bookingService, Mockito.times(4))
+                .createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void createBooking_whenDuplicateArrivesInFlight_waitsForTheFirstExecution() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(bookingService.createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenAnswer(inv -> {
+                    entered.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return booking;
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MvcResult> first = executor.submit(() -> mockMvc.perform(createBooking("key-1", 1)).andReturn());
+            entered.await(5, TimeUnit.SECONDS);
+            Future<MvcResult> duplicate = executor.submit(() -> mockMvc.perform(createBooking("key-1", 1)).andReturn());
+
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(201, first.get(5, TimeUnit.SECONDS).getResponse().getStatus());
+            MvcResult replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals(201, replayed.getResponse().getStatus());
+            assertEquals("true", replayed.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Mockito.verify(bookingService, Mockito.times(1))
+                .createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void createBooking_whenStoreIsFull_evictsOldestKeys() throws Exception {
+        Mockito.when(bookingService.createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(booking);
+
+        for (String key : new String[]{"key-1", "key-2", "key-3", "key-4"}) {
+            mockMvc.perform(createBooking(key, 1)).andExpect(status().isCreated());
+        }
+        mockMvc.perform(createBooking("key-4", 1))
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+        mockMvc.perform(createBooking("key-1", 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        Mockito.verify(bookingService, Mockito.times(5))
+                .createBooking(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void createBookings_whenBatchIsRetriedWithSameKey_replaysStoredResponse() throws Exception {
+        Mockito.when(bookingService.createBookings(Mockito.anyInt(), Mockito.anyList()))
+                .thenReturn(List.of(BookingBatchResult.created(0, booking)));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/bookings/batch")
+                            .header("X-Sharer-User-Id", 1)
+                            .header(IdempotencyFilter.KEY_HEADER, keyPrefix + "batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(List.of(bookingDTO))))
+                    .andExpect(status().isOk());
+        }
+
+        Mockito.verify(bookingService, Mockito.times(1)).createBookings(Mockito.anyInt(), Mockito.anyList());
+    }
+
+    @Test
+    public void joinWaitlist_whenRetriedWithSameKey_replaysStoredResponse() throws Exception {
+        Mockito.when(bookingService.joinWaitlist(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(BookingWaitlistResult.booked(booking));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/bookings/waitlist")
+                            .header("X-Sharer-User-Id", 1)
+                            .header(IdempotencyFilter.KEY_HEADER, keyPrefix + "waitlist")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(bookingDTO)))
+                    .andExpect(status().isCreated());
+        }
+
+        Mockito.verify(bookingService, Mockito.times(1))
+                .joinWaitlist(Mockito.any(Booking.class), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void confirmHold_whenRetriedWithSameKey_replaysStoredResponse() throws Exception {
+        Mockito.when(bookingService.confirmHold(7, 1)).thenReturn(booking);
+
+        mockMvc.perform(post("/bookings/holds/7")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(IdempotencyFilter.KEY_HEADER, keyPrefix + "hold"))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        mockMvc.perform(post("/bookings/holds/7")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(IdempotencyFilter.KEY_HEADER, keyPrefix + "hold"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        Mockito.verify(bookingService, Mockito.times(1)).confirmHold(7, 1);
+    }
+
+    @Test
+    public void filter_whenBodyIsReadThroughReadListener_deliversItAndCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/bookings");
+        request.addHeader("X-Sharer-User-Id", 1);
+        request.addHeader(IdempotencyFilter.KEY_HEADER, keyPrefix + "key-1");
+        request.setContent("{\"itemId\":2}".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        new IdempotencyFilter(10, 60_000, 1000, objectMapper).doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> {
+                    ServletInputStream in = req.getInputStream();
+                    in.setReadListener(new ReadListener() {
+                        @Override
+                        public void onDataAvailable() throws IOException {
+                            events.add("available");
+                            byte[] buffer = new byte[4];
+                            int n;
+                            while (in.isReady() && !in.isFinished() && (n = in.read(buffer)) != -1) {
+                                read.write(buffer, 0, n);
+                            }
+                        }
+
+                        @Override
+                        public void onAllDataRead() {
+                            events.add("done");
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            events.add("error");
+                        }
+                    });
+                });
+
+        assertEquals(List.of("available", "done"), events);
+        assertEquals("{\"itemId\":2}", read.toString(StandardCharsets.UTF_8));
+    }
+
+
+    private MockHttpServletRequestBuilder createBooking(String idempotencyKey, int userId) throws Exception {
+        MockHttpServletRequestBuilder request = post("/bookings")
+                .header("X-Sharer-User-Id", userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingDTO));
+        return idempotencyKey == null ? request : request.header(IdempotencyFilter.KEY_HEADER, keyPrefix + idempotencyKey);
+    }
+}
@@ -1,11 +1,17 @@
 package by.nuray.shareit.controller;
 
 
+import by.nuray.shareit.booking.BookingHold;
+import by.nuray.shareit.booking.BookingService;
+import by.nuray.shareit.booking.ItemAvailability;
+import by.nuray.shareit.booking.TimeRange;
 import by.nuray.shareit.item.Item;
 import by.nuray.shareit.item.ItemController;
 import by.nuray.shareit.item.ItemDto;
+import by.nuray.shareit.item.ItemMapper;
 import by.nuray.shareit.item.ItemService;
 import by.nuray.shareit.request.ItemRequest;
+import by.nuray.shareit.util.BookingException;
 import by.nuray.shareit.util.ItemNotFoundException;
 import by.nuray.shareit.util.ItemValidationException;
 import by.nuray.shareit.util.UserNotFoundException;
@@ -13,7 +19,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -21,6 +26,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 
@@ -37,7 +43,7 @@ public class ItemControllerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private ItemMapper itemMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -45,6 +51,9 @@ public class ItemControllerTest {
     @MockitoBean
     private ItemService itemService;
 
+    @MockitoBean
+    private BookingService bookingService;
+
     private Item item;
     private ItemDto itemDto;
 
@@ -64,12 +73,12 @@ public class ItemControllerTest {
     }
 
     private void mockMappingItemToItemDTO(ItemDto dto) {
-        Mockito.when(modelMapper.map(Mockito.any(Item.class), Mockito.eq(ItemDto.class)))
+        Mockito.when(itemMapper.toDto(Mockito.any(Item.class)))
                 .thenReturn(dto);
     }
 
     private void mockMappingItemDtoItem(Item item) {
-        Mockito.when(modelMapper.map(Mockito.any(ItemDto.class), Mockito.eq(Item.class)))
+        Mockito.when(itemMapper.toEntity(Mockito.any(ItemDto.class)))
                 .thenReturn(item);
     }
 
@@ -77,9 +86,7 @@ public class ItemControllerTest {
     public void getItems_whenUserExistsAndItemsExist_returnsItemList() throws Exception {
 
         Mockito.when(itemService.getAllItems(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt()))
-                .thenReturn(List.of(item));
-
-        mockMappingItemToItemDTO(itemDto);
+                .thenReturn(List.of(itemDto));
 
         mockMvc.perform((get("/items")
                         .header("X-Sharer-User-Id", 1)))
@@ -251,9 +258,7 @@ public class ItemControllerTest {
         int size = 2;
 
         Mockito.when(itemService.searchItemsPaged(text, from, size))
-                .thenReturn(List.of(item));
-
-        mockMappingItemToItemDTO(itemDto);
+                .thenReturn(List.of(itemDto));
 
         mockMvc.perform((get("/items/search"))
                         .param("text", text)
@@ -421,16 +426,63 @@ public class ItemControllerTest {
                 .deleteItem(Mockito.anyInt(), Mockito.anyInt());
 
     }
-}
-
-
-
-
 
+    @Test
+    public void getAvailability_whenItemExists_returnsFreeAndBusyRanges() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(1);
+        ItemAvailability availability = new ItemAvailability(1, from, to, 60,
+                List.of(new TimeRange(from, from.plusHours(2)), new TimeRange(from.plusHours(3), to)),
+                List.of(new TimeRange(from.plusHours(2), from.plusHours(3))));
+
+        Mockito.when(bookingService.getItemAvailability(1, from, to, 60)).thenReturn(availability);
+
+        mockMvc.perform(get("/items/1/availability")
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.free.length()").value(2))
+                .andExpect(jsonPath("$.busy[0].start").value("2030-01-01T02:00:00"));
+    }
 
+    @Test
+    public void getAvailability_whenItemNotFound_returns404() throws Exception {
+        Mockito.when(bookingService.getItemAvailability(Mockito.eq(1), Mockito.any(), Mockito.any(), Mockito.eq(30)))
+                .thenThrow(new ItemNotFoundException("Item with id 1 not found"));
 
+        mockMvc.perform(get("/items/1/availability")
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-02T00:00:00")
+                        .param("granularity", "30"))
+                .andExpect(status().isNotFound());
+    }
 
+    @Test
+    public void createHold_whenRangeIsFree_returns201WithHold() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime end = start.plusHours(2);
+        BookingHold hold = new BookingHold(7, 1, 2, start, end, LocalDateTime.of(2029, 12, 1, 0, 5));
 
+        Mockito.when(bookingService.createHold(1, 2, start, end)).thenReturn(hold);
 
+        mockMvc.perform(post("/items/1/holds")
+                        .header("X-Sharer-User-Id", 2)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TimeRange(start, end))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.expiresAt").value("2029-12-01T00:05:00"));
+    }
 
+    @Test
+    public void createHold_whenRangeIsHeld_returns400() throws Exception {
+        Mockito.when(bookingService.createHold(Mockito.eq(1), Mockito.eq(2), Mockito.any(), Mockito.any()))
+                .thenThrow(new BookingException("Item is on hold for this time"));
 
+        mockMvc.perform(post("/items/1/holds")
+                        .header("X-Sharer-User-Id", 2)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2030-01-01T10:00:00\",\"end\":\"2030-01-01T12:00:00\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,109 @@
+package by.nuray.shareit.controller;
+
+import by.nuray.shareit.booking.BookingService;
+import by.nuray.shareit.item.ItemController;
+import by.nuray.shareit.item.ItemMapper;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.util.RateLimitFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ItemController.class)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "shareit.rate-limit.search.capacity=2",
+        "shareit.rate-limit.search.refill-per-second=0.001",
+        "shareit.rate-limit.read.capacity=3",
+        "shareit.rate-limit.read.refill-per-second=0.001"})
+public class RateLimitFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @MockitoBean
+    private ItemMapper itemMapper;
+
+    @MockitoBean
+    private ItemService itemService;
+
+    @MockitoBean
+    private BookingService bookingService;
+
+    // buckets live as long as the cached context, so every test takes fresh users
+    private int userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = ThreadLocalRandom.current().nextInt(1_000_000, Integer.MAX_VALUE - 1);
+        Mockito.when(itemService.searchItemsPaged(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(List.of());
+    }
+
+    @Test
+    public void searchItem_whenBucketIsEmpty_returns429WithRetryAfter() throws Exception {
+        mockMvc.perform(search(userId)).andExpect(status().isOk());
+        mockMvc.perform(search(userId)).andExpect(status().isOk());
+        mockMvc.perform(search(userId))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.message").exists());
+
+        Mockito.verify(itemService, Mockito.times(2))
+                .searchItemsPaged(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void searchItem_whenOneUserIsThrottled_otherUsersAndEndpointClassesAreNot() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(search(userId));
+        }
+
+        mockMvc.perform(search(userId + 1)).andExpect(status().isOk());
+        mockMvc.perform(get("/items").header("X-Sharer-User-Id", userId)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void searchItem_whenUserIdIsMissing_isNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/items/search").param("text", "drill")).andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    public void throttledCounts_countsRejectionsPerEndpointClass() throws Exception {
+        long searchBefore = rateLimitFilter.throttledCounts().get(RateLimitFilter.EndpointClass.SEARCH);
+        long readBefore = rateLimitFilter.throttledCounts().get(RateLimitFilter.EndpointClass.READ);
+
+        for (int i = 0; i < 4; i++) {
+            mockMvc.perform(search(userId));
+        }
+
+        assertEquals(searchBefore + 2, rateLimitFilter.throttledCounts().get(RateLimitFilter.EndpointClass.SEARCH));
+        assertEquals(readBefore, rateLimitFilter.throttledCounts().get(RateLimitFilter.EndpointClass.READ));
+    }
+
+
+    private MockHttpServletRequestBuilder search(int userId) {
+        return get("/items/search")
+                .header("X-Sharer-User-Id", userId)
+                .param("text", "drill");
+    }
+}
@@ -4,6 +4,7 @@ package by.nuray.shareit.controller;
 
 import by.nuray.shareit.request.ItemRequest;
 import by.nuray.shareit.request.ItemRequestDTO;
+import by.nuray.shareit.request.ItemRequestMapper;
 import by.nuray.shareit.request.RequestController;
 import by.nuray.shareit.request.RequestService;
 import by.nuray.shareit.util.RequestException;
@@ -12,7 +13,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -37,7 +37,7 @@ public class RequestControllerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private ItemRequestMapper itemRequestMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -62,12 +62,12 @@ public class RequestControllerTest {
     }
 
     private void mockMappingReqToReqDTO(ItemRequestDTO dto) {
-        Mockito.when(modelMapper.map(Mockito.any(ItemRequest.class), Mockito.eq(ItemRequestDTO.class)))
+        Mockito.when(itemRequestMapper.toDto(Mockito.any(ItemRequest.class)))
                 .thenReturn(dto);
     }
 
     private void mockMappingReqDtoReq(ItemRequest request) {
-        Mockito.when(modelMapper.map(Mockito.any(ItemRequestDTO.class), Mockito.eq(ItemRequest.class)))
+        Mockito.when(itemRequestMapper.toEntity(Mockito.any(ItemRequestDTO.class)))
                 .thenReturn(request);
     }
 
@@ -124,10 +124,7 @@ public class RequestControllerTest {
     @Test
     public void getRequests_whenRequestsExist_returns200WithList() throws Exception {
         Mockito.when(requestService.getAllRequests(Mockito.anyInt()))
-                .thenReturn(List.of(itemRequest));
-
-
-        mockMappingReqToReqDTO(itemRequestDTO);
+                .thenReturn(List.of(itemRequestDTO));
 
         mockMvc.perform(get("/requests"))
                 .andExpect(status().isOk())
@@ -143,9 +140,6 @@ public class RequestControllerTest {
     public void getRequests_whenNoRequests_returns200WithEmptyList() throws Exception {
         Mockito.when(requestService.getAllRequests(Mockito.anyInt()))
                 .thenReturn(Collections.emptyList());
-
-
-        mockMappingReqToReqDTO(itemRequestDTO);
         mockMvc.perform(get("/requests"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", empty()));
@@ -213,9 +207,7 @@ public class RequestControllerTest {
     public void getAllRequestsFromOthers_whenValidRequest_returns200() throws Exception {
 
         Mockito.when(requestService.getRequestsFromOthers(Mockito.anyInt(),Mockito.anyInt(),Mockito.anyInt()))
-                .thenReturn(List.of(itemRequest));
-
-        mockMappingReqToReqDTO(itemRequestDTO);
+                .thenReturn(List.of(itemRequestDTO));
         mockMvc.perform(get("/requests/all")
         .header("X-Sharer-User-Id",1))
                 .andExpect(status().isOk())
@@ -232,8 +224,6 @@ public class RequestControllerTest {
 
         Mockito.when(requestService.getRequestsFromOthers(Mockito.anyInt(),Mockito.anyInt(),Mockito.anyInt()))
                 .thenReturn(Collections.emptyList());
-
-        mockMappingReqToReqDTO(itemRequestDTO);
         mockMvc.perform(get("/requests/all")
                         .header("X-Sharer-User-Id",1))
                         .andExpect(status().isOk())
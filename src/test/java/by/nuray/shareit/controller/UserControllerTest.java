@@ -6,7 +6,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -32,7 +31,7 @@ public class UserControllerTest {
     private UserService userService;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private UserMapper userMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -59,12 +58,12 @@ public class UserControllerTest {
          }
 
     private void mockMappingUserToUserDTO(UserDTO dto) {
-        Mockito.when(modelMapper.map(Mockito.any(User.class), Mockito.eq(UserDTO.class)))
+        Mockito.when(userMapper.toDto(Mockito.any(User.class)))
                 .thenReturn(dto);
     }
 
     private void mockMappingUserDTOToUser(User user) {
-        Mockito.when(modelMapper.map(Mockito.any(UserDTO.class), Mockito.eq(User.class)))
+        Mockito.when(userMapper.toEntity(Mockito.any(UserDTO.class)))
                 .thenReturn(user);
     }
 
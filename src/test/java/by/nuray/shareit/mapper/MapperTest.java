@@ -0,0 +1,123 @@
+package by.nuray.shareit.mapper;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.comment.Comment;
+import by.nuray.shareit.comment.CommentDto;
+import by.nuray.shareit.comment.CommentMapperImpl;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemDto;
+import by.nuray.shareit.item.ItemMapperImpl;
+import by.nuray.shareit.request.ItemRequest;
+import by.nuray.shareit.request.ItemRequestDTO;
+import by.nuray.shareit.request.ItemRequestMapperImpl;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserDTO;
+import by.nuray.shareit.user.UserMapperImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapperTest {
+
+    private User user;
+    private ItemRequest request;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(3);
+        user.setUsername("user");
+        user.setEmail("user@test.com");
+
+        request = new ItemRequest();
+        request.setId(5);
+        request.setDescription("need a drill");
+
+        item = new Item();
+        item.setId(7);
+        item.setName("drill");
+        item.setDescription("cordless");
+        item.setAvailable(true);
+        item.setOwner(user);
+        item.setRequest(request);
+    }
+
+    @Test
+    public void bookingMapper_flattensItemAndBookerIds() {
+        Booking booking = new Booking();
+        booking.setId(1);
+        booking.setStart(LocalDateTime.now());
+        booking.setEnd(LocalDateTime.now().plusDays(1));
+        booking.setItem(item);
+        booking.setBooker(user);
+        booking.setStatus(Status.APPROVED);
+
+        BookingDTO dto = new BookingMapperImpl().toDto(booking);
+
+        assertEquals(1, dto.getId());
+        assertEquals(booking.getStart(), dto.getStart());
+        assertEquals(booking.getEnd(), dto.getEnd());
+        assertEquals(item.getId(), dto.getItemId());
+        assertEquals(user.getId(), dto.getBookerId());
+        assertEquals(Status.APPROVED, dto.getStatus());
+    }
+
+    @Test
+    public void bookingMapper_leavesAssociationsToTheService() {
+        BookingDTO dto = new BookingDTO(0, LocalDateTime.now(), LocalDateTime.now().plusDays(1),
+                item.getId(), user.getId(), null);
+
+        Booking booking = new BookingMapperImpl().toEntity(dto);
+
+        assertEquals(dto.getStart(), booking.getStart());
+        assertEquals(dto.getEnd(), booking.getEnd());
+        assertNull(booking.getItem());
+        assertNull(booking.getBooker());
+    }
+
+    @Test
+    public void itemMapper_mapsRequestId() {
+        ItemDto dto = new ItemMapperImpl().toDto(item);
+
+        assertEquals("drill", dto.getName());
+        assertEquals("cordless", dto.getDescription());
+        assertTrue(dto.getAvailable());
+        assertEquals(request.getId(), dto.getRequestId());
+
+        item.setRequest(null);
+        assertNull(new ItemMapperImpl().toDto(item).getRequestId());
+    }
+
+    @Test
+    public void commentMapper_flattensAuthorAndItemIds() {
+        Comment comment = new Comment();
+        comment.setId(2);
+        comment.setText("works well");
+        comment.setCreatedAt(LocalDateTime.now());
+        comment.setAuthor(user);
+        comment.setItem(item);
+
+        CommentDto dto = new CommentMapperImpl().toDto(comment);
+
+        assertEquals(2, dto.getId());
+        assertEquals("works well", dto.getText());
+        assertEquals(user.getId(), dto.getAuthorId());
+        assertEquals(item.getId(), dto.getItemId());
+        assertEquals(comment.getCreatedAt(), dto.getCreatedAt());
+    }
+
+    @Test
+    public void requestAndUserMappers_roundTrip() {
+        ItemRequestDTO requestDTO = new ItemRequestMapperImpl().toDto(request);
+        assertEquals(request.getId(), requestDTO.getId());
+        assertEquals(request.getDescription(), new ItemRequestMapperImpl().toEntity(requestDTO).getDescription());
+
+        UserDTO userDTO = new UserMapperImpl().toDto(user);
+        assertEquals(user.getUsername(), userDTO.getUsername());
+        assertEquals(user.getEmail(), new UserMapperImpl().toEntity(userDTO).getEmail());
+    }
+}
@@ -0,0 +1,209 @@
+package by.nuray.shareit.repository;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({BookingCounters.class, BookingOutbox.class, BookingRentals.class, BookingArchive.class})
+public class BookingArchiveTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("shareit.booking.archive.dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingArchive bookingArchive;
+
+    @Autowired
+    private BookingCounters bookingCounters;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private BookingServiceImpl bookingService;
+    private User owner;
+    private User booker;
+    private Item item;
+    private YearMonth cold;
+
+    @BeforeEach
+    void setUp() {
+        cold = YearMonth.now().minusYears(3);
+
+        owner = persistUser("owner", "owner@test.com");
+        booker = persistUser("booker", "booker@test.com");
+
+        item = persistItem("drill");
+
+        UserService userService = Mockito.mock(UserService.class);
+        bookingService = new BookingServiceImpl(bookingRepository, userService, Mockito.mock(ItemService.class),
+                new BookingIntervalIndex(), new ItemLockStripes(), bookingCounters, bookingArchive,
+                Mockito.mock(BookingRentals.class), Mockito.mock(BookingExpiry.class),
+                new BookingHolds(300_000, 1000), new BookingWaitlist(100));
+    }
+
+    @Test
+    public void archive_movesFinishedBookingsOfTheMonthAndKeepsThemCounted() throws Exception {
+        LocalDateTime start = cold.atDay(3).atTime(10, 0);
+        Booking approved = bookingRepository.saveAndFlush(booking(start, start.plusDays(1), Status.APPROVED));
+        Booking rejected = bookingRepository.saveAndFlush(booking(start.plusDays(2), start.plusDays(3), Status.REJECTED));
+        Booking nextMonth = bookingRepository.saveAndFlush(booking(start.plusMonths(1), start.plusMonths(1).plusDays(1),
+                Status.APPROVED));
+
+        assertEquals(2, bookingArchive.archive(cold, 100));
+        entityManager.clear();
+
+        assertFalse(bookingRepository.existsById(approved.getId()));
+        assertFalse(bookingRepository.existsById(rejected.getId()));
+        assertTrue(bookingRepository.existsById(nextMonth.getId()));
+        assertTrue(Files.exists(archiveDir.resolve("bookings-" + cold + ".ndjson.gz")));
+
+        assertEquals(Map.of(Status.APPROVED, 2L, Status.REJECTED, 1L),
+                bookingCounters.countsFor(booker.getId(), BookingQuery.Perspective.BOOKER));
+        assertEquals(2, bookingCounters.archivedFor(owner.getId(), BookingQuery.Perspective.OWNER));
+        assertEquals(0, bookingCounters.reconcile());
+    }
+
+    @Test
+    public void archive_appendsLaterBatchesToTheSameSegment() {
+        LocalDateTime start = cold.atDay(3).atTime(10, 0);
+        for (int i = 0; i < 3; i++) {
+            bookingRepository.saveAndFlush(booking(start.plusDays(2L * i), start.plusDays(2L * i + 1), Status.APPROVED));
+        }
+
+        assertEquals(2, bookingArchive.archive(cold, 2));
+        assertEquals(1, bookingArchive.archive(cold, 2));
+        assertEquals(0, bookingArchive.archive(cold, 2));
+
+        assertEquals(3, bookingService.getBookingsByBooker(booker.getId(), State.PAST, 0, 10).size());
+    }
+
+    @Test
+    public void getBookings_readsThroughToTheArchiveInListOrder() {
+        LocalDateTime coldStart = cold.atDay(3).atTime(10, 0);
+        LocalDateTime hotStart = LocalDateTime.now().minusDays(10).withNano(0);
+        Booking oldest = bookingRepository.saveAndFlush(booking(coldStart, coldStart.plusDays(1), Status.APPROVED));
+        Booking older = bookingRepository.saveAndFlush(booking(coldStart.plusDays(4), coldStart.plusDays(5), Status.REJECTED));
+        // still running long after its month went cold, so it stays in the hot table
+        Booking longRental = booking(coldStart.plusDays(2), hotStart.plusYears(1), Status.APPROVED);
+        longRental.setItem(persistItem("tent"));
+        bookingRepository.saveAndFlush(longRental);
+        Booking recent = bookingRepository.saveAndFlush(booking(hotStart, hotStart.plusDays(1), Status.APPROVED));
+        bookingArchive.archive(cold, 100);
+        entityManager.clear();
+
+        assertEquals(List.of(recent.getId(), older.getId(), longRental.getId(), oldest.getId()),
+                ids(bookingService.getBookingsByBooker(booker.getId(), State.ALL, 0, 10)));
+        assertEquals(List.of(older.getId(), longRental.getId()),
+                ids(bookingService.getBookingsByOwner(owner.getId(), State.ALL, 1, 2)));
+        assertEquals(List.of(older.getId(), oldest.getId()),
+                ids(bookingService.getBookingsByBooker(booker.getId(), State.PAST, 1, 10)));
+        assertEquals(List.of(older.getId()),
+                ids(bookingService.getBookingsByBooker(booker.getId(), State.REJECTED, 0, 10)));
+        assertEquals(List.of(longRental.getId()),
+                ids(bookingService.getBookingsByBooker(booker.getId(), State.CURRENT, 0, 10)));
+
+        List<BookingDTO> firstPage = bookingService.getBookingsByBooker(booker.getId(), State.ALL, 0, 2);
+        assertEquals(List.of(longRental.getId(), oldest.getId()), ids(bookingService.getBookingsByBooker(
+                booker.getId(), State.ALL, BookingCursor.after(firstPage.get(1)), 2)));
+
+        List<BookingDTO> exported = new ArrayList<>();
+        bookingService.exportBookingsByOwner(owner.getId(), State.ALL).writeTo(exported::add);
+        assertEquals(List.of(recent.getId(), older.getId(), longRental.getId(), oldest.getId()), ids(exported));
+    }
+
+    @Test
+    public void getBookings_opensOnlyTheSegmentsTheUserAppearsIn() throws Exception {
+        YearMonth otherMonth = cold.minusMonths(6);
+        User otherBooker = persistUser("other", "other@test.com");
+        LocalDateTime start = cold.atDay(3).atTime(10, 0);
+        Booking mine = bookingRepository.saveAndFlush(booking(start, start.plusDays(1), Status.APPROVED));
+        Booking theirs = booking(otherMonth.atDay(3).atTime(10, 0), otherMonth.atDay(4).atTime(10, 0), Status.APPROVED);
+        theirs.setBooker(otherBooker);
+        bookingRepository.saveAndFlush(theirs);
+        bookingArchive.archive(cold, 100);
+        bookingArchive.archive(otherMonth, 100);
+        entityManager.clear();
+
+        // reading the other booker's segment would now fail
+        Path otherSegment = archiveDir.resolve("bookings-" + otherMonth + ".ndjson.gz");
+        Files.writeString(otherSegment, "not gzip");
+        try {
+            assertEquals(List.of(mine.getId()),
+                    ids(bookingService.getBookingsByBooker(booker.getId(), State.ALL, 0, 10)));
+            assertEquals(List.of(), bookingService.getBookingsByBooker(booker.getId(), State.WAITING, 0, 10));
+            assertThrows(RuntimeException.class,
+                    () -> bookingService.getBookingsByBooker(otherBooker.getId(), State.ALL, 0, 10));
+        } finally {
+            Files.delete(otherSegment);
+        }
+    }
+
+
+    private List<Integer> ids(List<BookingDTO> bookings) {
+        return bookings.stream().map(BookingDTO::getId).toList();
+    }
+
+    private User persistUser(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        return entityManager.persist(user);
+    }
+
+    private Item persistItem(String name) {
+        Item item = new Item();
+        item.setName(name);
+        item.setDescription(name + " for rent");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        return entityManager.persist(item);
+    }
+
+    private Booking booking(LocalDateTime start, LocalDateTime end, Status status) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(status);
+        return booking;
+    }
+}
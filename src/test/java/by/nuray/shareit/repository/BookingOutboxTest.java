@@ -0,0 +1,172 @@
+package by.nuray.shareit.repository;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.user.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookingCounters.class, BookingOutbox.class, BookingOutboxTest.SinkConfig.class})
+public class BookingOutboxTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingOutbox bookingOutbox;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        base = LocalDateTime.now().plusDays(1).withNano(0);
+        sink.events.clear();
+        sink.failing = false;
+
+        owner = persistUser("owner", "owner@test.com");
+        booker = persistUser("booker", "booker@test.com");
+
+        item = new Item();
+        item.setName("drill");
+        item.setDescription("cordless drill");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        entityManager.persist(item);
+    }
+
+    @Test
+    public void relay_deliversEventsFromEveryWritePathInOrderAndDrainsTheOutbox() {
+        Booking saved = bookingRepository.saveAndFlush(booking(base, base.plusDays(1)));
+        List<Booking> inserted = bookingRepository.insertAll(List.of(booking(base.plusDays(2), base.plusDays(3))));
+
+        entityManager.clear();
+        Booking loaded = bookingRepository.findById(saved.getId()).orElseThrow();
+        loaded.setStatus(Status.APPROVED);
+        bookingRepository.saveAndFlush(loaded);
+        bookingRepository.transitionWaiting(List.of(inserted.get(0).getId()),
+                BookingQuery.Perspective.BOOKER, booker.getId(), Status.CANCELED);
+
+        assertEquals(4, bookingOutbox.relay(100));
+        assertEquals(0, bookingOutbox.relay(100));
+
+        List<BookingEvent> events = sink.events;
+        assertEquals(List.of(saved.getId(), inserted.get(0).getId(), saved.getId(), inserted.get(0).getId()),
+                events.stream().map(BookingEvent::bookingId).toList());
+        assertTrue(events.get(0).isCreated());
+        assertEquals(Status.WAITING, events.get(0).status());
+        assertEquals(owner.getId(), events.get(1).ownerId());
+        assertEquals(Status.WAITING, events.get(2).previousStatus());
+        assertEquals(Status.APPROVED, events.get(2).status());
+        assertEquals(Status.CANCELED, events.get(3).status());
+        assertEquals(booker.getId(), events.get(3).bookerId());
+    }
+
+    @Test
+    public void relay_takesAtMostOneBatch() {
+        bookingRepository.insertAll(List.of(
+                booking(base, base.plusDays(1)),
+                booking(base.plusDays(2), base.plusDays(3)),
+                booking(base.plusDays(4), base.plusDays(5))));
+
+        assertEquals(2, bookingOutbox.relay(2));
+        assertEquals(1, bookingOutbox.relay(2));
+        assertEquals(3, sink.events.size());
+    }
+
+    @Test
+    public void relay_whenSinkFails_keepsEventsForTheNextAttempt() {
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(1)));
+        sink.failing = true;
+
+        assertThrows(IllegalStateException.class, () -> bookingOutbox.relay(100));
+
+        sink.failing = false;
+        assertEquals(1, bookingOutbox.relay(100));
+    }
+
+    @Test
+    public void fileSink_appendsOneJsonObjectPerLine(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("events.ndjson");
+        FileBookingEventSink fileSink = new FileBookingEventSink(file, new ObjectMapper().findAndRegisterModules());
+        BookingEvent created = new BookingEvent(1, 7, 2, 3, null, Status.WAITING, base);
+
+        fileSink.publish(List.of(created));
+        fileSink.publish(List.of(new BookingEvent(2, 7, 2, 3, Status.WAITING, Status.APPROVED, base)));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"bookingId\":7"));
+        assertTrue(lines.get(1).contains("\"status\":\"APPROVED\""));
+    }
+
+
+    private User persistUser(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        return entityManager.persist(user);
+    }
+
+    private Booking booking(LocalDateTime start, LocalDateTime end) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(Status.WAITING);
+        return booking;
+    }
+
+    static class RecordingSink implements BookingEventSink {
+
+        final List<BookingEvent> events = new ArrayList<>();
+        boolean failing;
+
+        @Override
+        public void publish(List<BookingEvent> batch) {
+            if (failing) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            events.addAll(batch);
+        }
+    }
+
+    @TestConfiguration
+    static class SinkConfig {
+
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+}
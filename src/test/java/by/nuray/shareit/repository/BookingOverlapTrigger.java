@@ -0,0 +1,68 @@
+package by.nuray.shareit.repository;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * H2 stand-in for the PostgreSQL exclusion constraint bookings_no_overlap:
+ * rejects a WAITING/APPROVED booking that overlaps another one of the same item.
+ */
+public class BookingOverlapTrigger implements Trigger {
+
+    private static final String CONSTRAINT = "bookings_no_overlap";
+
+    private int idColumn;
+    private int itemColumn;
+    private int startColumn;
+    private int endColumn;
+    private int statusColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        try (ResultSet columns = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (columns.next()) {
+                int position = columns.getInt("ORDINAL_POSITION") - 1;
+                switch (columns.getString("COLUMN_NAME").toLowerCase()) {
+                    case "id" -> idColumn = position;
+                    case "item_id" -> itemColumn = position;
+                    case "start_date" -> startColumn = position;
+                    case "end_date" -> endColumn = position;
+                    case "status" -> statusColumn = position;
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        Object status = newRow[statusColumn];
+        if (!"WAITING".equals(status) && !"APPROVED".equals(status)) {
+            return;
+        }
+
+        Object id = newRow[idColumn];
+        String sql = "SELECT 1 FROM bookings WHERE item_id = ? AND status IN ('WAITING', 'APPROVED') " +
+                "AND start_date < ? AND end_date > ?" + (id == null ? "" : " AND id <> ?");
+
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            statement.setObject(1, newRow[itemColumn]);
+            statement.setObject(2, newRow[endColumn]);
+            statement.setObject(3, newRow[startColumn]);
+            if (id != null) {
+                statement.setObject(4, id);
+            }
+            try (ResultSet overlapping = statement.executeQuery()) {
+                if (overlapping.next()) {
+                    throw new SQLException("Booking violates exclusion constraint " + CONSTRAINT, "23P01");
+                }
+            }
+        }
+    }
+}
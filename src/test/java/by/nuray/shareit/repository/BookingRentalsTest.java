@@ -0,0 +1,126 @@
+package by.nuray.shareit.repository;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookingCounters.class, BookingOutbox.class, BookingRentals.class})
+public class BookingRentalsTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingRentals bookingRentals;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User booker;
+    private Item item;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        now = LocalDateTime.now().withNano(0);
+
+        User owner = persistUser("owner", "owner@test.com");
+        booker = persistUser("booker", "booker@test.com");
+
+        item = new Item();
+        item.setName("drill");
+        item.setDescription("cordless drill");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        entityManager.persist(item);
+    }
+
+    @Test
+    public void hasRented_whenApprovedBookingEnded_isTrueBeforeTheSweepAndAfterTheRowIsGone() {
+        // ended a minute ago, the phase sweep has not moved it to PAST yet
+        Booking ended = bookingRepository.saveAndFlush(booking(now.minusDays(2), now.minusMinutes(1),
+                Status.APPROVED, Phase.CURRENT));
+
+        assertTrue(bookingRentals.hasRented(booker.getId(), item.getId()));
+
+        assertEquals(1, bookingRentals.recordEnded(now));
+        jdbcTemplate.update("DELETE FROM bookings WHERE id = ?", ended.getId());
+
+        assertTrue(new BookingRentals(jdbcTemplate, 16).hasRented(booker.getId(), item.getId()));
+    }
+
+    @Test
+    public void hasRented_whenBookingIsNotApprovedOrNotFinished_isFalse() {
+        bookingRepository.saveAndFlush(booking(now.minusDays(4), now.minusDays(3), Status.REJECTED, null));
+        bookingRepository.saveAndFlush(booking(now.minusDays(2), now.minusDays(1), Status.CANCELED, null));
+        bookingRepository.saveAndFlush(booking(now.minusHours(1), now.plusDays(1), Status.APPROVED, null));
+
+        assertEquals(0, bookingRentals.recordEnded(now));
+        assertFalse(bookingRentals.hasRented(booker.getId(), item.getId()));
+    }
+
+    @Test
+    public void hasRented_whenBookingWasArchived_isTrue() {
+        bookingRentals.recordArchived(List.of(
+                new ArchivedBooking(1, now.minusYears(2), now.minusYears(2).plusDays(1), item.getId(),
+                        booker.getId(), item.getOwner().getId(), Status.APPROVED),
+                new ArchivedBooking(2, now.minusYears(2), now.minusYears(2).plusDays(1), item.getId() + 1,
+                        booker.getId(), item.getOwner().getId(), Status.REJECTED)));
+
+        BookingRentals restarted = new BookingRentals(jdbcTemplate, 16);
+        assertTrue(restarted.hasRented(booker.getId(), item.getId()));
+        assertFalse(restarted.hasRented(booker.getId(), item.getId() + 1));
+    }
+
+    @Test
+    public void hasRented_whenPairWasSeen_answersFromMemory() {
+        Booking ended = bookingRepository.saveAndFlush(booking(now.minusDays(2), now.minusDays(1),
+                Status.APPROVED, null));
+        BookingRentals rentals = new BookingRentals(jdbcTemplate, 16);
+        assertTrue(rentals.hasRented(booker.getId(), item.getId()));
+
+        jdbcTemplate.update("DELETE FROM bookings WHERE id = ?", ended.getId());
+
+        assertTrue(rentals.hasRented(booker.getId(), item.getId()));
+        assertFalse(new BookingRentals(jdbcTemplate, 16).hasRented(booker.getId(), item.getId()));
+    }
+
+
+    private User persistUser(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        return entityManager.persist(user);
+    }
+
+    private Booking booking(LocalDateTime start, LocalDateTime end, Status status, Phase phase) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(status);
+        booking.setPhase(phase);
+        return booking;
+    }
+}
@@ -0,0 +1,353 @@
+package by.nuray.shareit.repository;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookingCounters.class, BookingOutbox.class})
+public class BookingRepositoryTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookingCounters bookingCounters;
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        base = LocalDateTime.now().plusDays(1).withNano(0);
+
+        owner = persistUser("owner", "owner@test.com");
+        booker = persistUser("booker", "booker@test.com");
+
+        item = new Item();
+        item.setName("drill");
+        item.setDescription("cordless drill");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        entityManager.persist(item);
+    }
+
+    @Test
+    public void save_whenActiveBookingOverlaps_violatesOverlapConstraint() {
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(2), Status.WAITING));
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> bookingRepository.saveAndFlush(booking(base.plusDays(1), base.plusDays(3), Status.WAITING)));
+
+        assertTrue(exception.getMostSpecificCause().getMessage().contains("bookings_no_overlap"));
+    }
+
+    @Test
+    public void save_whenOverlappingBookingIsCanceled_succeeds() {
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(2), Status.CANCELED));
+
+        Booking saved = bookingRepository.saveAndFlush(booking(base.plusDays(1), base.plusDays(3), Status.WAITING));
+
+        assertTrue(saved.getId() > 0);
+    }
+
+    @Test
+    public void save_whenRangesOnlyTouch_succeeds() {
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.APPROVED));
+
+        Booking saved = bookingRepository.saveAndFlush(booking(base.plusDays(1), base.plusDays(2), Status.WAITING));
+
+        assertTrue(saved.getId() > 0);
+    }
+
+    @Test
+    public void findActiveSlotsForItem_returnsOnlyOverlappingActiveBookings() {
+        Booking waiting = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.REJECTED));
+        bookingRepository.saveAndFlush(booking(base.plusDays(5), base.plusDays(6), Status.APPROVED));
+
+        List<BookingSlot> slots = bookingRepository.findActiveSlotsForItem(item.getId(), base.minusHours(1), base.plusHours(1));
+
+        assertEquals(List.of(BookingSlot.of(waiting)), slots);
+    }
+
+    @Test
+    public void findBookings_forBookerAndOwner_filtersByStateAndOrdersByStartDescending() {
+        Booking first = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        Booking second = bookingRepository.saveAndFlush(booking(base.plusDays(2), base.plusDays(3), Status.REJECTED));
+        Booking third = bookingRepository.saveAndFlush(booking(base.plusDays(4), base.plusDays(5), Status.WAITING));
+
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()),
+                ids(BookingQuery.forBooker(booker.getId(), State.ALL, 0, 10)));
+        assertEquals(List.of(third.getId(), first.getId()),
+                ids(BookingQuery.forOwner(owner.getId(), State.WAITING, 0, 10)));
+        assertEquals(List.of(second.getId()),
+                ids(BookingQuery.forOwner(owner.getId(), State.REJECTED, 0, 10)));
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()),
+                ids(BookingQuery.forOwner(owner.getId(), State.FUTURE, 0, 10)));
+        assertTrue(bookingRepository.findBookings(BookingQuery.forBooker(owner.getId(), State.ALL, 0, 10)).isEmpty());
+    }
+
+    @Test
+    public void findBookings_withCursor_seeksPastPreviousPage() {
+        Booking first = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        Booking second = bookingRepository.saveAndFlush(booking(base.plusDays(2), base.plusDays(3), Status.WAITING));
+        Booking third = bookingRepository.saveAndFlush(booking(base.plusDays(4), base.plusDays(5), Status.WAITING));
+
+        List<BookingDTO> firstPage = bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.ALL, 0, 2));
+        List<BookingDTO> secondPage = bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.ALL,
+                BookingCursor.after(firstPage.get(1)), 2));
+
+        assertEquals(List.of(third.getId(), second.getId()), firstPage.stream().map(BookingDTO::getId).toList());
+        assertEquals(List.of(first.getId()), secondPage.stream().map(BookingDTO::getId).toList());
+    }
+
+
+    @Test
+    public void insertAll_assignsGeneratedIdsAndEnforcesOverlapConstraint() {
+        List<Booking> inserted = bookingRepository.insertAll(List.of(
+                booking(base, base.plusDays(1), Status.WAITING),
+                booking(base.plusDays(1), base.plusDays(2), Status.WAITING)));
+
+        assertTrue(inserted.get(0).getId() > 0);
+        assertTrue(inserted.get(1).getId() > inserted.get(0).getId());
+        assertEquals(2, bookingRepository.findActiveSlotsForItems(List.of(item.getId()), base, base.plusDays(2)).size());
+
+        assertThrows(DataIntegrityViolationException.class, () -> bookingRepository.insertAll(List.of(
+                booking(base.plusDays(5), base.plusDays(6), Status.WAITING),
+                booking(base.plusHours(1), base.plusHours(2), Status.WAITING))));
+    }
+
+
+    @Test
+    public void transitionWaiting_updatesOnlyWaitingBookingsOfTheCaller() {
+        Booking waiting = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        Booking approved = bookingRepository.saveAndFlush(booking(base.plusDays(2), base.plusDays(3), Status.APPROVED));
+        Booking another = bookingRepository.saveAndFlush(booking(base.plusDays(4), base.plusDays(5), Status.WAITING));
+
+        List<BookingParties> notOwner = bookingRepository.transitionWaiting(List.of(waiting.getId(), another.getId()),
+                BookingQuery.Perspective.OWNER, booker.getId(), Status.APPROVED);
+        List<BookingParties> transitioned = bookingRepository.transitionWaiting(
+                List.of(waiting.getId(), approved.getId(), another.getId(), 999),
+                BookingQuery.Perspective.OWNER, owner.getId(), Status.REJECTED);
+        entityManager.clear();
+
+        assertTrue(notOwner.isEmpty());
+        assertEquals(List.of(new BookingParties(waiting.getId(), booker.getId(), owner.getId()),
+                new BookingParties(another.getId(), booker.getId(), owner.getId())), transitioned);
+        assertEquals(Status.REJECTED, bookingRepository.findById(waiting.getId()).orElseThrow().getStatus());
+        assertEquals(Status.APPROVED, bookingRepository.findById(approved.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void transitionWaiting_forBooker_cancelsOwnBookings() {
+        Booking waiting = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+
+        assertTrue(bookingRepository.transitionWaiting(List.of(waiting.getId()),
+                BookingQuery.Perspective.BOOKER, owner.getId(), Status.CANCELED).isEmpty());
+        assertEquals(List.of(new BookingParties(waiting.getId(), booker.getId(), owner.getId())),
+                bookingRepository.transitionWaiting(List.of(waiting.getId()),
+                        BookingQuery.Perspective.BOOKER, booker.getId(), Status.CANCELED));
+    }
+
+    @Test
+    public void expireWaiting_expiresOnlyStartedWaitingBookingsAndCountsThem() {
+        Booking started = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        Booking decided = bookingRepository.saveAndFlush(booking(base.plusDays(2), base.plusDays(3), Status.APPROVED));
+        Booking later = bookingRepository.saveAndFlush(booking(base.plusDays(4), base.plusDays(5), Status.WAITING));
+
+        List<BookingParties> expired = bookingRepository.expireWaiting(
+                List.of(started.getId(), decided.getId(), later.getId()), base.plusDays(3));
+        entityManager.clear();
+
+        assertEquals(List.of(new BookingParties(started.getId(), booker.getId(), owner.getId())), expired);
+        assertEquals(Status.EXPIRED, bookingRepository.findById(started.getId()).orElseThrow().getStatus());
+        assertEquals(Status.WAITING, bookingRepository.findById(later.getId()).orElseThrow().getStatus());
+        assertEquals(Map.of(Status.WAITING, 1L, Status.APPROVED, 1L, Status.EXPIRED, 1L),
+                bookingCounters.countsFor(owner.getId(), BookingQuery.Perspective.OWNER));
+        // an expired booking no longer holds its range
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+    }
+
+
+    @Test
+    public void transitionIfWaiting_movesOnlyAWaitingBookingOfTheCallerAndReturnsTheRow() {
+        Booking waiting = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+
+        assertTrue(bookingRepository.transitionIfWaiting(waiting.getId(), BookingQuery.Perspective.OWNER,
+                booker.getId(), Status.APPROVED).isEmpty());
+        assertTrue(bookingRepository.transitionIfWaiting(999, BookingQuery.Perspective.OWNER,
+                owner.getId(), Status.APPROVED).isEmpty());
+
+        Booking approved = bookingRepository.transitionIfWaiting(waiting.getId(), BookingQuery.Perspective.OWNER,
+                owner.getId(), Status.APPROVED).orElseThrow();
+        // the booker's cancel lost the race: the booking is no longer WAITING
+        assertTrue(bookingRepository.transitionIfWaiting(waiting.getId(), BookingQuery.Perspective.BOOKER,
+                booker.getId(), Status.CANCELED).isEmpty());
+        entityManager.clear();
+
+        assertEquals(Status.APPROVED, approved.getStatus());
+        assertEquals(base, approved.getStart());
+        assertEquals(item.getId(), approved.getItem().getId());
+        assertEquals(booker.getId(), approved.getBooker().getId());
+        assertEquals(waiting.getVersion() + 1, approved.getVersion());
+        assertEquals(Status.APPROVED, bookingRepository.findById(waiting.getId()).orElseThrow().getStatus());
+        assertEquals(Map.of(Status.WAITING, 0L, Status.APPROVED, 1L),
+                bookingCounters.countsFor(owner.getId(), BookingQuery.Perspective.OWNER));
+    }
+
+    @Test
+    public void transitionIfWaiting_forBooker_resolvesOwnerForCounters() {
+        Booking waiting = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+
+        assertTrue(bookingRepository.transitionIfWaiting(waiting.getId(), BookingQuery.Perspective.BOOKER,
+                booker.getId(), Status.CANCELED).isPresent());
+
+        assertEquals(Map.of(Status.WAITING, 0L, Status.CANCELED, 1L),
+                bookingCounters.countsFor(owner.getId(), BookingQuery.Perspective.OWNER));
+        assertEquals(0, bookingCounters.reconcile());
+    }
+
+    @Test
+    public void save_whenEntityIsStale_failsOptimisticLock() {
+        Booking waiting = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        entityManager.clear();
+        Booking stale = bookingRepository.findById(waiting.getId()).orElseThrow();
+        entityManager.clear();
+
+        bookingRepository.transitionIfWaiting(waiting.getId(), BookingQuery.Perspective.OWNER,
+                owner.getId(), Status.REJECTED);
+        stale.setStatus(Status.APPROVED);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> bookingRepository.saveAndFlush(stale));
+    }
+
+    @Test
+    public void advancePhases_movesBookingsForwardInBoundedBatches() {
+        Booking first = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        Booking second = bookingRepository.saveAndFlush(booking(base.plusDays(2), base.plusDays(3), Status.WAITING));
+        Booking third = bookingRepository.saveAndFlush(booking(base.plusDays(4), base.plusDays(5), Status.WAITING));
+        assertEquals(Phase.FUTURE, first.getPhase());
+
+        LocalDateTime now = base.plusDays(2).plusHours(1);
+        assertEquals(1, bookingRepository.advanceToPast(now, 1));
+        assertEquals(0, bookingRepository.advanceToPast(now, 1));
+        assertEquals(1, bookingRepository.advanceToCurrent(now, 10));
+        entityManager.clear();
+
+        assertEquals(List.of(first.getId()), ids(BookingQuery.forBooker(booker.getId(), State.PAST, 0, 10)));
+        assertEquals(List.of(second.getId()), ids(BookingQuery.forOwner(owner.getId(), State.CURRENT, 0, 10)));
+        assertEquals(List.of(third.getId()), ids(BookingQuery.forBooker(booker.getId(), State.FUTURE, 0, 10)));
+    }
+
+    @Test
+    public void assignMissingPhases_fillsRowsWrittenWithoutPhase() {
+        Booking booking = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE bookings SET phase = NULL WHERE id = " + booking.getId())
+                .executeUpdate();
+
+        assertEquals(1, bookingRepository.assignMissingPhases(base.plusHours(1), 10));
+        entityManager.clear();
+
+        assertEquals(Phase.CURRENT, bookingRepository.findById(booking.getId()).orElseThrow().getPhase());
+    }
+
+
+    @Test
+    public void counters_followInsertsAndStatusChangesOnEveryWritePath() {
+        Booking saved = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        bookingRepository.insertAll(List.of(
+                booking(base.plusDays(2), base.plusDays(3), Status.WAITING),
+                booking(base.plusDays(4), base.plusDays(5), Status.WAITING)));
+        assertEquals(Map.of(Status.WAITING, 3L), bookingCounters.countsFor(booker.getId(), BookingQuery.Perspective.BOOKER));
+
+        entityManager.clear();
+        Booking loaded = bookingRepository.findById(saved.getId()).orElseThrow();
+        loaded.setStatus(Status.APPROVED);
+        bookingRepository.saveAndFlush(loaded);
+        List<Integer> waitingIds = ids(BookingQuery.forOwner(owner.getId(), State.WAITING, 0, 10));
+        bookingRepository.transitionWaiting(waitingIds, BookingQuery.Perspective.OWNER, owner.getId(), Status.REJECTED);
+
+        assertEquals(Map.of(Status.WAITING, 0L, Status.APPROVED, 1L, Status.REJECTED, 2L),
+                bookingCounters.countsFor(owner.getId(), BookingQuery.Perspective.OWNER));
+        assertEquals(0, bookingCounters.reconcile());
+    }
+
+    @Test
+    public void reconcile_repairsDriftedAndMissingCounters() {
+        bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        entityManager.getEntityManager().createNativeQuery("DELETE FROM booking_counters").executeUpdate();
+
+        assertEquals(2, bookingCounters.reconcile());
+
+        assertEquals(Map.of(Status.WAITING, 1L), bookingCounters.countsFor(booker.getId(), BookingQuery.Perspective.BOOKER));
+        assertEquals(List.of(new PhaseCount(Phase.FUTURE, 1)), bookingRepository.countPhasesForOwner(owner.getId()));
+    }
+
+
+    @Test
+    public void streamBookings_feedsMatchingRowsInListOrder() {
+        Booking first = bookingRepository.saveAndFlush(booking(base, base.plusDays(1), Status.WAITING));
+        Booking second = bookingRepository.saveAndFlush(booking(base.plusDays(2), base.plusDays(3), Status.REJECTED));
+        Booking third = bookingRepository.saveAndFlush(booking(base.plusDays(4), base.plusDays(5), Status.WAITING));
+
+        List<BookingDTO> owned = new ArrayList<>();
+        bookingRepository.streamBookings(BookingQuery.forOwner(owner.getId(), State.ALL, 0, 1), owned::add);
+        List<BookingDTO> waiting = new ArrayList<>();
+        bookingRepository.streamBookings(BookingQuery.forBooker(booker.getId(), State.WAITING, 0, 1), waiting::add);
+
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()), owned.stream().map(BookingDTO::getId).toList());
+        assertEquals(List.of(third.getId(), first.getId()), waiting.stream().map(BookingDTO::getId).toList());
+        assertEquals(item.getId(), owned.get(0).getItemId());
+        assertEquals(booker.getId(), owned.get(0).getBookerId());
+        assertEquals(base.plusDays(4), owned.get(0).getStart());
+        assertEquals(Status.REJECTED, owned.get(1).getStatus());
+    }
+
+
+    private List<Integer> ids(BookingQuery query) {
+        return bookingRepository.findBookings(query).stream().map(BookingDTO::getId).toList();
+    }
+
+    private User persistUser(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        return entityManager.persist(user);
+    }
+
+    private Booking booking(LocalDateTime start, LocalDateTime end, Status status) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(status);
+        return booking;
+    }
+}
@@ -0,0 +1,195 @@
+package by.nuray.shareit.repository;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.comment.Comment;
+import by.nuray.shareit.comment.CommentDto;
+import by.nuray.shareit.comment.CommentRepository;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemDto;
+import by.nuray.shareit.item.ItemRepository;
+import by.nuray.shareit.request.ItemRequest;
+import by.nuray.shareit.request.ItemRequestDTO;
+import by.nuray.shareit.request.ItemRequestRepository;
+import by.nuray.shareit.user.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the SQL statements behind each read endpoint. Every list must stay at one
+ * statement however many rows it returns, and list reads must project straight into
+ * DTOs without hydrating a single entity.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookingCounters.class, BookingOutbox.class})
+public class FetchPlanTest {
+
+    private static final int ROWS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+
+    private Statistics statistics;
+    private User owner;
+    private User booker;
+    private Item firstItem;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        LocalDateTime base = LocalDateTime.now().plusDays(1);
+
+        owner = persistUser("owner", "owner@test.com");
+        booker = persistUser("booker", "booker@test.com");
+
+        for (int i = 0; i < ROWS; i++) {
+            // each row gets its own owner-side user and request, so eager loading would show up per row
+            User requester = persistUser("requester" + i, "requester" + i + "@test.com");
+            ItemRequest request = new ItemRequest();
+            request.setDescription("need item " + i);
+            request.setCreatedAt(LocalDateTime.now());
+            request.setRequester(requester);
+            entityManager.persist(request);
+
+            Item item = new Item();
+            item.setName("item " + i);
+            item.setDescription("description " + i);
+            item.setAvailable(true);
+            item.setOwner(owner);
+            item.setRequest(request);
+            entityManager.persist(item);
+            if (i == 0) {
+                firstItem = item;
+            }
+
+            Booking booking = new Booking();
+            booking.setStart(base.plusDays(i));
+            booking.setEnd(base.plusDays(i).plusHours(1));
+            booking.setItem(item);
+            booking.setBooker(booker);
+            booking.setStatus(Status.WAITING);
+            entityManager.persist(booking);
+
+            Comment comment = new Comment();
+            comment.setText("comment " + i);
+            comment.setCreatedAt(LocalDateTime.now());
+            comment.setAuthor(requester);
+            comment.setItem(firstItem);
+            entityManager.persist(comment);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    public void bookingListByOwner_isOneStatement() {
+        List<BookingDTO> dtos = countStatements(1, () -> bookingRepository
+                .findBookings(BookingQuery.forOwner(owner.getId(), State.ALL, 0, 10)));
+
+        assertEquals(ROWS, dtos.size());
+        assertNoEntitiesLoaded();
+        assertEquals(booker.getId(), dtos.get(0).getBookerId());
+    }
+
+    @Test
+    public void bookingListByBooker_isOneStatement() {
+        List<BookingDTO> dtos = countStatements(1, () -> bookingRepository
+                .findBookings(BookingQuery.forBooker(booker.getId(), State.WAITING, 0, 10)));
+
+        assertEquals(ROWS, dtos.size());
+        assertNoEntitiesLoaded();
+        assertTrue(dtos.get(0).getItemId() > 0);
+    }
+
+    @Test
+    public void bookingById_loadsItemInTheSameStatement() {
+        int bookingId = bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.ALL, 0, 1))
+                .get(0).getId();
+        entityManager.clear();
+
+        int ownerId = countStatements(1, () -> bookingRepository.findById(bookingId).orElseThrow()
+                .getItem().getOwner().getId());
+
+        assertEquals(owner.getId(), ownerId);
+    }
+
+    @Test
+    public void itemListByOwner_isOneStatement() {
+        List<ItemDto> dtos = countStatements(1, () -> itemRepository.findAllByOwnerIdPaged(owner.getId(), 0, 10));
+
+        assertEquals(ROWS, dtos.size());
+        assertNoEntitiesLoaded();
+        assertNotNull(dtos.get(0).getRequestId());
+    }
+
+    @Test
+    public void commentListByItem_isOneStatement() {
+        List<CommentDto> dtos = countStatements(1, () -> commentRepository.findByItemId(firstItem.getId()));
+
+        assertEquals(ROWS, dtos.size());
+        assertNoEntitiesLoaded();
+        assertEquals(firstItem.getId(), dtos.get(0).getItemId());
+        assertTrue(dtos.get(0).getAuthorId() > 0);
+    }
+
+    @Test
+    public void requestListFromOthers_isOneStatement() {
+        List<ItemRequestDTO> dtos = countStatements(1, () -> itemRequestRepository
+                .findRequestsFromOthers(owner.getId(), 0, 10));
+
+        assertEquals(ROWS, dtos.size());
+        assertNoEntitiesLoaded();
+    }
+
+
+    private <T> T countStatements(long expected, Supplier<T> endpoint) {
+        entityManager.clear();
+        statistics.clear();
+
+        T result = endpoint.get();
+
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements issued");
+        return result;
+    }
+
+    private void assertNoEntitiesLoaded() {
+        assertEquals(0, statistics.getEntityLoadCount(), "entities hydrated");
+    }
+
+    private User persistUser(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        return entityManager.persist(user);
+    }
+}
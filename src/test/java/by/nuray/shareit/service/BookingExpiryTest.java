@@ -0,0 +1,87 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingExpiryTest {
+
+    @Mock
+    BookingRepository bookingRepository;
+
+    @Mock
+    BookingIntervalIndex bookingIntervalIndex;
+
+    BookingExpiry bookingExpiry;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        now = LocalDateTime.now().withNano(0);
+        bookingExpiry = new BookingExpiry(bookingRepository, bookingIntervalIndex, 1000, 2);
+    }
+
+    @Test
+    public void rebuild_tracksEveryWaitingBookingOfTheDatabase() {
+        Mockito.when(bookingRepository.findWaitingSlots()).thenReturn(List.of(
+                new BookingSlot(1, 10, now.minusDays(1), now, Status.WAITING),
+                new BookingSlot(2, 10, now.plusDays(1), now.plusDays(2), Status.WAITING)));
+
+        bookingExpiry.rebuild();
+
+        assertEquals(2, bookingExpiry.pending());
+    }
+
+    @Test
+    public void expireDue_expiresOnlyStartedBookingsInBatchesAndFreesTheirRanges() {
+        bookingExpiry.track(1, now.plusMinutes(1));
+        bookingExpiry.track(2, now.plusMinutes(2));
+        bookingExpiry.track(3, now.plusMinutes(3));
+        bookingExpiry.track(4, now.plusHours(1));
+        Mockito.when(bookingRepository.expireWaiting(Mockito.anyList(), Mockito.any()))
+                .thenAnswer(inv -> inv.<List<Integer>>getArgument(0).stream()
+                        // booking 2 was approved in the meantime
+                        .filter(id -> id != 2)
+                        .map(id -> new BookingParties(id, 100, 200))
+                        .toList());
+
+        assertEquals(0, bookingExpiry.expireDue(now));
+        assertEquals(2, bookingExpiry.expireDue(now.plusMinutes(5)));
+
+        Mockito.verify(bookingRepository).expireWaiting(List.of(1, 2), now.plusMinutes(5));
+        Mockito.verify(bookingRepository).expireWaiting(List.of(3), now.plusMinutes(5));
+        Mockito.verify(bookingIntervalIndex).updateStatus(1, Status.EXPIRED);
+        Mockito.verify(bookingIntervalIndex).updateStatus(3, Status.EXPIRED);
+        Mockito.verify(bookingIntervalIndex, Mockito.never()).updateStatus(2, Status.EXPIRED);
+        assertEquals(1, bookingExpiry.pending());
+    }
+
+    @Test
+    public void expireDue_whenUpdateFails_retriesTheUnprocessedBookingsNextTick() {
+        bookingExpiry.track(1, now.plusMinutes(1));
+        bookingExpiry.track(2, now.plusMinutes(1));
+        bookingExpiry.track(3, now.plusMinutes(2));
+        Mockito.when(bookingRepository.expireWaiting(Mockito.anyList(), Mockito.any()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenAnswer(inv -> inv.<List<Integer>>getArgument(0).stream()
+                        .map(id -> new BookingParties(id, 100, 200))
+                        .toList());
+
+        assertThrows(IllegalStateException.class, () -> bookingExpiry.expireDue(now.plusMinutes(5)));
+        assertEquals(3, bookingExpiry.pending());
+
+        assertEquals(3, bookingExpiry.expireDue(now.plusMinutes(5)));
+        assertEquals(0, bookingExpiry.pending());
+    }
+}
@@ -0,0 +1,160 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserService;
+import by.nuray.shareit.util.BookingException;
+import by.nuray.shareit.util.BookingNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingHoldsTest {
+
+    @Mock
+    BookingRepository bookingRepository;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    ItemService itemService;
+
+    BookingHolds bookingHolds;
+
+    BookingServiceImpl bookingService;
+
+    private Item item;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @BeforeEach
+    void setUp() {
+        bookingHolds = new BookingHolds(60_000, 1000);
+        bookingService = new BookingServiceImpl(bookingRepository, userService, itemService,
+                new BookingIntervalIndex(), new ItemLockStripes(), Mockito.mock(BookingCounters.class),
+                Mockito.mock(BookingArchive.class), Mockito.mock(BookingRentals.class),
+                Mockito.mock(BookingExpiry.class), bookingHolds, new BookingWaitlist(100));
+
+        item = new Item();
+        item.setId(10);
+        item.setAvailable(true);
+
+        start = LocalDateTime.now().plusDays(1);
+        end = start.plusDays(1);
+    }
+
+    @Test
+    public void createHold_blocksOtherUsersButNotTheHolder() {
+        stubUsers(1, 2);
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        bookingService.createHold(item.getId(), 1, start, end);
+
+        BookingException holdConflict = assertThrows(BookingException.class,
+                () -> bookingService.createHold(item.getId(), 2, start.plusHours(1), end));
+        assertEquals("Item is on hold for this time", holdConflict.getMessage());
+        assertThrows(BookingException.class,
+                () -> bookingService.createBooking(booking(start, end.plusHours(1)), 2, item.getId()));
+
+        assertNotNull(bookingService.createBooking(booking(start, end), 1, item.getId()));
+    }
+
+    @Test
+    public void confirmHold_turnsTheHoldIntoABookingOnlyOnce() {
+        stubUsers(1, 2);
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class))).thenAnswer(inv -> {
+            Booking booking = inv.getArgument(0);
+            booking.setId(100);
+            return booking;
+        });
+
+        BookingHold hold = bookingService.createHold(item.getId(), 1, start, end);
+        Booking booking = bookingService.confirmHold(hold.id(), 1);
+
+        assertEquals(start, booking.getStart());
+        assertEquals(end, booking.getEnd());
+        assertEquals(Status.WAITING, booking.getStatus());
+        assertEquals(0, bookingHolds.size());
+        assertThrows(BookingNotFoundException.class, () -> bookingService.confirmHold(hold.id(), 1));
+
+        // the range now belongs to the booking
+        Mockito.when(bookingRepository.findActiveSlotsForItem(item.getId(), start, end))
+                .thenReturn(List.of(BookingSlot.of(booking)));
+        BookingException conflict = assertThrows(BookingException.class,
+                () -> bookingService.createHold(item.getId(), 2, start, end));
+        assertEquals("Booking request for this time already exists", conflict.getMessage());
+    }
+
+    @Test
+    public void confirmHold_whenSaveFails_keepsTheHold() {
+        stubUsers(1);
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        BookingHold hold = bookingService.createHold(item.getId(), 1, start, end);
+
+        assertThrows(IllegalStateException.class, () -> bookingService.confirmHold(hold.id(), 1));
+        assertEquals(hold, bookingHolds.find(hold.id()));
+    }
+
+    @Test
+    public void confirmHold_whenUserIsNotTheHolder_throwsBookingException() {
+        stubUsers(1, 2);
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
+
+        BookingHold hold = bookingService.createHold(item.getId(), 1, start, end);
+
+        assertThrows(BookingException.class, () -> bookingService.confirmHold(hold.id(), 2));
+        assertThrows(BookingException.class, () -> bookingService.releaseHold(hold.id(), 2));
+        assertEquals(1, bookingHolds.size());
+
+        bookingService.releaseHold(hold.id(), 1);
+        assertEquals(0, bookingHolds.size());
+        assertFalse(bookingHolds.conflicts(item.getId(), start, end, 2));
+    }
+
+    @Test
+    public void sweep_dropsExpiredHoldsWhichStopBlockingAtOnce() throws InterruptedException {
+        BookingHolds shortHolds = new BookingHolds(1, 1);
+        BookingHold expiring = shortHolds.place(item.getId(), 1, start, end);
+        Thread.sleep(5);
+
+        assertNull(shortHolds.find(expiring.id()));
+        assertFalse(shortHolds.conflicts(item.getId(), start, end, 2));
+        assertEquals(1, shortHolds.size());
+
+        assertEquals(List.of(expiring), shortHolds.sweep(LocalDateTime.now().plusSeconds(1)));
+        assertEquals(0, shortHolds.size());
+    }
+
+
+    private void stubUsers(int... userIds) {
+        for (int userId : userIds) {
+            User user = new User();
+            user.setId(userId);
+            Mockito.when(userService.getUserById(userId)).thenReturn(user);
+        }
+    }
+
+    private Booking booking(LocalDateTime from, LocalDateTime to) {
+        Booking booking = new Booking();
+        booking.setStart(from);
+        booking.setEnd(to);
+        return booking;
+    }
+}
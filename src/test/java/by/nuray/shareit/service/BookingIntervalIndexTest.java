@@ -0,0 +1,180 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.BookingIntervalIndex;
+import by.nuray.shareit.booking.BookingSlot;
+import by.nuray.shareit.booking.Status;
+import by.nuray.shareit.booking.TimeRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingIntervalIndexTest {
+
+    private BookingIntervalIndex index;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookingIntervalIndex();
+        base = LocalDateTime.of(2030, 1, 1, 0, 0);
+    }
+
+    @Test
+    public void findConflict_whenNothingIndexed_returnsNull() {
+        assertNull(index.findConflict(1, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void findConflict_whenRangesOnlyTouch_returnsNull() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.APPROVED));
+        index.add(new BookingSlot(2, 1, base.plusDays(2), base.plusDays(3), Status.WAITING));
+
+        assertNull(index.findConflict(1, base.plusDays(1), base.plusDays(2)));
+        assertNull(index.findConflict(1, base.minusDays(1), base));
+        assertNull(index.findConflict(1, base.plusDays(3), base.plusDays(4)));
+    }
+
+    @Test
+    public void findConflict_whenApprovedAndWaitingOverlap_prefersApproved() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.WAITING));
+        index.add(new BookingSlot(2, 1, base.plusDays(1), base.plusDays(2), Status.APPROVED));
+
+        assertEquals(Status.APPROVED, index.findConflict(1, base.plusHours(12), base.plusDays(3)));
+        assertEquals(Status.WAITING, index.findConflict(1, base.plusHours(1), base.plusHours(2)));
+    }
+
+    @Test
+    public void findConflict_whenLongBookingStartsEarlier_findsIt() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(30), Status.WAITING));
+        index.add(new BookingSlot(2, 1, base.plusDays(1), base.plusDays(2), Status.WAITING));
+        index.add(new BookingSlot(3, 1, base.plusDays(3), base.plusDays(4), Status.WAITING));
+
+        assertEquals(Status.WAITING, index.findConflict(1, base.plusDays(10), base.plusDays(11)));
+    }
+
+    @Test
+    public void findConflict_isScopedToItem() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.APPROVED));
+
+        assertNull(index.findConflict(2, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void add_whenStatusIsNotActive_isIgnored() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.REJECTED));
+        index.add(new BookingSlot(2, 1, base, base.plusDays(1), Status.CANCELED));
+
+        assertNull(index.findConflict(1, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void updateStatus_whenApproved_changesConflict() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.WAITING));
+
+        index.updateStatus(1, Status.APPROVED);
+
+        assertEquals(Status.APPROVED, index.findConflict(1, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void updateStatus_whenCanceledOrRejected_freesRange() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.WAITING));
+        index.add(new BookingSlot(2, 1, base.plusDays(1), base.plusDays(2), Status.APPROVED));
+
+        index.updateStatus(1, Status.CANCELED);
+        index.updateStatus(2, Status.REJECTED);
+
+        assertNull(index.findConflict(1, base, base.plusDays(2)));
+    }
+
+    @Test
+    public void add_whenSameBookingAddedTwice_keepsSingleEntry() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.WAITING));
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.WAITING));
+
+        index.updateStatus(1, Status.CANCELED);
+
+        assertNull(index.findConflict(1, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void load_replacesPreviousContent() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.APPROVED));
+
+        index.load(List.of(new BookingSlot(2, 2, base, base.plusDays(1), Status.WAITING)));
+
+        assertNull(index.findConflict(1, base, base.plusDays(1)));
+        assertEquals(Status.WAITING, index.findConflict(2, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void findConflict_withManyBookings_staysCorrectAfterGrowth() {
+        for (int i = 0; i < 100; i++) {
+            index.add(new BookingSlot(i, 1, base.plusDays(2L * i), base.plusDays(2L * i + 1), Status.WAITING));
+        }
+
+        assertEquals(Status.WAITING, index.findConflict(1, base.plusDays(100).plusHours(1), base.plusDays(100).plusHours(2)));
+        assertNull(index.findConflict(1, base.plusDays(101), base.plusDays(102)));
+    }
+
+    @Test
+    public void findBusy_mergesTouchingRangesAndClipsToWindow() {
+        index.add(new BookingSlot(1, 1, base.minusHours(2), base.plusHours(1), Status.APPROVED));
+        index.add(new BookingSlot(2, 1, base.plusHours(1), base.plusHours(2), Status.WAITING));
+        index.add(new BookingSlot(3, 1, base.plusHours(5), base.plusHours(30), Status.WAITING));
+        index.add(new BookingSlot(4, 1, base.plusDays(3), base.plusDays(4), Status.WAITING));
+
+        assertEquals(List.of(
+                        new TimeRange(base, base.plusHours(2)),
+                        new TimeRange(base.plusHours(5), base.plusDays(1))),
+                index.findBusy(1, base, base.plusDays(1)));
+    }
+
+    @Test
+    public void findBusy_whenLongBookingStartsBeforeShortOnes_keepsItOnce() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(10), Status.APPROVED));
+        index.add(new BookingSlot(2, 2, base, base.plusDays(1), Status.WAITING));
+        index.updateStatus(2, Status.CANCELED);
+
+        assertEquals(List.of(new TimeRange(base.plusDays(2), base.plusDays(3))),
+                index.findBusy(1, base.plusDays(2), base.plusDays(3)));
+        assertTrue(index.findBusy(2, base, base.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    public void prune_dropsEndedBookingsAndKeepsLiveOnes() {
+        index.add(new BookingSlot(1, 1, base, base.plusDays(1), Status.APPROVED));
+        index.add(new BookingSlot(2, 1, base.plusDays(1), base.plusDays(3), Status.WAITING));
+        index.add(new BookingSlot(3, 2, base, base.plusHours(1), Status.APPROVED));
+
+        assertEquals(2, index.prune(base.plusDays(1)));
+
+        assertNull(index.findConflict(1, base, base.plusDays(1)));
+        assertEquals(Status.WAITING, index.findConflict(1, base.plusDays(2), base.plusDays(4)));
+        assertNull(index.findConflict(2, base, base.plusHours(1)));
+        // a pruned booking is forgotten entirely
+        index.updateStatus(1, Status.APPROVED);
+        assertNull(index.findConflict(1, base, base.plusDays(1)));
+
+        index.add(new BookingSlot(4, 2, base.plusDays(5), base.plusDays(6), Status.WAITING));
+        assertEquals(Status.WAITING, index.findConflict(2, base.plusDays(5), base.plusDays(6)));
+    }
+
+    @Test
+    public void updateStatus_whenManyBookingsShareAStart_findsTheRightOne() {
+        for (int id = 1; id <= 5; id++) {
+            index.add(new BookingSlot(id, 1, base, base.plusHours(id), Status.WAITING));
+        }
+
+        index.updateStatus(3, Status.APPROVED);
+        index.updateStatus(5, Status.CANCELED);
+        index.updateStatus(4, Status.REJECTED);
+
+        assertEquals(Status.APPROVED, index.findConflict(1, base.plusHours(2), base.plusHours(3)));
+        assertNull(index.findConflict(1, base.plusHours(3), base.plusHours(5)));
+    }
+}
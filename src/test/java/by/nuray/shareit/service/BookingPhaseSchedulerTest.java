@@ -0,0 +1,49 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.BookingIntervalIndex;
+import by.nuray.shareit.booking.BookingPhaseScheduler;
+import by.nuray.shareit.booking.BookingRentals;
+import by.nuray.shareit.booking.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingPhaseSchedulerTest {
+
+    @Mock
+    BookingRepository bookingRepository;
+
+    @Mock
+    BookingRentals bookingRentals;
+
+    @Mock
+    BookingIntervalIndex bookingIntervalIndex;
+
+    BookingPhaseScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new BookingPhaseScheduler(bookingRepository, bookingRentals, bookingIntervalIndex, 100);
+    }
+
+    @Test
+    public void sweep_repeatsEachStepUntilBatchComesBackShort() {
+        Mockito.when(bookingRepository.assignMissingPhases(Mockito.any(), Mockito.eq(100))).thenReturn(0);
+        Mockito.when(bookingRepository.advanceToPast(Mockito.any(), Mockito.eq(100))).thenReturn(100, 100, 7);
+        Mockito.when(bookingRepository.advanceToCurrent(Mockito.any(), Mockito.eq(100))).thenReturn(3);
+
+        scheduler.sweep();
+
+        InOrder order = Mockito.inOrder(bookingRepository, bookingRentals, bookingIntervalIndex);
+        order.verify(bookingRepository).assignMissingPhases(Mockito.any(), Mockito.eq(100));
+        order.verify(bookingRentals).recordEnded(Mockito.any());
+        order.verify(bookingRepository, Mockito.times(3)).advanceToPast(Mockito.any(), Mockito.eq(100));
+        order.verify(bookingRepository).advanceToCurrent(Mockito.any(), Mockito.eq(100));
+        order.verify(bookingIntervalIndex).prune(Mockito.any());
+    }
+}
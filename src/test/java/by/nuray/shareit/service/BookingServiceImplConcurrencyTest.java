@@ -0,0 +1,221 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserService;
+import by.nuray.shareit.util.BookingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fires thousands of conflicting createBooking calls from many threads against
+ * an in-memory repository stand-in and checks that no item ends up double-booked.
+ */
+public class BookingServiceImplConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int REQUESTS = 4000;
+    private static final int ITEMS = 8;
+    private static final int SLOTS = 20;
+
+    private final Queue<Booking> saved = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    private BookingServiceImpl bookingService;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        base = LocalDateTime.now().plusDays(1);
+
+        BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+        UserService userService = Mockito.mock(UserService.class);
+        ItemService itemService = Mockito.mock(ItemService.class);
+
+        Mockito.when(userService.getUserById(Mockito.anyInt())).thenAnswer(inv -> {
+            User user = new User();
+            user.setId(inv.getArgument(0));
+            return user;
+        });
+
+        Mockito.when(itemService.getItemById(Mockito.anyInt())).thenAnswer(inv -> {
+            Item item = new Item();
+            item.setId(inv.getArgument(0));
+            item.setAvailable(true);
+            return item;
+        });
+
+        Mockito.when(bookingRepository.findActiveSlotsForItem(Mockito.anyInt(), Mockito.any(), Mockito.any()))
+                .thenAnswer(inv -> {
+                    int itemId = inv.getArgument(0);
+                    LocalDateTime start = inv.getArgument(1);
+                    LocalDateTime end = inv.getArgument(2);
+                    // widen the window between the check and the insert
+                    Thread.yield();
+                    return saved.stream()
+                            .filter(b -> b.getItem().getId() == itemId)
+                            .filter(b -> b.getStart().isBefore(end) && b.getEnd().isAfter(start))
+                            .map(BookingSlot::of)
+                            .collect(Collectors.toList());
+                });
+
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenAnswer(inv -> inv
+                .<Collection<Integer>>getArgument(0).stream()
+                .map(itemId -> {
+                    Item item = new Item();
+                    item.setId(itemId);
+                    item.setAvailable(true);
+                    return item;
+                })
+                .collect(Collectors.toList()));
+
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenAnswer(inv -> {
+                    Collection<Integer> itemIds = inv.getArgument(0);
+                    LocalDateTime start = inv.getArgument(1);
+                    LocalDateTime end = inv.getArgument(2);
+                    Thread.yield();
+                    return saved.stream()
+                            .filter(b -> itemIds.contains(b.getItem().getId()))
+                            .filter(b -> b.getStart().isBefore(end) && b.getEnd().isAfter(start))
+                            .map(BookingSlot::of)
+                            .collect(Collectors.toList());
+                });
+
+        Mockito.when(bookingRepository.insertAll(Mockito.anyList())).thenAnswer(inv -> {
+            List<Booking> bookings = inv.getArgument(0);
+            bookings.forEach(booking -> {
+                booking.setId(ids.incrementAndGet());
+                saved.add(booking);
+            });
+            return bookings;
+        });
+
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class))).thenAnswer(inv -> {
+            Booking booking = inv.getArgument(0);
+            booking.setId(ids.incrementAndGet());
+            saved.add(booking);
+            return booking;
+        });
+
+        bookingService = new BookingServiceImpl(bookingRepository, userService, itemService,
+                new BookingIntervalIndex(), new ItemLockStripes(), Mockito.mock(BookingCounters.class),
+                Mockito.mock(BookingArchive.class), Mockito.mock(BookingRentals.class),
+                Mockito.mock(BookingExpiry.class), new BookingHolds(300_000, 1000),
+                new BookingWaitlist(100));
+    }
+
+    @Test
+    public void createBooking_whenManyThreadsCompeteForSameSlots_neverDoubleBooks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            int itemId = i % ITEMS + 1;
+            int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+            // half of the requests span two slots so they also collide with their neighbours
+            int length = i % 2 == 0 ? 1 : 2;
+            int bookerId = i;
+
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                Booking booking = new Booking();
+                booking.setStart(base.plusHours(slot));
+                booking.setEnd(base.plusHours(slot + length));
+                try {
+                    bookingService.createBooking(booking, bookerId, itemId);
+                } catch (BookingException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(REQUESTS, saved.size() + rejected.get());
+        assertFalse(saved.isEmpty());
+        assertNoOverlaps();
+    }
+
+    @Test
+    public void createCart_whenCartsLockSharedItemsInOppositeOrders_neitherDeadlocksNorDoubleBooks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+            // the same three items, listed forwards or backwards, plus one that differs per cart
+            List<Integer> itemIds = new ArrayList<>(List.of(1, 2, 3, 4 + i % (ITEMS - 3)));
+            if (i % 2 == 0) {
+                Collections.reverse(itemIds);
+            }
+            int bookerId = i;
+
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                List<BookingRequest> cart = itemIds.stream()
+                        .map(itemId -> new BookingRequest(itemId, base.plusHours(slot), base.plusHours(slot + 1)))
+                        .collect(Collectors.toList());
+                try {
+                    bookingService.createCart(bookerId, cart);
+                } catch (BookingException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // carts are all or nothing
+        assertEquals(0, saved.size() % 4);
+        assertEquals(REQUESTS, saved.size() / 4 + rejected.get());
+        assertFalse(saved.isEmpty());
+        assertNoOverlaps();
+    }
+
+    private void assertNoOverlaps() {
+        Map<Integer, List<Booking>> byItem = saved.stream()
+                .collect(Collectors.groupingBy(b -> b.getItem().getId()));
+
+        for (List<Booking> bookings : byItem.values()) {
+            for (int i = 0; i < bookings.size(); i++) {
+                for (int j = i + 1; j < bookings.size(); j++) {
+                    Booking a = bookings.get(i);
+                    Booking b = bookings.get(j);
+                    assertFalse(a.getStart().isBefore(b.getEnd()) && b.getStart().isBefore(a.getEnd()),
+                            "bookings " + a.getId() + " and " + b.getId() + " overlap");
+                }
+            }
+        }
+    }
+}
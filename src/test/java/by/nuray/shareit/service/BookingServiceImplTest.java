@@ -16,13 +16,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,10 +44,35 @@ public class BookingServiceImplTest {
     @Mock
     ItemService itemService;
 
+    @Spy
+    BookingIntervalIndex bookingIntervalIndex = new BookingIntervalIndex();
+
+    @Spy
+    ItemLockStripes itemLockStripes = new ItemLockStripes();
+
+    @Mock
+    BookingCounters bookingCounters;
+
+    @Mock
+    BookingArchive bookingArchive;
+
+    @Mock
+    BookingRentals bookingRentals;
+
+    @Mock
+    BookingExpiry bookingExpiry;
+
+    @Mock
+    BookingHolds bookingHolds;
+
+    @Mock
+    BookingWaitlist bookingWaitlist;
+
     @InjectMocks
     BookingServiceImpl bookingService;
 
     private Booking booking;
+    private BookingDTO bookingDTO;
     private User booker;
     private User owner;
     private Item item;
@@ -72,6 +103,9 @@ public class BookingServiceImplTest {
         booking.setItem(item);
         booking.setBooker(booker);
 
+        bookingDTO = new BookingDTO(booking.getId(), booking.getStart(), booking.getEnd(),
+                item.getId(), booker.getId(), booking.getStatus());
+
     }
 
     @Test
@@ -136,10 +170,6 @@ public class BookingServiceImplTest {
         Mockito.when(itemService.getItemById(item.getId()))
                 .thenReturn(item);
 
-        Mockito.when(bookingRepository.findByItemIdAndStartBeforeAndEndAfter(
-                        item.getId(), booking.getEnd(), booking.getStart()))
-                .thenReturn(Collections.emptyList());
-
         Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
 
@@ -210,16 +240,21 @@ public class BookingServiceImplTest {
     public void createBooking_whenOverlappingApprovedBookingExists_throwsBookingException(){
         booking.setStart(LocalDateTime.now().plusDays(2));
         booking.setEnd(LocalDateTime.now().plusDays(3));
-        booking.setStatus(Status.APPROVED);
 
-        Mockito.when(bookingRepository.findByItemIdAndStartBeforeAndEndAfter(item.getId(), booking.getEnd(), booking.getStart()))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(userService.getUserById(booker.getId()))
+                .thenReturn(booker);
+        Mockito.when(itemService.getItemById(item.getId()))
+                .thenReturn(item);
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
+                .thenThrow(new DataIntegrityViolationException("violates exclusion constraint \"bookings_no_overlap\""));
+        Mockito.when(bookingRepository.findActiveSlotsForItem(item.getId(), booking.getStart(), booking.getEnd()))
+                .thenReturn(List.of(new BookingSlot(2, item.getId(), booking.getStart(), booking.getEnd(), Status.APPROVED)));
 
         Exception exception = assertThrows(BookingException.class,
                 () -> bookingService.createBooking(booking, booker.getId(), item.getId()));
 
         assertEquals("Booking already exists and is approved", exception.getMessage());
-        Mockito.verify(bookingRepository,Mockito.never()).save(Mockito.any(Booking.class));
+        assertEquals(Status.APPROVED, bookingIntervalIndex.findConflict(item.getId(), booking.getStart(), booking.getEnd()));
 
     }
 
@@ -227,17 +262,91 @@ public class BookingServiceImplTest {
     public void createBooking_whenOverlappingWaitingBookingExists_throwsBookingException(){
         booking.setStart(LocalDateTime.now().plusDays(2));
         booking.setEnd(LocalDateTime.now().plusDays(3));
-        booking.setStatus(Status.WAITING);
 
-        Mockito.when(bookingRepository.findByItemIdAndStartBeforeAndEndAfter(item.getId(), booking.getEnd(), booking.getStart()))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(userService.getUserById(booker.getId()))
+                .thenReturn(booker);
+        Mockito.when(itemService.getItemById(item.getId()))
+                .thenReturn(item);
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
+                .thenThrow(new DataIntegrityViolationException("violates exclusion constraint \"bookings_no_overlap\""));
+        Mockito.when(bookingRepository.findActiveSlotsForItem(item.getId(), booking.getStart(), booking.getEnd()))
+                .thenReturn(List.of(new BookingSlot(2, item.getId(), booking.getStart(), booking.getEnd(), Status.WAITING)));
 
         Exception exception = assertThrows(BookingException.class,
                 () -> bookingService.createBooking(booking, booker.getId(), item.getId()));
 
         assertEquals("Booking request for this time already exists", exception.getMessage());
+
+    }
+
+    @Test
+    public void createBooking_whenOtherIntegrityViolation_rethrowsIt(){
+        booking.setStart(LocalDateTime.now().plusDays(2));
+        booking.setEnd(LocalDateTime.now().plusDays(3));
+
+        Mockito.when(userService.getUserById(booker.getId()))
+                .thenReturn(booker);
+        Mockito.when(itemService.getItemById(item.getId()))
+                .thenReturn(item);
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
+                .thenThrow(new DataIntegrityViolationException("null value in column \"booker_id\""));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> bookingService.createBooking(booking, booker.getId(), item.getId()));
+
+        Mockito.verify(bookingRepository, Mockito.never())
+                .findActiveSlotsForItem(Mockito.anyInt(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void createBooking_whenIndexedBookingIsConfirmedByDatabase_throwsBookingException(){
+        booking.setStart(LocalDateTime.now().plusDays(2));
+        booking.setEnd(LocalDateTime.now().plusDays(3));
+
+        BookingSlot stored = new BookingSlot(2, item.getId(),
+                booking.getStart().minusHours(1), booking.getStart().plusHours(1), Status.APPROVED);
+        bookingIntervalIndex.add(stored);
+
+        Mockito.when(userService.getUserById(booker.getId()))
+                .thenReturn(booker);
+        Mockito.when(itemService.getItemById(item.getId()))
+                .thenReturn(item);
+        Mockito.when(bookingRepository.findActiveSlotsForItem(item.getId(), booking.getStart(), booking.getEnd()))
+                .thenReturn(List.of(stored));
+
+        Exception exception = assertThrows(BookingException.class,
+                () -> bookingService.createBooking(booking, booker.getId(), item.getId()));
+
+        assertEquals("Booking already exists and is approved", exception.getMessage());
         Mockito.verify(bookingRepository,Mockito.never()).save(Mockito.any(Booking.class));
+    }
+
+    @Test
+    public void createBooking_whenIndexedBookingWasDecidedElsewhere_dropsItAndBooks(){
+        booking.setStart(LocalDateTime.now().plusDays(2));
+        booking.setEnd(LocalDateTime.now().plusDays(3));
+
+        // cancelled on another node: still in this node's index, gone from the database
+        bookingIntervalIndex.add(new BookingSlot(2, item.getId(),
+                booking.getStart().minusHours(1), booking.getStart().plusHours(1), Status.WAITING));
+
+        Mockito.when(userService.getUserById(booker.getId()))
+                .thenReturn(booker);
+        Mockito.when(itemService.getItemById(item.getId()))
+                .thenReturn(item);
+        Mockito.when(bookingRepository.findActiveSlotsForItem(item.getId(), booking.getStart(), booking.getEnd()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        Booking result = bookingService.createBooking(booking, booker.getId(), item.getId());
 
+        assertEquals(Status.WAITING, result.getStatus());
+        assertNull(bookingIntervalIndex.findConflict(item.getId(),
+                booking.getStart().minusHours(1), booking.getStart()));
+        assertEquals(Status.WAITING, bookingIntervalIndex.findConflict(item.getId(),
+                booking.getStart(), booking.getEnd()));
+        Mockito.verify(bookingRepository).save(booking);
     }
 
     @Test
@@ -279,16 +388,17 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-
-        Mockito.when(bookingRepository.findById(booking.getId()))
-                .thenReturn(Optional.of(booking));
-
-        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
-                .thenAnswer(inv -> inv.getArgument(0));
+        Mockito.when(bookingRepository.transitionIfWaiting(booking.getId(), BookingQuery.Perspective.BOOKER,
+                        booker.getId(), Status.CANCELED))
+                .thenAnswer(inv -> {
+                    booking.setStatus(Status.CANCELED);
+                    return Optional.of(booking);
+                });
 
         Booking result = bookingService.cancelBooking(booking.getId(), booker.getId());
 
         assertEquals(Status.CANCELED, result.getStatus());
+        Mockito.verify(bookingRepository, Mockito.never()).findById(Mockito.anyInt());
 
     }
 
@@ -361,16 +471,19 @@ public class BookingServiceImplTest {
 
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
-        Mockito.when(bookingRepository.findById(booking.getId()))
-                .thenReturn(Optional.of(booking));
-        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
-                .thenAnswer(inv -> inv.getArgument(0));
+        Mockito.when(bookingRepository.transitionIfWaiting(booking.getId(), BookingQuery.Perspective.OWNER,
+                        owner.getId(), Status.APPROVED))
+                .thenAnswer(inv -> {
+                    booking.setStatus(Status.APPROVED);
+                    return Optional.of(booking);
+                });
 
         Booking result = bookingService.updateBookingStatus(booking.getId(), true, item.getOwner().getId());
 
         assertNotNull(result);
         assertEquals(Status.APPROVED, result.getStatus());
-        Mockito.verify(bookingRepository, Mockito.times(1)).save(Mockito.any(Booking.class));
+        Mockito.verify(bookingRepository, Mockito.never()).findById(Mockito.anyInt());
+        Mockito.verify(bookingRepository, Mockito.never()).save(Mockito.any(Booking.class));
     }
 
 
@@ -382,16 +495,19 @@ public class BookingServiceImplTest {
 
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
-        Mockito.when(bookingRepository.findById(booking.getId()))
-                .thenReturn(Optional.of(booking));
-        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
-                .thenAnswer(inv -> inv.getArgument(0));
+        Mockito.when(bookingRepository.transitionIfWaiting(booking.getId(), BookingQuery.Perspective.OWNER,
+                        owner.getId(), Status.REJECTED))
+                .thenAnswer(inv -> {
+                    booking.setStatus(Status.REJECTED);
+                    return Optional.of(booking);
+                });
 
         Booking result = bookingService.updateBookingStatus(booking.getId(), false, item.getOwner().getId());
 
         assertNotNull(result);
         assertEquals(Status.REJECTED, result.getStatus());
-        Mockito.verify(bookingRepository, Mockito.times(1)).save(Mockito.any(Booking.class));
+        Mockito.verify(bookingRepository, Mockito.never()).findById(Mockito.anyInt());
+        Mockito.verify(bookingRepository, Mockito.never()).save(Mockito.any(Booking.class));
     }
 
 
@@ -455,67 +571,11 @@ public class BookingServiceImplTest {
     }
 
     @Test
-    public void getPastBookingsByBookerForItem_whenValidInput_returnsPastBookings(){
-        Mockito.when(userService.getUserById(booker.getId()))
-                .thenReturn(booker);
-
-        Mockito.when(itemService.getItemById(item.getId()))
-                .thenReturn(item);
-
-        Mockito.when(bookingRepository.findAllPastBookingsForBooker(booker.getId(), item.getId()))
-                .thenReturn(Arrays.asList(booking));
-
-
-        List<Booking> result = bookingService.getPastBookingsByBookerForItem(booker.getId(), item.getId());
-
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(booking, result.get(0));
-
-    }
-
-    @Test
-    public void getPastBookingsByBookerForItem_whenNoPastBookings_returnsEmptyList(){
-
-        Mockito.when(userService.getUserById(booker.getId()))
-                .thenReturn(booker);
-
-        Mockito.when(itemService.getItemById(item.getId()))
-                .thenReturn(item);
-
-        Mockito.when(bookingRepository.findAllPastBookingsForBooker(booker.getId(), item.getId()))
-                .thenReturn(Collections.emptyList());
-
-
-        List<Booking> result = bookingService.getPastBookingsByBookerForItem(booker.getId(), item.getId());
-
-        assertNotNull(result);
-        assertEquals(0, result.size());
-
-    }
-
-    @Test
-    public void getPastBookingsByBookerForItem_whenBookerNotFound_throwsUserNotFoundException(){
-        Mockito.when(userService.getUserById(booker.getId()))
-                .thenThrow(new UserNotFoundException("User with id " + booker.getId() + " not found"));
-
-        Exception exception = assertThrows(UserNotFoundException.class,
-                ()->bookingService.getPastBookingsByBookerForItem(booker.getId(), item.getId()));
-
-        assertEquals("User with id 1 not found", exception.getMessage());
-
-    }
-
-    @Test
-    public void getPastBookingsByBookerForItem_whenItemNotFound_throwsItemNotFoundException(){
-
-        Mockito.when(itemService.getItemById(item.getId()))
-                .thenThrow(new ItemNotFoundException("Item with id " + item.getId() + " not found"));
-
-        Exception exception = assertThrows(ItemNotFoundException.class,
-                ()->bookingService.getPastBookingsByBookerForItem(booker.getId(), item.getId()));
+    public void hasRented_answersFromTheRentalIndex(){
+        Mockito.when(bookingRentals.hasRented(booker.getId(), item.getId())).thenReturn(true);
 
-        assertEquals("Item with id 1 not found", exception.getMessage());
+        assertTrue(bookingService.hasRented(booker.getId(), item.getId()));
+        Mockito.verifyNoInteractions(bookingRepository);
     }
 
     @Test
@@ -526,15 +586,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-        Mockito.when(bookingRepository.findAllBookingsForBooker(booker.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.ALL, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByBooker(booker.getId(), State.ALL, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.ALL, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findAllBookingsForBooker(booker.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forBooker(booker.getId(), State.ALL, from, size));
 
     }
     @Test
@@ -545,15 +605,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-        Mockito.when(bookingRepository.findCurrentBookingsForBooker(booker.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.CURRENT, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByBooker(booker.getId(), State.CURRENT, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.CURRENT, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findCurrentBookingsForBooker(booker.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forBooker(booker.getId(), State.CURRENT, from, size));
 
     }
     @Test
@@ -564,15 +624,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-        Mockito.when(bookingRepository.findPastBookingsForBooker(booker.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.PAST, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByBooker(booker.getId(), State.PAST, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.PAST, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findPastBookingsForBooker(booker.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forBooker(booker.getId(), State.PAST, from, size));
 
     }
     @Test
@@ -583,15 +643,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-        Mockito.when(bookingRepository.findFutureBookingsForBooker(booker.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.FUTURE, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByBooker(booker.getId(), State.FUTURE, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.FUTURE, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findFutureBookingsForBooker(booker.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forBooker(booker.getId(), State.FUTURE, from, size));
 
     }
 
@@ -603,15 +663,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-        Mockito.when(bookingRepository.findWaitingBookingsForBooker(booker.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.WAITING, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByBooker(booker.getId(), State.WAITING, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.WAITING, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findWaitingBookingsForBooker(booker.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forBooker(booker.getId(), State.WAITING, from, size));
 
     }
 
@@ -623,15 +683,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(booker.getId()))
                 .thenReturn(booker);
 
-        Mockito.when(bookingRepository.findRejectedBookingsForBooker(booker.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.REJECTED, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByBooker(booker.getId(), State.REJECTED, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.REJECTED, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findRejectedBookingsForBooker(booker.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forBooker(booker.getId(), State.REJECTED, from, size));
 
     }
 
@@ -672,15 +732,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
 
-        Mockito.when(bookingRepository.findAllBookingsForOwner(owner.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.ALL, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByOwner(owner.getId(), State.ALL, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.ALL, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findAllBookingsForOwner(owner.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forOwner(owner.getId(), State.ALL, from, size));
     }
 
     @Test
@@ -692,15 +752,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
 
-        Mockito.when(bookingRepository.findCurrentBookingsForOwner(owner.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.CURRENT, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByOwner(owner.getId(), State.CURRENT, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.CURRENT, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findCurrentBookingsForOwner(owner.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forOwner(owner.getId(), State.CURRENT, from, size));
     }
 
     @Test
@@ -712,15 +772,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
 
-        Mockito.when(bookingRepository.findPastBookingsForOwner(owner.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.PAST, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByOwner(owner.getId(), State.PAST, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.PAST, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findPastBookingsForOwner(owner.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forOwner(owner.getId(), State.PAST, from, size));
     }
     @Test
     public void getBookingsByOwner_whenStateIsFuture_returnsFutureBookings(){
@@ -731,15 +791,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
 
-        Mockito.when(bookingRepository.findFutureBookingsForOwner(owner.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.FUTURE, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByOwner(owner.getId(), State.FUTURE, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.FUTURE, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findFutureBookingsForOwner(owner.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forOwner(owner.getId(), State.FUTURE, from, size));
     }
 
     @Test
@@ -751,15 +811,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
 
-        Mockito.when(bookingRepository.findWaitingBookingsForOwner(owner.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.WAITING, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByOwner(owner.getId(), State.WAITING, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.WAITING, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findWaitingBookingsForOwner(owner.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forOwner(owner.getId(), State.WAITING, from, size));
     }
     @Test
     public void getBookingsByOwner_whenStateIsRejected_returnsRejectedBookings(){
@@ -770,15 +830,15 @@ public class BookingServiceImplTest {
         Mockito.when(userService.getUserById(owner.getId()))
                 .thenReturn(owner);
 
-        Mockito.when(bookingRepository.findRejectedBookingsForOwner(owner.getId(), from,size))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.REJECTED, from, size)))
+                .thenReturn(Arrays.asList(bookingDTO));
 
-        List<Booking> result =bookingService.getBookingsByOwner(owner.getId(), State.REJECTED, from, size);
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.REJECTED, from, size);
 
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        Mockito.verify(bookingRepository, Mockito.times(1)).findRejectedBookingsForOwner(owner.getId(), from,size);
+        Mockito.verify(bookingRepository, Mockito.times(1)).findBookings(BookingQuery.forOwner(owner.getId(), State.REJECTED, from, size));
     }
 
     @Test
@@ -810,77 +870,426 @@ public class BookingServiceImplTest {
 
     }
 
+    @Test
+    public void getBookingsByBooker_whenCursorGiven_seeksPastCursor(){
+        BookingCursor cursor = new BookingCursor(LocalDateTime.now(), 5);
+        int size = 2;
 
+        Mockito.when(userService.getUserById(booker.getId()))
+                .thenReturn(booker);
 
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forBooker(booker.getId(), State.WAITING, cursor, size)))
+                .thenReturn(List.of(bookingDTO));
 
+        List<BookingDTO> result = bookingService.getBookingsByBooker(booker.getId(), State.WAITING, cursor, size);
 
+        assertEquals(List.of(bookingDTO), result);
+    }
 
+    @Test
+    public void getBookingsByOwner_whenCursorGiven_seeksPastCursor(){
+        BookingCursor cursor = new BookingCursor(LocalDateTime.now(), 5);
+        int size = 2;
 
+        Mockito.when(userService.getUserById(owner.getId()))
+                .thenReturn(owner);
 
+        Mockito.when(bookingRepository.findBookings(BookingQuery.forOwner(owner.getId(), State.PAST, cursor, size)))
+                .thenReturn(List.of(bookingDTO));
 
+        List<BookingDTO> result = bookingService.getBookingsByOwner(owner.getId(), State.PAST, cursor, size);
 
+        assertEquals(List.of(bookingDTO), result);
+    }
 
+    @Test
+    public void bookingCursor_whenEncodedAndDecoded_roundTrips(){
+        BookingCursor cursor = new BookingCursor(LocalDateTime.of(2030, 1, 2, 3, 4, 5, 6000), 42);
 
+        assertEquals(cursor, BookingCursor.decode(cursor.encode()));
+    }
 
+    @Test
+    public void bookingCursor_whenTokenIsGarbage_throwsBookingException(){
+        Exception exception = assertThrows(BookingException.class,
+                () -> BookingCursor.decode("not a cursor"));
 
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
 
+    @Test
+    public void updateBookingStatuses_whenSomeAreEligible_reportsTransitionedAndSkipped(){
+        Mockito.when(userService.getUserById(owner.getId())).thenReturn(owner);
+        Mockito.when(bookingRepository.transitionWaiting(Mockito.anyCollection(),
+                        Mockito.eq(BookingQuery.Perspective.OWNER), Mockito.eq(owner.getId()), Mockito.eq(Status.APPROVED)))
+                .thenReturn(List.of(new BookingParties(1, 5, owner.getId()), new BookingParties(3, 6, owner.getId())));
+
+        BookingTransitionResult result = bookingService.updateBookingStatuses(List.of(1, 2, 3, 1), true, owner.getId());
+
+        assertEquals(Status.APPROVED, result.status());
+        assertEquals(List.of(1, 3), result.transitioned());
+        assertEquals(List.of(2), result.skipped());
+        Mockito.verify(bookingIntervalIndex).updateStatus(1, Status.APPROVED);
+        Mockito.verify(bookingIntervalIndex).updateStatus(3, Status.APPROVED);
+        Mockito.verify(bookingRepository, Mockito.never()).save(Mockito.any());
+    }
 
+    @Test
+    public void cancelBookings_whenBookerOwnsThem_cancelsInOneStatement(){
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(bookingRepository.transitionWaiting(Mockito.anyCollection(),
+                        Mockito.eq(BookingQuery.Perspective.BOOKER), Mockito.eq(booker.getId()), Mockito.eq(Status.CANCELED)))
+                .thenReturn(List.of(new BookingParties(1, booker.getId(), owner.getId())));
 
+        BookingTransitionResult result = bookingService.cancelBookings(List.of(1), booker.getId());
 
+        assertEquals(List.of(1), result.transitioned());
+        assertTrue(result.skipped().isEmpty());
+        Mockito.verify(bookingIntervalIndex).updateStatus(1, Status.CANCELED);
+    }
 
+    @Test
+    public void updateBookingStatuses_whenTooManyIds_throwsBookingException(){
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i <= 500; i++) {
+            ids.add(i);
+        }
+        Mockito.when(userService.getUserById(owner.getId())).thenReturn(owner);
 
+        Exception exception = assertThrows(BookingException.class,
+                () -> bookingService.updateBookingStatuses(ids, false, owner.getId()));
 
+        assertEquals("At most 500 bookings can be updated at once", exception.getMessage());
+    }
 
+    @Test
+    public void updateBookingStatuses_whenOwnerNotFound_throwsUserNotFoundException(){
+        Mockito.when(userService.getUserById(owner.getId())).thenThrow(new UserNotFoundException("User not found"));
 
+        assertThrows(UserNotFoundException.class,
+                () -> bookingService.updateBookingStatuses(List.of(1), true, owner.getId()));
+        Mockito.verifyNoInteractions(bookingRepository);
+    }
 
+    @Test
+    public void exportBookingsByOwner_checksUserFirstAndStreamsOnlyWhenWritten(){
+        Mockito.when(userService.getUserById(owner.getId())).thenReturn(owner);
+        BookingDTO row = new BookingDTO(1, null, null, item.getId(), booker.getId(), Status.WAITING, null);
+        Mockito.doAnswer(inv -> {
+            Consumer<BookingDTO> sink = inv.getArgument(1);
+            sink.accept(row);
+            return null;
+        }).when(bookingRepository).streamBookings(Mockito.eq(BookingQuery.forOwner(owner.getId(), State.PAST, 0, Integer.MAX_VALUE)),
+                Mockito.any());
+
+        BookingExport export = bookingService.exportBookingsByOwner(owner.getId(), State.PAST);
+        Mockito.verifyNoInteractions(bookingRepository);
+
+        List<BookingDTO> written = new ArrayList<>();
+        export.writeTo(written::add);
+
+        assertEquals(List.of(row), written);
+    }
 
+    @Test
+    public void exportBookingsByBooker_whenUserNotFound_throwsBeforeStreaming(){
+        Mockito.when(userService.getUserById(booker.getId())).thenThrow(new UserNotFoundException("User not found"));
 
+        assertThrows(UserNotFoundException.class, () -> bookingService.exportBookingsByBooker(booker.getId(), State.ALL));
+        Mockito.verifyNoInteractions(bookingRepository);
+    }
 
+    @Test
+    public void getBookingCountsByBooker_combinesStatusCountersWithPhaseCounts(){
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(bookingCounters.countsFor(booker.getId(), BookingQuery.Perspective.BOOKER))
+                .thenReturn(Map.of(Status.WAITING, 3L, Status.APPROVED, 4L, Status.REJECTED, 1L));
+        Mockito.when(bookingRepository.countPhasesForBooker(booker.getId()))
+                .thenReturn(List.of(new PhaseCount(Phase.FUTURE, 5), new PhaseCount(Phase.PAST, 2),
+                        new PhaseCount(Phase.CURRENT, 1)));
+
+        BookingCounts counts = bookingService.getBookingCountsByBooker(booker.getId());
+
+        assertEquals(new BookingCounts(8, 1, 2, 5, 3, 1), counts);
+        Mockito.verify(bookingRepository, Mockito.never()).findBookings(Mockito.any());
+    }
 
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
+    @Test
+    public void getBookingCountsByOwner_whenNothingCounted_returnsZeros(){
+        Mockito.when(userService.getUserById(owner.getId())).thenReturn(owner);
+        Mockito.when(bookingCounters.countsFor(owner.getId(), BookingQuery.Perspective.OWNER)).thenReturn(Map.of());
+        Mockito.when(bookingRepository.countPhasesForOwner(owner.getId())).thenReturn(List.of());
 
+        assertEquals(new BookingCounts(0, 0, 0, 0, 0, 0), bookingService.getBookingCountsByOwner(owner.getId()));
+    }
 
+    @Test
+    public void getBookingCountsByOwner_addsArchivedBookingsToPast(){
+        Mockito.when(userService.getUserById(owner.getId())).thenReturn(owner);
+        Mockito.when(bookingCounters.countsFor(owner.getId(), BookingQuery.Perspective.OWNER))
+                .thenReturn(Map.of(Status.APPROVED, 10L));
+        Mockito.when(bookingCounters.archivedFor(owner.getId(), BookingQuery.Perspective.OWNER)).thenReturn(7L);
+        Mockito.when(bookingRepository.countPhasesForOwner(owner.getId()))
+                .thenReturn(List.of(new PhaseCount(Phase.PAST, 2), new PhaseCount(Phase.FUTURE, 1)));
+
+        assertEquals(new BookingCounts(10, 0, 9, 1, 0, 0), bookingService.getBookingCountsByOwner(owner.getId()));
+    }
 
+    @Test
+    public void getItemAvailability_snapsBusyRangesToSlots(){
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        bookingIntervalIndex.add(new BookingSlot(1, item.getId(), from.plusMinutes(90), from.plusMinutes(150), Status.WAITING));
+        bookingIntervalIndex.add(new BookingSlot(2, item.getId(), from.plusMinutes(170), from.plusMinutes(200), Status.APPROVED));
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
 
+        ItemAvailability availability = bookingService.getItemAvailability(item.getId(), from, from.plusHours(6), 60);
 
+        assertEquals(List.of(new TimeRange(from.plusHours(1), from.plusHours(4))), availability.busy());
+        assertEquals(List.of(new TimeRange(from, from.plusHours(1)), new TimeRange(from.plusHours(4), from.plusHours(6))),
+                availability.free());
+    }
 
+    @Test
+    public void getItemAvailability_whenNothingBooked_returnsWholeWindowFree(){
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
 
+        ItemAvailability availability = bookingService.getItemAvailability(item.getId(), from, from.plusDays(1), 15);
 
+        assertTrue(availability.busy().isEmpty());
+        assertEquals(List.of(new TimeRange(from, from.plusDays(1))), availability.free());
+    }
 
+    @Test
+    public void getItemAvailability_whenWindowTooLong_throwsBookingException(){
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
 
+        Exception exception = assertThrows(BookingException.class,
+                () -> bookingService.getItemAvailability(item.getId(), from, from.plusDays(91), 60));
 
+        assertEquals("Availability can be requested for at most 90 days", exception.getMessage());
+    }
 
+    @Test
+    public void createBookings_whenEntriesDoNotConflict_insertsAllInOneBatch(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start, start.plusDays(1)),
+                new BookingRequest(item.getId(), start.plusDays(1), start.plusDays(2)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(bookingRepository.insertAll(Mockito.anyList())).thenAnswer(inv -> {
+            List<Booking> bookings = inv.getArgument(0);
+            for (int i = 0; i < bookings.size(); i++) {
+                bookings.get(i).setId(10 + i);
+            }
+            return bookings;
+        });
+
+        List<BookingBatchResult> results = bookingService.createBookings(booker.getId(), requests);
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(BookingBatchResult::isCreated));
+        assertEquals(Status.WAITING, results.get(0).booking().getStatus());
+        assertEquals(booker, results.get(1).booking().getBooker());
+        Mockito.verify(bookingRepository, Mockito.never()).save(Mockito.any());
+    }
 
+    @Test
+    public void createBookings_whenBatchIsTooLarge_throwsWithoutLocking(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = Collections.nCopies(501,
+                new BookingRequest(item.getId(), start, start.plusDays(1)));
 
+        Exception exception = assertThrows(BookingException.class,
+                () -> bookingService.createBookings(booker.getId(), requests));
 
+        assertEquals("At most 500 bookings can be made at once", exception.getMessage());
+        Mockito.verifyNoInteractions(userService, itemService, bookingRepository, itemLockStripes);
+    }
 
+    @Test
+    public void createBookings_whenEntriesOverlapEachOther_earliestStartWins(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start.plusHours(12), start.plusDays(2)),
+                new BookingRequest(item.getId(), start, start.plusDays(1)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(bookingRepository.insertAll(Mockito.anyList())).thenAnswer(inv -> inv.getArgument(0));
 
+        List<BookingBatchResult> results = bookingService.createBookings(booker.getId(), requests);
 
+        assertEquals("Booking request for this time already exists", results.get(0).error());
+        assertTrue(results.get(1).isCreated());
+        assertEquals(start, results.get(1).booking().getStart());
+    }
 
+    @Test
+    public void createBookings_whenEntryOverlapsStoredBooking_reportsConflict(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(new BookingRequest(item.getId(), start, start.plusDays(1)));
 
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(new BookingSlot(5, item.getId(), start.minusDays(1), start.plusHours(1), Status.APPROVED)));
+        Mockito.when(bookingRepository.insertAll(Mockito.anyList())).thenAnswer(inv -> inv.getArgument(0));
 
+        List<BookingBatchResult> results = bookingService.createBookings(booker.getId(), requests);
 
+        assertEquals("Booking already exists and is approved", results.get(0).error());
+        Mockito.verify(bookingRepository).insertAll(Collections.emptyList());
+    }
 
+    @Test
+    public void createBookings_whenItemMissingOrDatesInvalid_reportsPerEntryErrors(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(99, start, start.plusDays(1)),
+                new BookingRequest(item.getId(), start, start.minusHours(1)),
+                new BookingRequest(item.getId(), null, start));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+
+        List<BookingBatchResult> results = bookingService.createBookings(booker.getId(), requests);
+
+        assertEquals("Item with id 99 not found", results.get(0).error());
+        assertEquals("End time must be after start time", results.get(1).error());
+        assertEquals("The booking start/end time cannot be null", results.get(2).error());
+        Mockito.verifyNoMoreInteractions(bookingRepository);
+    }
 
+    @Test
+    public void createBookings_whenBatchLosesRace_fallsBackToSingleInserts(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Item other = new Item();
+        other.setId(2);
+        other.setAvailable(true);
+        other.setOwner(owner);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start, start.plusDays(1)),
+                new BookingRequest(other.getId(), start, start.plusDays(1)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item, other));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(bookingRepository.insertAll(Mockito.anyList()))
+                .thenThrow(new DataIntegrityViolationException("violates exclusion constraint \"bookings_no_overlap\""));
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class))).thenAnswer(inv -> {
+            Booking saved = inv.getArgument(0);
+            if (saved.getItem().getId() == item.getId()) {
+                throw new DataIntegrityViolationException("violates exclusion constraint \"bookings_no_overlap\"");
+            }
+            saved.setId(20);
+            return saved;
+        });
+        Mockito.when(bookingRepository.findActiveSlotsForItem(item.getId(), start, start.plusDays(1)))
+                .thenReturn(List.of(new BookingSlot(7, item.getId(), start, start.plusDays(1), Status.WAITING)));
+
+        List<BookingBatchResult> results = bookingService.createBookings(booker.getId(), requests);
+
+        assertEquals("Booking request for this time already exists", results.get(0).error());
+        assertEquals(20, results.get(1).booking().getId());
+    }
 
+    @Test
+    public void createCart_whenAllEntriesFit_insertsThemInOneTransaction(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Item stove = new Item();
+        stove.setId(2);
+        stove.setAvailable(true);
+        stove.setOwner(owner);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start, start.plusDays(1)),
+                new BookingRequest(stove.getId(), start.plusHours(6), start.plusDays(2)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item, stove));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(bookingRepository.insertAll(Mockito.anyList())).thenAnswer(inv -> {
+            List<Booking> bookings = inv.getArgument(0);
+            for (int i = 0; i < bookings.size(); i++) {
+                bookings.get(i).setId(10 + i);
+            }
+            return bookings;
+        });
+
+        List<Booking> result = bookingService.createCart(booker.getId(), requests);
+
+        assertEquals(2, result.size());
+        assertEquals(stove, result.get(1).getItem());
+        assertEquals(Status.WAITING, result.get(1).getStatus());
+        assertEquals(Status.WAITING, bookingIntervalIndex.findConflict(stove.getId(), start, start.plusDays(1)));
+        Mockito.verify(bookingRepository).findActiveSlotsForItems(Set.of(item.getId(), stove.getId()),
+                start, start.plusDays(2));
+        Mockito.verify(bookingRepository).insertAll(Mockito.anyList());
+        Mockito.verify(bookingRepository, Mockito.never()).save(Mockito.any());
+    }
 
+    @Test
+    public void createCart_whenOneEntryOverlapsStoredBooking_booksNothing(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start, start.plusHours(2)),
+                new BookingRequest(item.getId(), start.plusDays(1), start.plusDays(2)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(new BookingSlot(5, item.getId(), start.plusDays(1), start.plusDays(3), Status.APPROVED)));
+
+        BookingException exception = assertThrows(BookingException.class,
+                () -> bookingService.createCart(booker.getId(), requests));
+
+        assertEquals("Cart entry 1: Booking already exists and is approved", exception.getMessage());
+        Mockito.verify(bookingRepository, Mockito.never()).insertAll(Mockito.anyList());
+    }
 
+    @Test
+    public void createCart_whenEntriesOverlapEachOther_booksNothing(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start, start.plusDays(1)),
+                new BookingRequest(item.getId(), start.plusHours(12), start.plusDays(2)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+        Mockito.when(bookingRepository.findActiveSlotsForItems(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+                .thenReturn(Collections.emptyList());
 
+        BookingException exception = assertThrows(BookingException.class,
+                () -> bookingService.createCart(booker.getId(), requests));
 
+        assertEquals("Cart entry 1: Booking request for this time already exists", exception.getMessage());
+        assertNull(bookingIntervalIndex.findConflict(item.getId(), start, start.plusDays(2)));
+        Mockito.verify(bookingRepository, Mockito.never()).insertAll(Mockito.anyList());
+    }
 
+    @Test
+    public void createCart_whenItemNotFound_throwsItemNotFoundException(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<BookingRequest> requests = List.of(
+                new BookingRequest(item.getId(), start, start.plusDays(1)),
+                new BookingRequest(99, start, start.plusDays(1)));
+
+        Mockito.when(userService.getUserById(booker.getId())).thenReturn(booker);
+        Mockito.when(itemService.getItemsByIds(Mockito.anyCollection())).thenReturn(List.of(item));
+
+        ItemNotFoundException e = assertThrows(ItemNotFoundException.class,
+                () -> bookingService.createCart(booker.getId(), requests));
+        assertEquals("Cart entry 1: Item with id 99 not found", e.getMessage());
+        Mockito.verify(bookingRepository, Mockito.never()).findActiveSlotsForItems(Mockito.anyCollection(),
+                Mockito.any(), Mockito.any());
+    }
+}
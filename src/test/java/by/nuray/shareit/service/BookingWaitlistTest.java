@@ -0,0 +1,267 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.*;
+import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemService;
+import by.nuray.shareit.user.User;
+import by.nuray.shareit.user.UserService;
+import by.nuray.shareit.util.BookingException;
+import by.nuray.shareit.util.ItemNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingWaitlistTest {
+
+    @Mock
+    BookingRepository bookingRepository;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    ItemService itemService;
+
+    BookingWaitlist bookingWaitlist;
+
+    BookingHolds bookingHolds;
+
+    BookingServiceImpl bookingService;
+
+    private final List<Booking> saved = new ArrayList<>();
+
+    private Item item;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        bookingWaitlist = new BookingWaitlist(2);
+        bookingHolds = new BookingHolds(60_000, 1000);
+        bookingService = new BookingServiceImpl(bookingRepository, userService, itemService,
+                new BookingIntervalIndex(), new ItemLockStripes(), Mockito.mock(BookingCounters.class),
+                Mockito.mock(BookingArchive.class), Mockito.mock(BookingRentals.class),
+                Mockito.mock(BookingExpiry.class), bookingHolds, bookingWaitlist);
+
+        User owner = new User();
+        owner.setId(100);
+
+        item = new Item();
+        item.setId(10);
+        item.setAvailable(true);
+        item.setOwner(owner);
+
+        start = LocalDateTime.now().plusDays(1);
+
+        Mockito.when(itemService.getItemById(item.getId())).thenReturn(item);
+        for (int userId = 1; userId <= 4; userId++) {
+            User user = new User();
+            user.setId(userId);
+            Mockito.lenient().when(userService.getUserById(userId)).thenReturn(user);
+        }
+        Mockito.lenient().when(bookingRepository.save(Mockito.any(Booking.class))).thenAnswer(inv -> {
+            Booking booking = inv.getArgument(0);
+            booking.setId(saved.size() + 1);
+            saved.add(booking);
+            return booking;
+        });
+        // the database's view: whatever was saved and is still WAITING or APPROVED
+        Mockito.lenient().when(bookingRepository.findActiveSlotsForItem(Mockito.anyInt(), Mockito.any(), Mockito.any()))
+                .thenAnswer(inv -> saved.stream()
+                        .filter(b -> b.getStatus() == Status.WAITING || b.getStatus() == Status.APPROVED)
+                        .filter(b -> b.getStart().isBefore(inv.getArgument(2))
+                                && b.getEnd().isAfter(inv.getArgument(1)))
+                        .map(BookingSlot::of)
+                        .toList());
+    }
+
+    @Test
+    public void joinWaitlist_whenRangeIsFree_booksRightAway() {
+        BookingWaitlistResult result = bookingService.joinWaitlist(booking(0, 5), 1, item.getId());
+
+        assertTrue(result.isBooked());
+        assertEquals(Status.WAITING, result.booking().getStatus());
+        assertEquals(0, bookingWaitlist.size());
+    }
+
+    @Test
+    public void rejectBooking_promotesEveryCompatibleEntryInRequestOrder() {
+        Booking blocking = bookingService.createBooking(booking(0, 10), 1, item.getId());
+
+        BookingWaitlistEntry first = bookingService.joinWaitlist(booking(0, 5), 2, item.getId()).entry();
+        BookingWaitlistEntry second = bookingService.joinWaitlist(booking(2, 6), 3, item.getId()).entry();
+        assertNotNull(first);
+        assertNotNull(second);
+
+        Mockito.when(bookingRepository.transitionIfWaiting(blocking.getId(), BookingQuery.Perspective.OWNER,
+                100, Status.REJECTED)).thenAnswer(inv -> decided(blocking, inv.getArgument(3)));
+        bookingService.updateBookingStatus(blocking.getId(), false, 100);
+
+        // the second entry overlaps the promoted first one, so it keeps waiting
+        assertEquals(2, saved.size());
+        assertEquals(2, saved.get(1).getBooker().getId());
+        assertEquals(start, saved.get(1).getStart());
+        assertNull(bookingWaitlist.find(first.id()));
+        assertEquals(second, bookingWaitlist.find(second.id()));
+
+        Mockito.when(bookingRepository.transitionIfWaiting(saved.get(1).getId(), BookingQuery.Perspective.BOOKER,
+                2, Status.CANCELED)).thenAnswer(inv -> decided(saved.get(1), inv.getArgument(3)));
+        bookingService.cancelBooking(saved.get(1).getId(), 2);
+
+        assertEquals(3, saved.size());
+        assertEquals(3, saved.get(2).getBooker().getId());
+        assertEquals(0, bookingWaitlist.size());
+    }
+
+    @Test
+    public void approveBooking_leavesTheWaitlistAlone() {
+        Booking blocking = bookingService.createBooking(booking(0, 10), 1, item.getId());
+        bookingService.joinWaitlist(booking(0, 5), 2, item.getId());
+
+        Mockito.when(bookingRepository.transitionIfWaiting(blocking.getId(), BookingQuery.Perspective.OWNER,
+                100, Status.APPROVED)).thenAnswer(inv -> decided(blocking, inv.getArgument(3)));
+        bookingService.updateBookingStatus(blocking.getId(), true, 100);
+
+        assertEquals(1, saved.size());
+        assertEquals(1, bookingWaitlist.size());
+    }
+
+    @Test
+    public void cancelBooking_whenPromotionHitsDatabaseError_keepsTheEntryQueued() {
+        Booking blocking = bookingService.createBooking(booking(0, 10), 1, item.getId());
+        BookingWaitlistEntry entry = bookingService.joinWaitlist(booking(0, 5), 2, item.getId()).entry();
+
+        Mockito.when(bookingRepository.save(Mockito.any(Booking.class)))
+                .thenThrow(new QueryTimeoutException("statement timed out"));
+        Mockito.when(bookingRepository.transitionIfWaiting(blocking.getId(), BookingQuery.Perspective.BOOKER,
+                1, Status.CANCELED)).thenAnswer(inv -> decided(blocking, inv.getArgument(3)));
+
+        assertEquals(Status.CANCELED, bookingService.cancelBooking(blocking.getId(), 1).getStatus());
+        assertEquals(entry, bookingWaitlist.find(entry.id()));
+    }
+
+    @Test
+    public void rejectBooking_whenItemWasDeleted_dropsItsWaitlist() {
+        Booking blocking = bookingService.createBooking(booking(0, 10), 1, item.getId());
+        bookingService.joinWaitlist(booking(0, 5), 2, item.getId());
+        bookingService.joinWaitlist(booking(2, 6), 3, item.getId());
+
+        Mockito.when(itemService.getItemById(item.getId()))
+                .thenThrow(new ItemNotFoundException("Item with id " + item.getId() + " not found"));
+        Mockito.when(bookingRepository.transitionIfWaiting(blocking.getId(), BookingQuery.Perspective.OWNER,
+                100, Status.REJECTED)).thenAnswer(inv -> decided(blocking, inv.getArgument(3)));
+        bookingService.updateBookingStatus(blocking.getId(), false, 100);
+
+        assertEquals(1, saved.size());
+        assertTrue(bookingWaitlist.isEmpty(item.getId()));
+    }
+
+    @Test
+    public void releaseHold_whenHoldBlockedTheRange_promotesTheQueuedRequest() {
+        BookingHold hold = bookingService.createHold(item.getId(), 1, start, start.plusHours(10));
+
+        BookingWaitlistResult result = bookingService.joinWaitlist(booking(0, 5), 2, item.getId());
+        assertFalse(result.isBooked());
+        assertEquals(0, saved.size());
+
+        bookingService.releaseHold(hold.id(), 1);
+
+        assertEquals(1, saved.size());
+        assertEquals(2, saved.get(0).getBooker().getId());
+        assertNull(bookingWaitlist.find(result.entry().id()));
+    }
+
+    @Test
+    public void sweepHolds_whenBlockingHoldExpired_promotesTheQueuedRequest() throws InterruptedException {
+        BookingHolds shortHolds = new BookingHolds(50, 1);
+        BookingServiceImpl service = new BookingServiceImpl(bookingRepository, userService, itemService,
+                new BookingIntervalIndex(), new ItemLockStripes(), Mockito.mock(BookingCounters.class),
+                Mockito.mock(BookingArchive.class), Mockito.mock(BookingRentals.class),
+                Mockito.mock(BookingExpiry.class), shortHolds, bookingWaitlist);
+        service.createHold(item.getId(), 1, start, start.plusHours(10));
+        BookingWaitlistEntry entry = service.joinWaitlist(booking(0, 5), 2, item.getId()).entry();
+        assertNotNull(entry);
+
+        Thread.sleep(100);
+        service.sweepHolds();
+
+        assertEquals(1, saved.size());
+        assertEquals(0, shortHolds.size());
+        assertNull(bookingWaitlist.find(entry.id()));
+    }
+
+    @Test
+    public void joinWaitlist_whenWaitlistIsFull_throwsBookingException() {
+        bookingService.createBooking(booking(0, 10), 1, item.getId());
+        bookingService.joinWaitlist(booking(0, 5), 2, item.getId());
+        bookingService.joinWaitlist(booking(0, 5), 3, item.getId());
+
+        BookingException e = assertThrows(BookingException.class,
+                () -> bookingService.joinWaitlist(booking(0, 5), 4, item.getId()));
+        assertEquals("Waitlist for this item is full", e.getMessage());
+    }
+
+    @Test
+    public void joinWaitlist_whenBookerRetriesTheSameRange_returnsTheQueuedEntry() {
+        bookingService.createBooking(booking(0, 10), 1, item.getId());
+        BookingWaitlistEntry entry = bookingService.joinWaitlist(booking(0, 5), 2, item.getId()).entry();
+
+        assertEquals(entry, bookingService.joinWaitlist(booking(0, 5), 2, item.getId()).entry());
+        assertEquals(entry, bookingService.joinWaitlist(booking(0, 5), 2, item.getId()).entry());
+        assertEquals(1, bookingWaitlist.size());
+
+        // the waitlist holds two entries, so another booker still gets in
+        assertNotNull(bookingService.joinWaitlist(booking(0, 5), 3, item.getId()).entry());
+    }
+
+    @Test
+    public void joinWaitlist_whenBookerAlreadyWaitsForAnOverlappingRange_throwsBookingException() {
+        bookingService.createBooking(booking(0, 10), 1, item.getId());
+        bookingService.joinWaitlist(booking(0, 5), 2, item.getId());
+
+        BookingException e = assertThrows(BookingException.class,
+                () -> bookingService.joinWaitlist(booking(4, 8), 2, item.getId()));
+        assertEquals("You are already on the waitlist for this item at an overlapping time", e.getMessage());
+        assertEquals(1, bookingWaitlist.size());
+
+        // a range that does not overlap the queued one is a different request
+        assertNotNull(bookingService.joinWaitlist(booking(5, 8), 2, item.getId()).entry());
+    }
+
+    @Test
+    public void leaveWaitlist_onlyRemovesTheBookersOwnEntry() {
+        bookingService.createBooking(booking(0, 10), 1, item.getId());
+        BookingWaitlistEntry entry = bookingService.joinWaitlist(booking(0, 5), 2, item.getId()).entry();
+
+        assertThrows(BookingException.class, () -> bookingService.leaveWaitlist(entry.id(), 3));
+        assertEquals(1, bookingWaitlist.size());
+
+        bookingService.leaveWaitlist(entry.id(), 2);
+        assertEquals(0, bookingWaitlist.size());
+        assertTrue(bookingWaitlist.isEmpty(item.getId()));
+    }
+
+
+    private Optional<Booking> decided(Booking booking, Status status) {
+        booking.setStatus(status);
+        return Optional.of(booking);
+    }
+
+    private Booking booking(int fromHour, int toHour) {
+        Booking booking = new Booking();
+        booking.setStart(start.plusHours(fromHour));
+        booking.setEnd(start.plusHours(toHour));
+        return booking;
+    }
+}
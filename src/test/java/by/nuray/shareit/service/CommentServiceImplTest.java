@@ -4,6 +4,7 @@ package by.nuray.shareit.service;
 import by.nuray.shareit.booking.Booking;
 import by.nuray.shareit.booking.BookingService;
 import by.nuray.shareit.comment.Comment;
+import by.nuray.shareit.comment.CommentDto;
 import by.nuray.shareit.comment.CommentRepository;
 import by.nuray.shareit.comment.CommentServiceImpl;
 import by.nuray.shareit.item.Item;
@@ -48,6 +49,7 @@ public class CommentServiceImplTest {
     BookingService bookingService;
 
     private Comment comment;
+    private CommentDto commentDto;
     private User commentator;
     private User itemOwner;
     private Item item;
@@ -76,15 +78,17 @@ public class CommentServiceImplTest {
         comment.setText("This is a comment");
         comment.setAuthor(commentator);
 
+        commentDto = new CommentDto(1, comment.getText(), commentator.getId(), item.getId(), null);
+
     }
 
     @Test
     public void getCommentsByItem_whenCommentsExist_returnsCommentList() {
 
         Mockito.when(commentRepository.findByItemId(item.getId()))
-                .thenReturn(Arrays.asList(comment));
+                .thenReturn(Arrays.asList(commentDto));
 
-        List<Comment> comments = commentService.getCommentsByItem(item.getId());
+        List<CommentDto> comments = commentService.getCommentsByItem(item.getId());
 
         assertNotNull(comments);
         assertEquals(1, comments.size());
@@ -97,7 +101,7 @@ public class CommentServiceImplTest {
         Mockito.when(commentRepository.findByItemId(item.getId()))
                 .thenReturn(Collections.emptyList());
 
-        List<Comment> comments = commentService.getCommentsByItem(item.getId());
+        List<CommentDto> comments = commentService.getCommentsByItem(item.getId());
 
         Assertions.assertTrue(comments.isEmpty());
 
@@ -106,12 +110,12 @@ public class CommentServiceImplTest {
     @Test
     public void getCommentsByItem_whenItemHasMultipleComments_returnsAllComments(){
 
-        Comment secondComment = new Comment();
+        CommentDto secondComment = new CommentDto();
         secondComment.setText("This is a second comment");
         Mockito.when(commentRepository.findByItemId(item.getId()))
-                .thenReturn(Arrays.asList(comment,secondComment));
+                .thenReturn(Arrays.asList(commentDto,secondComment));
 
-        List<Comment> comments = commentService.getCommentsByItem(item.getId());
+        List<CommentDto> comments = commentService.getCommentsByItem(item.getId());
 
         assertNotNull(comments);
         assertEquals(2, comments.size());
@@ -121,9 +125,9 @@ public class CommentServiceImplTest {
     @Test
     public void getCommentsByUser_whenUserHasComments_returnsCommentList(){
         Mockito.when(commentRepository.findByAuthorId(commentator.getId()))
-                .thenReturn(Arrays.asList(comment));
+                .thenReturn(Arrays.asList(commentDto));
 
-        List<Comment> comments = commentService.getCommentsByUser(commentator.getId());
+        List<CommentDto> comments = commentService.getCommentsByUser(commentator.getId());
         assertNotNull(comments);
         assertEquals(1, comments.size());
     }
@@ -134,21 +138,20 @@ public class CommentServiceImplTest {
         Mockito.when(commentRepository.findByAuthorId(commentator.getId()))
                 .thenReturn(Collections.emptyList());
 
-        List<Comment> comments = commentService.getCommentsByUser(commentator.getId());
+        List<CommentDto> comments = commentService.getCommentsByUser(commentator.getId());
 
         Assertions.assertTrue(comments.isEmpty());
     }
 
     @Test
     public void getCommentsByUser_whenUserHasMultipleComments_returnsAllComments(){
-        Comment secondComment = new Comment();
+        CommentDto secondComment = new CommentDto();
         secondComment.setText("This is a second comment");
-        comment.setAuthor(commentator);
 
         Mockito.when(commentRepository.findByAuthorId(commentator.getId()))
-                .thenReturn(Arrays.asList(comment,secondComment));
+                .thenReturn(Arrays.asList(commentDto,secondComment));
 
-        List<Comment> comments = commentService.getCommentsByUser(commentator.getId());
+        List<CommentDto> comments = commentService.getCommentsByUser(commentator.getId());
 
         assertNotNull(comments);
         assertEquals(2, comments.size());
@@ -158,17 +161,14 @@ public class CommentServiceImplTest {
     @Test
     public void addComment_whenValidInput_returnsSavedComment(){
 
-        booking.setStart(LocalDateTime.now().minusDays(3));
-        booking.setEnd(LocalDateTime.now().minusDays(1));
-
         Mockito.when(itemService.getItemById(item.getId()))
                 .thenReturn(item);
 
         Mockito.when(userService.getUserById(commentator.getId()))
                 .thenReturn(commentator);
 
-        Mockito.when(bookingService.getPastBookingsByBookerForItem(commentator.getId(), item.getId()))
-                .thenReturn(Arrays.asList(booking));
+        Mockito.when(bookingService.hasRented(commentator.getId(), item.getId()))
+                .thenReturn(true);
 
         Mockito.when(commentRepository.save(Mockito.any(Comment.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
@@ -221,8 +221,8 @@ public class CommentServiceImplTest {
     @Test
     public void addComment_whenUserHasNoPastBooking_throwsCommentException(){
 
-        Mockito.when(bookingService.getPastBookingsByBookerForItem(commentator.getId(), item.getId()))
-                .thenReturn(Collections.emptyList());
+        Mockito.when(bookingService.hasRented(commentator.getId(), item.getId()))
+                .thenReturn(false);
 
         Exception exception = assertThrows(CommentException.class,
                 () -> commentService.addComment(comment,item.getId(),commentator.getId()));
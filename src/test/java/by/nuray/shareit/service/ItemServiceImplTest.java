@@ -2,6 +2,7 @@ package by.nuray.shareit.service;
 
 
 import by.nuray.shareit.item.Item;
+import by.nuray.shareit.item.ItemDto;
 import by.nuray.shareit.item.ItemRepository;
 import by.nuray.shareit.item.ItemServiceImpl;
 import by.nuray.shareit.request.ItemRequest;
@@ -95,9 +96,9 @@ public class ItemServiceImplTest {
         Mockito.when(userService.getUserById(Mockito.anyInt()))
                 .thenReturn(user);
         Mockito.when(itemRepository.findAllByOwnerIdPaged(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt()))
-                .thenReturn(Arrays.asList(item));
+                .thenReturn(Arrays.asList(new ItemDto(item.getName(), item.getDescription(), true, null)));
 
-        List<Item> items = itemService.getAllItems(1, 1, 1);
+        List<ItemDto> items = itemService.getAllItems(1, 1, 1);
 
         assertEquals(1, items.size());
         Assertions.assertNotNull(items);
@@ -111,7 +112,7 @@ public class ItemServiceImplTest {
         Mockito.when(itemRepository.findAllByOwnerIdPaged(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt()))
                 .thenReturn(Collections.emptyList());
 
-        List<Item> items = itemService.getAllItems(1, 1, 1);
+        List<ItemDto> items = itemService.getAllItems(1, 1, 1);
 
         Assertions.assertTrue(items.isEmpty());
     }
@@ -489,20 +490,14 @@ public class ItemServiceImplTest {
         int from = 1;
         int size = 3;
 
-        Item second = new Item();
-        second.setName("test item");
-        second.setDescription("test description");
-        second.setAvailable(true);
-
-        Item first = new Item();
-        first.setName("test item");
-        first.setDescription("test description");
-        first.setAvailable(true);
+        ItemDto second = new ItemDto("test item", "test description", true, null);
+        ItemDto first = new ItemDto("test item", "test description", true, null);
 
         Mockito.when(itemRepository.searchAvailableItemsPaged(query,from,size))
-                .thenReturn(Arrays.asList(first, second,item));
+                .thenReturn(Arrays.asList(first, second,
+                        new ItemDto(item.getName(), item.getDescription(), true, null)));
 
-        List<Item> items = itemService.searchItemsPaged(query,from,size);
+        List<ItemDto> items = itemService.searchItemsPaged(query,from,size);
 
         Assertions.assertNotNull(items);
 
@@ -522,7 +517,7 @@ public class ItemServiceImplTest {
         Mockito.when(itemRepository.searchAvailableItemsPaged(query,from,size))
                 .thenReturn(Collections.emptyList());
 
-        List<Item> items = itemService.searchItemsPaged(query,from,size);
+        List<ItemDto> items = itemService.searchItemsPaged(query,from,size);
 
         assertTrue(items.isEmpty());
         Mockito.verify(itemRepository).searchAvailableItemsPaged(query,from,size);
@@ -4,6 +4,7 @@ package by.nuray.shareit.service;
 import by.nuray.shareit.item.Item;
 import by.nuray.shareit.item.ItemService;
 import by.nuray.shareit.request.ItemRequest;
+import by.nuray.shareit.request.ItemRequestDTO;
 import by.nuray.shareit.request.ItemRequestRepository;
 import by.nuray.shareit.request.RequestServiceImpl;
 import by.nuray.shareit.user.User;
@@ -43,6 +44,7 @@ public class RequestServiceImplTest {
     RequestServiceImpl requestService;
 
     private ItemRequest itemRequest;
+    private ItemRequestDTO itemRequestDTO;
     private Item item;
     private User owner;
     private User requester;
@@ -71,6 +73,8 @@ public class RequestServiceImplTest {
         itemRequest.setDescription("description from request");
         itemRequest.setRequester(requester);
 
+        itemRequestDTO = new ItemRequestDTO(itemRequest.getId(), itemRequest.getDescription());
+
     }
 
     @Test
@@ -143,18 +147,15 @@ public class RequestServiceImplTest {
 
 
     @Test
-    public void getAllRequests_whenUserExistsAndHasRequestsWithItems_returnsRequestList() {
+    public void getAllRequests_whenUserExistsAndHasRequests_returnsRequestList() {
 
         Mockito.when(userService.getUserById(requester.getId()))
                 .thenReturn(requester);
-        Mockito.when(requestRepository.findAllByRequestorIdOrderByCreatedAtDesc(requester.getId()))
-                .thenReturn(Arrays.asList(itemRequest));
+        Mockito.when(requestRepository.findAllByRequesterIdOrderByCreatedAtDesc(requester.getId()))
+                .thenReturn(Arrays.asList(itemRequestDTO));
 
-        Mockito.when(itemService.getItemsByRequestId(Mockito.anyInt()))
-                .thenReturn(Arrays.asList(item));
 
-
-        List<ItemRequest> result = requestService.getAllRequests(requester.getId());
+        List<ItemRequestDTO> result = requestService.getAllRequests(requester.getId());
 
         assertNotNull(result);
         assertEquals(1, result.size());
@@ -166,10 +167,10 @@ public class RequestServiceImplTest {
         Mockito.when(userService.getUserById(requester.getId()))
                 .thenReturn(requester);
 
-        Mockito.when(requestRepository.findAllByRequestorIdOrderByCreatedAtDesc(requester.getId()))
+        Mockito.when(requestRepository.findAllByRequesterIdOrderByCreatedAtDesc(requester.getId()))
                 .thenReturn(Collections.emptyList());
 
-        List<ItemRequest> result = requestService.getAllRequests(requester.getId());
+        List<ItemRequestDTO> result = requestService.getAllRequests(requester.getId());
 
         assertNotNull(result);
         assertEquals(0, result.size());
@@ -177,22 +178,18 @@ public class RequestServiceImplTest {
     }
 
     @Test
-    public void getAllRequests_whenUserExistsAndRequestsHaveNoItems_returnsRequestsWithEmptyItems(){
+    public void getAllRequests_whenUserExistsAndHasRequests_doesNotLoadItemsPerRequest(){
 
         Mockito.when(userService.getUserById(requester.getId()))
                 .thenReturn(requester);
 
-        Mockito.when(requestRepository.findAllByRequestorIdOrderByCreatedAtDesc(requester.getId()))
-                .thenReturn(Arrays.asList(itemRequest));
+        Mockito.when(requestRepository.findAllByRequesterIdOrderByCreatedAtDesc(requester.getId()))
+                .thenReturn(Arrays.asList(itemRequestDTO, new ItemRequestDTO(2, "second request")));
 
-        Mockito.when(itemService.getItemsByRequestId(Mockito.anyInt()))
-                .thenReturn(Collections.emptyList());
-
-        List<ItemRequest> result = requestService.getAllRequests(requester.getId());
+        List<ItemRequestDTO> result = requestService.getAllRequests(requester.getId());
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(0,result.get(0).getItems().size());
+        assertEquals(2, result.size());
+        Mockito.verifyNoInteractions(itemService);
 
     }
 
@@ -206,7 +203,7 @@ public class RequestServiceImplTest {
                 () -> requestService.getAllRequests(requester.getId()));
 
         assertEquals("User with id 1 not found", exception.getMessage());
-        Mockito.verify(requestRepository,Mockito.never()).findAllByRequestorIdOrderByCreatedAtDesc(requester.getId());
+        Mockito.verify(requestRepository,Mockito.never()).findAllByRequesterIdOrderByCreatedAtDesc(requester.getId());
 
     }
 
@@ -222,9 +219,9 @@ public class RequestServiceImplTest {
                 .thenReturn(user);
 
         Mockito.when(requestRepository.findRequestsFromOthers(user.getId(),from,size))
-                .thenReturn(Arrays.asList(itemRequest));
+                .thenReturn(Arrays.asList(itemRequestDTO));
 
-        List<ItemRequest> requests=requestService.getRequestsFromOthers(user.getId(), from,size);
+        List<ItemRequestDTO> requests=requestService.getRequestsFromOthers(user.getId(), from,size);
 
         assertNotNull(requests);
         assertEquals(1, requests.size());
@@ -244,7 +241,7 @@ public class RequestServiceImplTest {
         Mockito.when(requestRepository.findRequestsFromOthers(user.getId(),from,size))
                 .thenReturn(Collections.emptyList());
 
-        List<ItemRequest> requests=requestService.getRequestsFromOthers(user.getId(), from,size);
+        List<ItemRequestDTO> requests=requestService.getRequestsFromOthers(user.getId(), from,size);
 
         assertNotNull(requests);
         assertEquals(0, requests.size());
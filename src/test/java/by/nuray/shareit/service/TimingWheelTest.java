@@ -0,0 +1,88 @@
+package by.nuray.shareit.service;
+
+import by.nuray.shareit.booking.TimingWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000;
+
+    private TimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel(START);
+    }
+
+    @Test
+    public void advance_returnsIdsOnlyOnceTheirDeadlineIsReached() {
+        wheel.schedule(1, START + 5);
+        wheel.schedule(2, START + 3);
+
+        assertEquals(List.of(), wheel.advance(START + 2));
+        assertEquals(List.of(2), wheel.advance(START + 4));
+        assertEquals(List.of(1), wheel.advance(START + 10));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void advance_cascadesDeadlinesFromCoarserLevels() {
+        // one per level: under 64 ticks, under 64^2, under 64^3 and under 64^4 ahead
+        long[] deadlines = {START + 63, START + 4_000, START + 200_000, START + 16_000_000};
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.schedule(i, deadlines[i]);
+        }
+
+        for (int i = 0; i < deadlines.length; i++) {
+            assertEquals(List.of(), wheel.advance(deadlines[i] - 1));
+            assertEquals(List.of(i), wheel.advance(deadlines[i]));
+        }
+    }
+
+    @Test
+    public void schedule_whenDeadlineHasPassed_expiresOnNextAdvance() {
+        wheel.advance(START + 100);
+        wheel.schedule(7, START + 50);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(7), wheel.advance(START + 100));
+    }
+
+    @Test
+    public void schedule_whenDeadlineIsBeyondTheHorizon_stillExpiresOnTime() {
+        long farAway = START + (1L << 24) * 3 + 12_345;
+        wheel.schedule(1, farAway);
+
+        assertEquals(List.of(), wheel.advance(farAway - 1));
+        assertEquals(List.of(1), wheel.advance(farAway));
+    }
+
+    @Test
+    public void advance_expiresEveryRandomDeadlineOnItsTick() {
+        Random random = new Random(42);
+        long[] deadlines = new long[2_000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = START + 1 + random.nextInt(300_000);
+            wheel.schedule(i, deadlines[i]);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        for (long tick = START + 1; tick <= START + 300_000; tick += 997) {
+            for (int id : wheel.advance(tick)) {
+                assertTrue(deadlines[id] <= tick && deadlines[id] > tick - 997, "expired off its tick: " + id);
+                expired.add(id);
+            }
+        }
+        expired.addAll(wheel.advance(START + 300_000));
+
+        assertEquals(deadlines.length, expired.size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,7 @@
+-- H2 has no exclusion constraints; these triggers enforce the same rule as bookings_no_overlap in PostgreSQL.
+
+CREATE TRIGGER IF NOT EXISTS bookings_no_overlap_insert BEFORE INSERT ON bookings
+    FOR EACH ROW CALL 'by.nuray.shareit.repository.BookingOverlapTrigger'^;
+
+CREATE TRIGGER IF NOT EXISTS bookings_no_overlap_update BEFORE UPDATE ON bookings
+    FOR EACH ROW CALL 'by.nuray.shareit.repository.BookingOverlapTrigger'^;